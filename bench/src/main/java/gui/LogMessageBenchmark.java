@@ -0,0 +1,89 @@
+package gui;
+
+import log.EventLogger;
+import log.LogCategory;
+import log.LogLevel;
+import model.BenchView;
+import model.Restaurant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//путь logMessage окна без самого окна: EventLogger -> журнал -> буфер кадра UiRefresher
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LogMessageBenchmark {
+    private Restaurant restaurant;
+    private UiRefresher refresher;
+    private EventLogger log;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        RefresherView view = new RefresherView();
+        restaurant = new Restaurant(view, 3, 2);
+        refresher = new UiRefresher(restaurant, (snapshot, lines, orders) -> { }, 500);
+        view.refresher = refresher;
+        log = restaurant.getLogger();
+        log.setLevel(LogLevel.INFO);
+        //без ограничения частоты меряем полный путь сообщения
+        log.setMaxPerSecond(Integer.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        restaurant.getJournal().close();
+    }
+
+    @Benchmark
+    public void logMessage() {
+        refresher.log("Заказ " + counter++ + " добавлен в очередь кухни");
+    }
+
+    @Benchmark
+    public void infoThroughLogger() {
+        int id = counter++;
+        log.info(LogCategory.KITCHEN, () -> "Заказ " + id + " добавлен в очередь кухни");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void infoThroughLoggerContended() {
+        int id = counter++;
+        log.info(LogCategory.KITCHEN, () -> "Заказ " + id + " добавлен в очередь кухни");
+    }
+
+    //отключенный уровень: сообщение не строится
+    @Benchmark
+    public void debugDisabled() {
+        int id = counter++;
+        log.debug(LogCategory.KITCHEN, () -> "Повар взял заказ " + id);
+    }
+
+    private static class RefresherView extends BenchView {
+        volatile UiRefresher refresher;
+
+        @Override
+        public void logMessage(String message) {
+            UiRefresher target = refresher;
+            if (target != null) {
+                target.log(message);
+            }
+        }
+    }
+}
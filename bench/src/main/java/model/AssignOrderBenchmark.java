@@ -0,0 +1,58 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//очереди официантов растут с каждым заказом, поэтому каждая итерация - фиксированная пачка на свежем ресторане
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = AssignOrderBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = AssignOrderBenchmark.BATCH)
+@Fork(2)
+public class AssignOrderBenchmark {
+    static final int BATCH = 5_000;
+
+    @Param({"1", "3", "10", "50"})
+    int waiters;
+
+    private Restaurant restaurant;
+    private Order[] orders;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        restaurant = BenchView.openRestaurant(waiters, 1);
+        for (Waiter waiter : restaurant.getWaiters()) {
+            waiter.setWorking(true);
+        }
+        orders = new Order[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            orders[i] = Order.createRandomOrder("Клиент-" + i);
+        }
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        BenchView.close(restaurant);
+    }
+
+    @Benchmark
+    public void assignOrderToWaiter() {
+        restaurant.assignOrderToWaiter(orders[next++]);
+    }
+}
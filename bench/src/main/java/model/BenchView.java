@@ -0,0 +1,35 @@
+package model;
+
+import log.LogLevel;
+
+import java.util.List;
+
+//пустой интерфейс: бенчмарки меряют движок, а не отрисовку
+public class BenchView implements RestaurantView {
+    @Override
+    public void logMessage(String message) { }
+
+    @Override
+    public void updateOrderStatus(Order order) { }
+
+    @Override
+    public void updateCookingProgress(Order order) { }
+
+    @Override
+    public void clearActiveOrders() { }
+
+    @Override
+    public void removeOrders(List<Order> orders) { }
+
+    //открытая смена без потоков персонала и клиентов; журнал тише, чтобы не мерить логирование
+    static Restaurant openRestaurant(int waiters, int cooks) {
+        Restaurant restaurant = new Restaurant(new BenchView(), waiters, cooks);
+        restaurant.getLogger().setLevel(LogLevel.ERROR);
+        restaurant.openShift();
+        return restaurant;
+    }
+
+    static void close(Restaurant restaurant) {
+        restaurant.getJournal().close();
+    }
+}
@@ -0,0 +1,48 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//быстрый путь checkPause без паузы; вызывается персоналом на каждом шаге
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class CheckPauseBenchmark {
+    private Restaurant restaurant;
+
+    @Setup
+    public void setUp() {
+        restaurant = BenchView.openRestaurant(3, 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchView.close(restaurant);
+    }
+
+    @Benchmark
+    public void checkPause() throws InterruptedException {
+        restaurant.checkPause();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void checkPauseContended() throws InterruptedException {
+        restaurant.checkPause();
+    }
+}
@@ -0,0 +1,80 @@
+package model;
+
+import metrics.HistogramSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//запись доставленного заказа в архив и выборки по битовым картам на архиве из rows заказов.
+//запись не должна выделять память в куче: -prof gc, строка gc.alloc.rate.norm у append
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class DeliveredArchiveBenchmark {
+    private static final String[] WAITERS = {"Официант-1", "Официант-2", "Официант-3"};
+
+    @Param({"1000000"})
+    int rows;
+
+    private DeliveredOrderArchive archive;
+    private DeliveredOrderArchive filled;
+    private Order[] orders;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        orders = new Order[4096];
+        for (int i = 0; i < orders.length; i++) {
+            Order order = Order.createRandomOrder("Клиент");
+            order.setAssignedWaiter(WAITERS[random.nextInt(WAITERS.length)]);
+            order.setAssignedCook("Повар-" + (1 + random.nextInt(2)));
+            for (Order.Phase phase : Order.Phase.values()) {
+                order.markPhase(phase);
+            }
+            orders[i] = order;
+        }
+        archive = new DeliveredOrderArchive(rows);
+        filled = new DeliveredOrderArchive(rows);
+        for (int i = 0; i < rows; i++) {
+            filled.append(orders[i % orders.length]);
+        }
+    }
+
+    @Benchmark
+    public boolean append() {
+        //новая смена поверх прошлой: куски переиспользуются
+        if (archive.size() == rows) {
+            archive.clear();
+        }
+        Order order = orders[next];
+        next = (next + 1) & (orders.length - 1);
+        return archive.append(order);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long countByCategoryAndWaiter() {
+        return filled.count(Order.DishCategory.SOUP, "Официант-2");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public HistogramSnapshot totalTimeByWaiter() {
+        return filled.durations(null, "Официант-2", Order.Phase.CREATED, Order.Phase.DELIVERED);
+    }
+}
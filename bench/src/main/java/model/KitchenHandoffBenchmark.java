@@ -0,0 +1,79 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//задержка передачи заказа спящему повару: официант кладет заказ, повар в фоновом потоке ждет его
+//выбранным способом и возвращает в обратную очередь. одна операция - путь туда и обратно с пробуждениями
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class KitchenHandoffBenchmark {
+    @Param({"INDEXED", "LINKED", "ARRAY", "TRANSFER", "RING"})
+    String queueType;
+
+    @Param({"PARK", "SPIN_THEN_PARK"})
+    String waitStrategy;
+
+    private BlockingQueue<Order> toKitchen;
+    private BlockingQueue<Order> fromKitchen;
+    private KitchenQueues.WaitStrategy wait;
+    private Thread cook;
+    private volatile boolean running;
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        KitchenQueues.Backend backend = KitchenQueues.Backend.valueOf(queueType);
+        toKitchen = backend.create(20);
+        fromKitchen = backend.create(20);
+        wait = KitchenQueues.WaitStrategy.valueOf(waitStrategy);
+        order = Order.createRandomOrder("Клиент");
+
+        running = true;
+        cook = new Thread(() -> {
+            try {
+                while (running) {
+                    Order taken = wait.poll(toKitchen, 10, TimeUnit.MILLISECONDS);
+                    if (taken != null) {
+                        fromKitchen.put(taken);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "bench-cook");
+        cook.setDaemon(true);
+        cook.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        cook.interrupt();
+        cook.join(1000);
+    }
+
+    @Benchmark
+    public Order roundTrip() throws InterruptedException {
+        toKitchen.put(order);
+        return wait.take(fromKitchen);
+    }
+}
@@ -0,0 +1,80 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//передача заказов официант -> повар через очередь той же емкости, что и у кухни.
+//блокирующие put/take могут повиснуть в конце итерации, поэтому здесь offer/poll с проверкой Control.
+//выделение памяти на передачу: -prof gc, строка gc.alloc.rate.norm
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class KitchenQueueBenchmark {
+    @Param({"INDEXED", "LINKED", "ARRAY", "TRANSFER", "RING"})
+    String queueType;
+
+    @Param({"20"})
+    int capacity;
+
+    private BlockingQueue<Order> queue;
+    //разные заказы: индексированная очередь не примет заказ, который в ней уже стоит.
+    //вдвое больше емкости, так что к повторной постановке заказ точно уже забран
+    private Order[] orders;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        queue = KitchenQueues.Backend.valueOf(queueType).create(capacity);
+        orders = new Order[capacity * 2];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = Order.createRandomOrder("Клиент");
+        }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public boolean offer(Control control) {
+        Order order = orders[next];
+        while (!control.stopMeasurement) {
+            if (queue.offer(order)) {
+                next = (next + 1) % orders.length;
+                return true;
+            }
+            Thread.yield();
+        }
+        return false;
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public Order take(Control control) {
+        while (!control.stopMeasurement) {
+            Order taken = queue.poll();
+            if (taken != null) {
+                return taken;
+            }
+            Thread.yield();
+        }
+        return null;
+    }
+}
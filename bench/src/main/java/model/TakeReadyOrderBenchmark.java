@@ -0,0 +1,68 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//поиск готового заказа официанта среди всех заказов в работе
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TakeReadyOrderBenchmark {
+    private static final int WAITERS = 3;
+
+    @Param({"10", "100", "1000"})
+    int inFlight;
+
+    private Restaurant restaurant;
+    private String lastWaiter;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        restaurant = BenchView.openRestaurant(WAITERS, 1);
+        List<Waiter> waiters = restaurant.getWaiters();
+
+        //проводим каждый заказ через кухню; готовые остаются ждать официанта
+        for (int i = 0; i < inFlight; i++) {
+            Order order = Order.createRandomOrder("Клиент-" + i);
+            String waiter = waiters.get(i % WAITERS).getName();
+            restaurant.advanceOrder(order, Order.OrderStatus.CREATED, Order.OrderStatus.WAITING_FOR_COOKING);
+            restaurant.addToKitchenQueue(order, waiter);
+            Order taken = restaurant.takeFromKitchenQueue();
+            restaurant.advanceOrder(taken, Order.OrderStatus.WAITING_FOR_COOKING, Order.OrderStatus.COOKING);
+            restaurant.completeOrder(taken);
+        }
+        lastWaiter = waiters.get(WAITERS - 1).getName();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchView.close(restaurant);
+    }
+
+    @Benchmark
+    public Order hit() {
+        return restaurant.takeReadyOrder(lastWaiter);
+    }
+
+    //официант без готовых заказов: полный проход по всем заказам в работе
+    @Benchmark
+    public Order miss() {
+        return restaurant.takeReadyOrder("Официант-без-заказов");
+    }
+}
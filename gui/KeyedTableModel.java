@@ -0,0 +1,46 @@
+package gui;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//таблица со строками по ключу (имя сотрудника, группа задержек): событие отправляется только для изменившихся строк
+class KeyedTableModel extends AbstractTableModel {
+    private final String[] columns;
+    private final List<Object[]> rows = new ArrayList<>();
+    private final Map<String, Integer> rowByKey = new HashMap<>();
+
+    KeyedTableModel(String[] columns) {
+        this.columns = columns;
+    }
+
+    void update(String key, Object[] values) {
+        Integer row = rowByKey.get(key);
+        if (row == null) {
+            rows.add(values);
+            int index = rows.size() - 1;
+            rowByKey.put(key, index);
+            fireTableRowsInserted(index, index);
+        } else if (!Arrays.equals(rows.get(row), values)) {
+            rows.set(row, values);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    @Override
+    public int getRowCount() { return rows.size(); }
+
+    @Override
+    public int getColumnCount() { return columns.length; }
+
+    @Override
+    public String getColumnName(int column) { return columns[column]; }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return rows.get(rowIndex)[columnIndex];
+    }
+}
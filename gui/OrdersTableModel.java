@@ -0,0 +1,141 @@
+package gui;
+
+import model.Order;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+//модель таблицы заказов по id: обновляется только строка изменившегося заказа
+class OrdersTableModel extends AbstractTableModel {
+    static final int TIME_COLUMN = 6;
+    static final int PROGRESS_COLUMN = 7;
+
+    private static final String[] COLUMNS = {
+            "№", "Клиент", "Блюдо", "Категория",
+            "Статус", "Официант", "Время", "Прогресс"
+    };
+
+    private final int maxRows;
+    private final Function<Order, ProgressValue> progressFunction;
+    private final List<Order> orders = new ArrayList<>();
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    OrdersTableModel(int maxRows, Function<Order, ProgressValue> progressFunction) {
+        this.maxRows = maxRows;
+        this.progressFunction = progressFunction;
+    }
+
+    void upsert(Order order) {
+        Integer row = rowById.get(order.getId());
+        if (row != null) {
+            fireTableRowsUpdated(row, row);
+            return;
+        }
+
+        orders.add(order);
+        int index = orders.size() - 1;
+        rowById.put(order.getId(), index);
+        fireTableRowsInserted(index, index);
+
+        //как и раньше, храним не больше maxRows последних заказов
+        if (orders.size() > maxRows) {
+            removeRows(0, 0);
+        }
+    }
+
+    //выборка целиком, например по фильтру; как и в upsert, остаются последние maxRows
+    void setOrders(List<Order> selection) {
+        clear();
+        int from = Math.max(0, selection.size() - maxRows);
+        for (int i = from; i < selection.size(); i++) {
+            Order order = selection.get(i);
+            rowById.put(order.getId(), orders.size());
+            orders.add(order);
+        }
+        if (!orders.isEmpty()) {
+            fireTableRowsInserted(0, orders.size() - 1);
+        }
+    }
+
+    void remove(Order order) {
+        Integer row = rowById.get(order.getId());
+        if (row != null) {
+            removeRows(row, row);
+        }
+    }
+
+    void clear() {
+        if (orders.isEmpty()) return;
+        int last = orders.size() - 1;
+        orders.clear();
+        rowById.clear();
+        fireTableRowsDeleted(0, last);
+    }
+
+    //колонка времени меняется у всех строк, обновляем только ее
+    void refreshTimeColumn() {
+        if (orders.isEmpty()) return;
+        fireTableChanged(new TableModelEvent(this, 0, orders.size() - 1, TIME_COLUMN));
+    }
+
+    private void removeRows(int first, int last) {
+        for (int i = first; i <= last; i++) {
+            rowById.remove(orders.get(i).getId());
+        }
+        orders.subList(first, last + 1).clear();
+        for (int i = first; i < orders.size(); i++) {
+            rowById.put(orders.get(i).getId(), i);
+        }
+        fireTableRowsDeleted(first, last);
+        if (first < orders.size()) {
+            fireTableChanged(new TableModelEvent(this, first, orders.size() - 1, 0));
+        }
+    }
+
+    @Override
+    public int getRowCount() { return orders.size(); }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        if (columnIndex == PROGRESS_COLUMN) return ProgressValue.class;
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Order order = orders.get(rowIndex);
+        switch (columnIndex) {
+            case 0: return rowIndex + 1;
+            case 1: return order.getClientName();
+            case 2: return order.getDishName();
+            case 3: return order.getDishCategory().getDisplayName();
+            case 4: return order.getStatus().getDisplayName();
+            case 5: return order.getAssignedWaiter() != null ? order.getAssignedWaiter() : "-";
+            case 6: return formatTime(order.getTotalTime());
+            case 7: return progressFunction.apply(order);
+            default: return null;
+        }
+    }
+
+    private static String formatTime(long milliseconds) {
+        long seconds = milliseconds / 1000;
+        if (seconds < 60) {
+            return seconds + " сек";
+        } else {
+            long minutes = seconds / 60;
+            long remainingSeconds = seconds % 60;
+            return minutes + ":" + String.format("%02d", remainingSeconds);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+
+//один компонент на колонку вместо нового JProgressBar на каждую строку
+class ProgressCellRenderer extends JProgressBar implements TableCellRenderer {
+
+    ProgressCellRenderer(Font font) {
+        super(0, 100);
+        setStringPainted(true);
+        setBorderPainted(false);
+        setOpaque(true);
+        if (font != null) {
+            setFont(font);
+        }
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value,
+                                                   boolean isSelected, boolean hasFocus, int row, int column) {
+        if (value instanceof ProgressValue) {
+            ProgressValue progress = (ProgressValue) value;
+            setValue(progress.getValue());
+            setString(progress.getText());
+            setForeground(progress.getForeground());
+            setBackground(progress.getBackground());
+        } else {
+            setValue(0);
+            setString(value != null ? value.toString() : "");
+        }
+        return this;
+    }
+
+    //перерисовка ячейки не должна вызывать перекомпоновку таблицы
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint(Rectangle r) {
+    }
+}
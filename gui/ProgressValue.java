@@ -0,0 +1,43 @@
+package gui;
+
+import java.awt.*;
+import java.util.Objects;
+
+//значение ячейки прогресса; сама полоса рисуется общим ProgressCellRenderer
+public final class ProgressValue {
+    private final int value;
+    private final String text;
+    private final Color foreground;
+    private final Color background;
+
+    public ProgressValue(int value, String text, Color foreground, Color background) {
+        this.value = value;
+        this.text = text;
+        this.foreground = foreground;
+        this.background = background;
+    }
+
+    public int getValue() { return value; }
+    public String getText() { return text; }
+    public Color getForeground() { return foreground; }
+    public Color getBackground() { return background; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProgressValue)) return false;
+        ProgressValue other = (ProgressValue) o;
+        return value == other.value && text.equals(other.text)
+                && foreground.equals(other.foreground) && background.equals(other.background);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, text, foreground, background);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
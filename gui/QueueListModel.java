@@ -0,0 +1,57 @@
+package gui;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+//модель списка очереди: при обновлении сравнивает общее начало и конец и сообщает только об изменившемся диапазоне
+class QueueListModel<T> extends AbstractListModel<T> {
+    private List<T> items = new ArrayList<>();
+
+    void setItems(List<T> newItems) {
+        int oldSize = items.size();
+        int newSize = newItems.size();
+        int common = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        while (prefix < common && Objects.equals(items.get(prefix), newItems.get(prefix))) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < common - prefix &&
+                Objects.equals(items.get(oldSize - 1 - suffix), newItems.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        if (prefix == oldSize && prefix == newSize) {
+            return;
+        }
+
+        items = new ArrayList<>(newItems);
+
+        int oldEnd = oldSize - suffix;
+        int newEnd = newSize - suffix;
+        int changed = Math.min(oldEnd, newEnd) - prefix;
+
+        if (changed > 0) {
+            fireContentsChanged(this, prefix, prefix + changed - 1);
+        }
+        if (oldEnd > newEnd) {
+            fireIntervalRemoved(this, prefix + changed, oldEnd - 1);
+        } else if (newEnd > oldEnd) {
+            fireIntervalAdded(this, prefix + changed, newEnd - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public T getElementAt(int index) {
+        return items.get(index);
+    }
+}
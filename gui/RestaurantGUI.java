@@ -1,5 +1,10 @@
 package gui;
 
+import log.EventJournal;
+import metrics.CapacityPlan;
+import metrics.CapacityPlanner;
+import metrics.HistogramSnapshot;
+import metrics.LatencyStats;
 import model.*;
 import javax.swing.*;
 import javax.swing.border.*;
@@ -10,18 +15,19 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
 import java.util.Timer;
-import java.util.concurrent.atomic.AtomicBoolean;
 
-public class RestaurantGUI extends JFrame {
+public class RestaurantGUI extends JFrame implements RestaurantView {
     private final Restaurant restaurant;
 
     private JTextArea logArea;
     private JTable ordersTable;
-    private DefaultTableModel ordersTableModel;
+    private OrdersTableModel ordersTableModel;
+    private JComboBox<String> statusFilter;
+    private JComboBox<String> waiterFilter;
     private JTable waitersTable;
-    private DefaultTableModel waitersTableModel;
+    private KeyedTableModel waitersTableModel;
     private JTable cooksTable;
-    private DefaultTableModel cooksTableModel;
+    private KeyedTableModel cooksTableModel;
 
     private JLabel totalOrdersLabel;
     private JLabel waitingOrdersLabel;
@@ -30,19 +36,16 @@ public class RestaurantGUI extends JFrame {
     private JLabel deliveredOrdersLabel;
     private JLabel timeLabel;
 
+    private JLabel queueInfoLabel;
+    private KeyedTableModel latencyTableModel;
+    private KeyedTableModel planTableModel;
+    private JLabel planRecommendationLabel;
     private JProgressBar queueProgressBar;
 
-    private JTextArea kitchenQueueArea;
-    private JTextArea waiterQueueArea;
-
-    private final Map<String, Order> activeOrders = Collections.synchronizedMap(
-            new LinkedHashMap<>() {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<String, Order> eldest) {
-                    return size() > 100;
-                }
-            }
-    );
+    private final QueueListModel<Order> kitchenQueueModel = new QueueListModel<>();
+    private final QueueListModel<WaiterQueueRow> waiterQueueModel = new QueueListModel<>();
+    private JLabel kitchenQueueSummary;
+    private JLabel waiterQueueSummary;
 
     private JComboBox<String> dishComboInDialog;
 
@@ -67,11 +70,22 @@ public class RestaurantGUI extends JFrame {
     private final Color STATUS_COOKING = new Color(138, 177, 191);
     private final Color STATUS_READY = new Color(168, 227, 128);
     private final Color STATUS_DELIVERED = new Color(117, 211, 96);
+    private final Color STATUS_REJECTED = new Color(230, 170, 160);
 
     private final Map<Order.DishCategory, String[]> categoryDishesMap = new EnumMap<>(Order.DishCategory.class);
 
-    private final AtomicBoolean updateScheduled = new AtomicBoolean(false);
-    private final AtomicBoolean queueUpdateScheduled = new AtomicBoolean(false);
+    private static final DateTimeFormatter LOG_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final int MAX_LOG_LINES = 500;
+    //цель для рекомендации состава: p95 ожидания на каждом этапе, секунды
+    private static final double PLAN_TARGET_P95_WAIT =
+            Double.parseDouble(System.getProperty("restaurant.plan.targetWaitP95", "5"));
+
+    //средняя длина очереди кухни по ежесекундным замерам; трогается только потоком часов
+    private long queueSampleSum;
+    private long queueSampleCount;
+    private long sampledShiftStart;
+
+    private final UiRefresher refresher;
 
     public RestaurantGUI() {
         setTitle("Система работы ресторана");
@@ -80,11 +94,13 @@ public class RestaurantGUI extends JFrame {
         setLayout(new BorderLayout());
 
         restaurant = new Restaurant(this, 3, 2);
+        refresher = new UiRefresher(restaurant, this::renderFrame, MAX_LOG_LINES);
 
         initializeDishesMap();
 
         initUI();
         startClock();
+        refresher.start();
     }
 
     private void initializeDishesMap() {
@@ -122,7 +138,7 @@ public class RestaurantGUI extends JFrame {
         startButton.addActionListener(e -> restaurant.start());
 
         pauseButton = createStyledButton("ПАУЗА", BUTTON_PAUSE);
-        pauseButton.addActionListener(e -> restaurant.pause());
+        pauseButton.addActionListener(e -> restaurant.togglePause());
         pauseButton.setEnabled(false);
 
         stopButton = createStyledButton("ЗАВЕРШИТЬ", BUTTON_STOP);
@@ -147,18 +163,6 @@ public class RestaurantGUI extends JFrame {
         return header;
     }
 
-    public void updatePauseButton(boolean isPaused) {
-        SwingUtilities.invokeLater(() -> {
-            if (isPaused) {
-                pauseButton.setText("ПРОДОЛЖИТЬ");
-                pauseButton.setBackground(BUTTON_PAUSE.brighter());
-            } else {
-                pauseButton.setText("ПАУЗА");
-                pauseButton.setBackground(BUTTON_PAUSE);
-            }
-        });
-    }
-
     private JButton createStyledButton(String text, Color bgColor) {
         JButton button = new JButton(text) {
             @Override
@@ -338,13 +342,34 @@ public class RestaurantGUI extends JFrame {
         panel.setBackground(LIGHT_BG);
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
+        JList<Order> kitchenList = new JList<>(kitchenQueueModel);
+        kitchenList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                Order order = (Order) value;
+                String text = (index < 9 ? " " : "") + (index + 1) + ". " + order.getDishName() +
+                        " (" + order.getDishCategory().getDisplayName() + ") - " + order.getClientName();
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        kitchenQueueSummary = new JLabel();
         JPanel kitchenQueuePanel = createQueuePanel("ОЧЕРЕДЬ НА КУХНЕ",
-                "Здесь отображаются заказы, ожидающие приготовления. Очередь большая (20 мест) и будет заполняться:");
-        kitchenQueueArea = (JTextArea) ((JScrollPane) kitchenQueuePanel.getComponent(1)).getViewport().getView();
+                "Здесь отображаются заказы, ожидающие приготовления. Очередь большая (20 мест) и будет заполняться:",
+                kitchenList, kitchenQueueSummary);
 
+        JList<WaiterQueueRow> waiterList = new JList<>(waiterQueueModel);
+        waiterList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, value.toString(), index, isSelected, cellHasFocus);
+            }
+        });
+        waiterQueueSummary = new JLabel();
         JPanel waiterQueuePanel = createQueuePanel("ОЧЕРЕДИ ОФИЦИАНТОВ",
-                "Здесь отображаются заказы, которые принимают официанты:");
-        waiterQueueArea = (JTextArea) ((JScrollPane) waiterQueuePanel.getComponent(1)).getViewport().getView();
+                "Здесь отображаются заказы, которые принимают официанты:",
+                waiterList, waiterQueueSummary);
 
         panel.add(kitchenQueuePanel);
         panel.add(waiterQueuePanel);
@@ -352,7 +377,7 @@ public class RestaurantGUI extends JFrame {
         return panel;
     }
 
-    private JPanel createQueuePanel(String title, String description) {
+    private JPanel createQueuePanel(String title, String description, JList<?> list, JLabel summaryLabel) {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(LIGHT_BG);
         panel.setBorder(BorderFactory.createCompoundBorder(
@@ -369,20 +394,24 @@ public class RestaurantGUI extends JFrame {
         descLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         descLabel.setForeground(new Color(100, 100, 100));
 
+        summaryLabel.setFont(new Font("Consolas", Font.BOLD, 12));
+        summaryLabel.setForeground(new Color(60, 60, 60));
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
+
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setBackground(LIGHT_BG);
         headerPanel.add(titleLabel, BorderLayout.NORTH);
-        headerPanel.add(descLabel, BorderLayout.SOUTH);
+        headerPanel.add(descLabel, BorderLayout.CENTER);
+        headerPanel.add(summaryLabel, BorderLayout.SOUTH);
 
-        JTextArea queueArea = new JTextArea();
-        queueArea.setEditable(false);
-        queueArea.setFont(new Font("Consolas", Font.PLAIN, 12));
-        queueArea.setBackground(LIGHT_BG);
-        queueArea.setForeground(new Color(60, 60, 60));
-        queueArea.setLineWrap(true);
-        queueArea.setWrapStyleWord(true);
+        //фиксированная высота строки: JList рисует только видимые строки и не измеряет остальные
+        list.setFont(new Font("Consolas", Font.PLAIN, 12));
+        list.setBackground(LIGHT_BG);
+        list.setForeground(new Color(60, 60, 60));
+        list.setFixedCellHeight(18);
+        list.setFixedCellWidth(400);
 
-        JScrollPane scrollPane = new JScrollPane(queueArea);
+        JScrollPane scrollPane = new JScrollPane(list);
         scrollPane.setBorder(BorderFactory.createLineBorder(ACCENT_BG, 1));
 
         panel.add(headerPanel, BorderLayout.NORTH);
@@ -391,77 +420,65 @@ public class RestaurantGUI extends JFrame {
         return panel;
     }
 
-    public void updateQueueVisualization() {
-        SwingUtilities.invokeLater(() -> {
-            if (kitchenQueueArea == null || waiterQueueArea == null) return;
-
-            if (queueUpdateScheduled.get()) {
-                return;
+    private void updateQueueVisualization(RestaurantSnapshot snapshot) {
+        List<Order> kitchenQueue = snapshot.getKitchenQueue();
+        String status;
+        if (kitchenQueue.isEmpty()) {
+            status = "Очередь пуста";
+        } else if (kitchenQueue.size() >= snapshot.getMaxQueueSize()) {
+            status = "ПЕРЕПОЛНЕНА!";
+        } else {
+            status = "";
+        }
+        kitchenQueueSummary.setText("Заказов в очереди: " + kitchenQueue.size() + "/" +
+                snapshot.getMaxQueueSize() + "   Статус: " + status);
+        kitchenQueueModel.setItems(kitchenQueue);
+
+        List<WaiterQueueRow> rows = new ArrayList<>();
+        int totalWaiting = 0;
+        for (Map.Entry<String, List<Order>> entry : new TreeMap<>(snapshot.getWaiterQueues()).entrySet()) {
+            List<Order> orders = entry.getValue();
+            totalWaiting += orders.size();
+            rows.add(new WaiterQueueRow(entry.getKey(), null, orders.size()));
+            for (int i = 0; i < orders.size(); i++) {
+                rows.add(new WaiterQueueRow(entry.getKey(), orders.get(i), i + 1));
             }
+        }
+        waiterQueueSummary.setText("Всего у официантов: " + totalWaiting + " заказ(ов)");
+        waiterQueueModel.setItems(rows);
+    }
 
-            queueUpdateScheduled.set(true);
+    //строка списка очередей официантов: заголовок официанта (order == null) или заказ в его очереди
+    private static final class WaiterQueueRow {
+        private final String waiter;
+        private final Order order;
+        private final int number;
 
-            try {
-                List<Order> kitchenQueue = restaurant.getVisibleKitchenQueue();
-                StringBuilder kitchenText = new StringBuilder();
-                kitchenText.append("Заказов в очереди: ").append(kitchenQueue.size()).append("/").append(restaurant.getMaxQueueSize()).append("\n");
-                kitchenText.append("Статус: ");
-
-                if (kitchenQueue.isEmpty()) {
-                    kitchenText.append("Очередь пуста\n");
-                } else if (kitchenQueue.size() >= restaurant.getMaxQueueSize()) {
-                    kitchenText.append("ПЕРЕПОЛНЕНА!\n");
-                }
+        WaiterQueueRow(String waiter, Order order, int number) {
+            this.waiter = waiter;
+            this.order = order;
+            this.number = number;
+        }
 
-                kitchenText.append("\n");
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof WaiterQueueRow)) return false;
+            WaiterQueueRow other = (WaiterQueueRow) o;
+            return number == other.number && order == other.order && waiter.equals(other.waiter);
+        }
 
-                if (kitchenQueue.isEmpty()) {
-                    kitchenText.append("Нет заказов в очереди\n");
-                } else {
-                    int limit = Math.min(kitchenQueue.size(), 20);
-                    for (int i = 0; i < limit; i++) {
-                        Order order = kitchenQueue.get(i);
-                        kitchenText.append(String.format("%2d. %s (%s) - %s\n",
-                                i + 1,
-                                order.getDishName(),
-                                order.getDishCategory().getDisplayName(),
-                                order.getClientName()));
-                    }
-                    if (kitchenQueue.size() > 20) {
-                        kitchenText.append("... и еще ").append(kitchenQueue.size() - 20).append(" заказов\n");
-                    }
-                }
-                kitchenQueueArea.setText(kitchenText.toString());
-
-                Map<String, List<Order>> waiterQueues = restaurant.getWaiterQueues();
-                StringBuilder waiterText = new StringBuilder();
-
-                for (Map.Entry<String, List<Order>> entry : waiterQueues.entrySet()) {
-                    List<Order> orders = entry.getValue();
-                    waiterText.append(entry.getKey()).append(": ").append(orders.size()).append(" заказ(ов)\n");
-
-                    if (!orders.isEmpty()) {
-                        int limit = Math.min(orders.size(), 10);
-                        for (int i = 0; i < limit; i++) {
-                            Order order = orders.get(i);
-                            waiterText.append(String.format("   %d. %s - %s\n",
-                                    i + 1,
-                                    order.getDishName(),
-                                    order.getClientName()));
-                        }
-                        if (orders.size() > 10) {
-                            waiterText.append("   ... и еще ").append(orders.size() - 10).append(" заказов\n");
-                        }
-                    } else {
-                        waiterText.append("   (нет заказов)\n");
-                    }
-                    waiterText.append("\n");
-                }
-                waiterQueueArea.setText(waiterText.toString());
-            } finally {
-                queueUpdateScheduled.set(false);
+        @Override
+        public int hashCode() {
+            return waiter.hashCode() * 31 + number;
+        }
+
+        @Override
+        public String toString() {
+            if (order == null) {
+                return waiter + ": " + number + " заказ(ов)";
             }
-        });
+            return "   " + number + ". " + order.getDishName() + " - " + order.getClientName();
+        }
     }
 
     private JPanel createOrdersPanel() {
@@ -474,23 +491,7 @@ public class RestaurantGUI extends JFrame {
         title.setForeground(new Color(60, 60, 60));
         title.setBorder(BorderFactory.createEmptyBorder(0, 0, 15, 0));
 
-        String[] columns = {
-                "№", "Клиент", "Блюдо", "Категория",
-                "Статус", "Официант", "Время", "Прогресс"
-        };
-
-        ordersTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex == 7) return JProgressBar.class;
-                return String.class;
-            }
-        };
+        ordersTableModel = new OrdersTableModel(100, this::progressFor);
 
         ordersTable = new JTable(ordersTableModel);
         styleOrdersTable();
@@ -498,12 +499,76 @@ public class RestaurantGUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(ordersTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(ACCENT_BG, 1));
 
-        panel.add(title, BorderLayout.NORTH);
+        JPanel top = new JPanel(new BorderLayout());
+        top.setBackground(LIGHT_BG);
+        top.add(title, BorderLayout.NORTH);
+        top.add(createOrdersFilterBar(), BorderLayout.SOUTH);
+
+        panel.add(top, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
 
         return panel;
     }
 
+    private JPanel createOrdersFilterBar() {
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        bar.setBackground(LIGHT_BG);
+        bar.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+
+        statusFilter = new JComboBox<>();
+        statusFilter.addItem("Все статусы");
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            statusFilter.addItem(status.getDisplayName());
+        }
+
+        waiterFilter = new JComboBox<>();
+        waiterFilter.addItem("Все официанты");
+        for (Waiter waiter : restaurant.getWaiters()) {
+            waiterFilter.addItem(waiter.getName());
+        }
+
+        statusFilter.addActionListener(e -> applyOrderFilter());
+        waiterFilter.addActionListener(e -> applyOrderFilter());
+
+        bar.add(new JLabel("Статус:"));
+        bar.add(statusFilter);
+        bar.add(new JLabel("Официант:"));
+        bar.add(waiterFilter);
+        return bar;
+    }
+
+    private Order.OrderStatus selectedStatus() {
+        int index = statusFilter.getSelectedIndex();
+        return index <= 0 ? null : Order.OrderStatus.values()[index - 1];
+    }
+
+    private String selectedWaiter() {
+        return waiterFilter.getSelectedIndex() <= 0 ? null : (String) waiterFilter.getSelectedItem();
+    }
+
+    private boolean matchesOrderFilter(Order order) {
+        Order.OrderStatus status = selectedStatus();
+        String waiter = selectedWaiter();
+        return (status == null || order.getStatus() == status) &&
+                (waiter == null || waiter.equals(order.getAssignedWaiter()));
+    }
+
+    //выборка из индексов реестра: стоит столько, сколько заказов подходит под фильтр
+    private void applyOrderFilter() {
+        OrderRegistry registry = restaurant.getOrderRegistry();
+        Order.OrderStatus status = selectedStatus();
+        String waiter = selectedWaiter();
+        List<Order> orders;
+        if (waiter != null) {
+            orders = registry.byWaiter(waiter, status);
+        } else if (status != null) {
+            orders = registry.byStatus(status);
+        } else {
+            orders = registry.all();
+        }
+        ordersTableModel.setOrders(orders);
+    }
+
     private void styleOrdersTable() {
         ordersTable.setRowHeight(40);
         ordersTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -527,28 +592,12 @@ public class RestaurantGUI extends JFrame {
         ordersTable.getColumnModel().getColumn(6).setPreferredWidth(80);
         ordersTable.getColumnModel().getColumn(7).setPreferredWidth(200);
 
-        ordersTable.getColumnModel().getColumn(7).setCellRenderer(new ProgressBarRenderer());
+        ordersTable.getColumnModel().getColumn(OrdersTableModel.PROGRESS_COLUMN)
+                .setCellRenderer(new ProgressCellRenderer(new Font("Segoe UI", Font.BOLD, 10)));
 
         ordersTable.setDefaultRenderer(Object.class, new StatusColorRenderer());
     }
 
-    private static class ProgressBarRenderer extends DefaultTableCellRenderer {
-        @Override
-        public Component getTableCellRendererComponent(JTable table, Object value,
-                                                       boolean isSelected, boolean hasFocus, int row, int column) {
-
-            if (value instanceof JProgressBar) {
-                JProgressBar pb = (JProgressBar) value;
-                pb.setBorderPainted(false);
-                pb.setOpaque(true);
-                return pb;
-            }
-
-            return super.getTableCellRendererComponent(table, value, isSelected,
-                    hasFocus, row, column);
-        }
-    }
-
     private class StatusColorRenderer extends DefaultTableCellRenderer {
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value,
@@ -574,8 +623,10 @@ public class RestaurantGUI extends JFrame {
                     c.setBackground(STATUS_COOKING);
                 } else if (status.contains("Готов")) {
                     c.setBackground(STATUS_READY);
-                } else if (status.contains("Доставлен")) {
+                } else if (status.contains("Доставл")) {
                     c.setBackground(STATUS_DELIVERED);
+                } else if (status.contains("Отклонен")) {
+                    c.setBackground(STATUS_REJECTED);
                 } else {
                     c.setBackground(LIGHT_BG);
                 }
@@ -597,22 +648,13 @@ public class RestaurantGUI extends JFrame {
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
         String[] waiterColumns = {"Имя", "Статус", "Заказов", "Продуктивность", "Загруженность"};
-        waitersTableModel = new DefaultTableModel(waiterColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        waitersTableModel = new KeyedTableModel(waiterColumns);
         waitersTable = new JTable(waitersTableModel);
         styleStaffTable(waitersTable);
+        waitersTable.getColumnModel().getColumn(4).setCellRenderer(new ProgressCellRenderer(null));
 
         String[] cookColumns = {"Имя", "Статус", "Приготовлено", "Продуктивность"};
-        cooksTableModel = new DefaultTableModel(cookColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        cooksTableModel = new KeyedTableModel(cookColumns);
         cooksTable = new JTable(cooksTableModel);
         styleStaffTable(cooksTable);
 
@@ -672,8 +714,7 @@ public class RestaurantGUI extends JFrame {
         readyOrdersLabel = createStatLabel("0");
         deliveredOrdersLabel = createStatLabel("0");
 
-        JLabel queueInfoLabel = createStatLabel("0/20");
-        queueInfoLabel.setName("queueInfoLabel");
+        queueInfoLabel = createStatLabel("0/20");
 
         createStatLabel("0 сек");
 
@@ -710,12 +751,154 @@ public class RestaurantGUI extends JFrame {
         summaryPanel.add(statsGrid, BorderLayout.NORTH);
         summaryPanel.add(queuePanel, BorderLayout.CENTER);
 
+        String[] latencyColumns = {"Группа", "Этап", "Заказов", "p50, мс", "p90, мс", "p99, мс", "max, мс"};
+        latencyTableModel = new KeyedTableModel(latencyColumns);
+        JTable latencyTable = new JTable(latencyTableModel);
+        styleStaffTable(latencyTable);
+        latencyTable.setRowHeight(22);
+        JScrollPane latencyScroll = createStyledScrollPane(latencyTable, "ЗАДЕРЖКИ ДОСТАВЛЕННЫХ ЗАКАЗОВ");
+        latencyScroll.setPreferredSize(new Dimension(0, 260));
+
+        String[] planColumns = {"Показатель", "Прогноз M/M/c", "Прогноз M/G/c", "Факт"};
+        planTableModel = new KeyedTableModel(planColumns);
+        JTable planTable = new JTable(planTableModel);
+        styleStaffTable(planTable);
+        planTable.setRowHeight(22);
+        JScrollPane planScroll = createStyledScrollPane(planTable, "ПЛАН МОЩНОСТИ");
+
+        planRecommendationLabel = new JLabel(" ");
+        planRecommendationLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        planRecommendationLabel.setForeground(new Color(60, 60, 60));
+        planRecommendationLabel.setBorder(BorderFactory.createEmptyBorder(8, 0, 0, 0));
+
+        JPanel planPanel = new JPanel(new BorderLayout());
+        planPanel.setBackground(LIGHT_BG);
+        planPanel.add(planScroll, BorderLayout.CENTER);
+        planPanel.add(planRecommendationLabel, BorderLayout.SOUTH);
+
+        JPanel tablesPanel = new JPanel(new GridLayout(1, 2, 15, 0));
+        tablesPanel.setBackground(LIGHT_BG);
+        tablesPanel.add(latencyScroll);
+        tablesPanel.add(planPanel);
+
+        JPanel contentPanel = new JPanel(new BorderLayout(0, 15));
+        contentPanel.setBackground(LIGHT_BG);
+        contentPanel.add(summaryPanel, BorderLayout.NORTH);
+        contentPanel.add(tablesPanel, BorderLayout.CENTER);
+
         panel.add(title, BorderLayout.NORTH);
-        panel.add(summaryPanel, BorderLayout.CENTER);
+        panel.add(contentPanel, BorderLayout.CENTER);
 
         return panel;
     }
 
+    //перцентили считаются в потоке таймера, в EDT только применяются готовые строки
+    private void refreshLatencyTable() {
+        LatencyStats stats = restaurant.getLatencyStats();
+        Map<String, Object[]> rows = new LinkedHashMap<>();
+
+        for (Order.DishCategory category : Order.DishCategory.values()) {
+            for (LatencyStats.Stage stage : LatencyStats.Stage.values()) {
+                rows.put(category.name() + "/" + stage.name(), latencyRow(category.getDisplayName(), stage,
+                        stats.getCategorySnapshot(category, stage)));
+            }
+        }
+
+        for (LatencyStats.Stage stage : LatencyStats.Stage.values()) {
+            for (Map.Entry<String, HistogramSnapshot> entry : stats.getWaiterSnapshots(stage).entrySet()) {
+                rows.put(entry.getKey() + "/" + stage.name(), latencyRow(entry.getKey(), stage, entry.getValue()));
+            }
+        }
+
+        SwingUtilities.invokeLater(() -> rows.forEach(latencyTableModel::update));
+    }
+
+    //прогноз считается в потоке таймера вместе с замером очереди
+    private void refreshCapacityPlan() {
+        long shiftStart = restaurant.getShiftStartTime();
+        if (shiftStart != sampledShiftStart) {
+            sampledShiftStart = shiftStart;
+            queueSampleSum = 0;
+            queueSampleCount = 0;
+        }
+        if (restaurant.isRunning() && !restaurant.isPaused()) {
+            queueSampleSum += restaurant.getQueueSize();
+            queueSampleCount++;
+        }
+        double averageQueue = queueSampleCount > 0 ? (double) queueSampleSum / queueSampleCount : Double.NaN;
+
+        CapacityPlan plan = CapacityPlan.of(restaurant, averageQueue, PLAN_TARGET_P95_WAIT);
+        CapacityPlanner.Prediction kitchenMm = plan.getKitchenMmc();
+        CapacityPlanner.Prediction kitchenMg = plan.getKitchenMgc();
+        CapacityPlanner.Prediction waitersMm = plan.getWaitersMmc();
+        CapacityPlanner.Prediction waitersMg = plan.getWaitersMgc();
+
+        Map<String, Object[]> rows = new LinkedHashMap<>();
+        rows.put("rate", new Object[]{"Поступление, заказов/с",
+                formatNumber(plan.getPredictedArrivalRate(), 2), formatNumber(plan.getPredictedArrivalRate(), 2),
+                formatNumber(plan.getMeasuredArrivalRate(), 2)});
+        rows.put("kitchenLoad", new Object[]{"Загрузка поваров (" + kitchenMm.getServers() + ")",
+                formatPercent(kitchenMm.getUtilization()), formatPercent(kitchenMg.getUtilization()),
+                formatPercent(plan.getMeasuredKitchenUtilization())});
+        rows.put("kitchenQueue", new Object[]{"Очередь кухни, заказов",
+                formatNumber(kitchenMm.getQueueLength(), 1), formatNumber(kitchenMg.getQueueLength(), 1),
+                formatNumber(plan.getMeasuredQueueLength(), 1)});
+        rows.put("kitchenWait", new Object[]{"Ожидание повара, сред./p95 с",
+                formatWait(kitchenMm.getMeanWait(), kitchenMm.getP95Wait()),
+                formatWait(kitchenMg.getMeanWait(), kitchenMg.getP95Wait()), "—"});
+        rows.put("waiterLoad", new Object[]{"Загрузка официантов (" + waitersMm.getServers() + ")",
+                formatPercent(waitersMm.getUtilization()), formatPercent(waitersMg.getUtilization()),
+                formatPercent(plan.getMeasuredWaiterUtilization())});
+        rows.put("waiterWait", new Object[]{"Ожидание официанта, сред./p95 с",
+                formatWait(waitersMm.getMeanWait(), waitersMm.getP95Wait()),
+                formatWait(waitersMg.getMeanWait(), waitersMg.getP95Wait()), "—"});
+        rows.put("totalWait", new Object[]{"До начала готовки, сред./p95 с",
+                formatWait(plan.getPredictedMeanWait(false), plan.getPredictedP95Wait(false)),
+                formatWait(plan.getPredictedMeanWait(true), plan.getPredictedP95Wait(true)),
+                plan.getMeasuredOrders() > 0 ? formatWait(plan.getMeasuredMeanWait(), plan.getMeasuredP95Wait()) : "—"});
+
+        String recommendation = "Цель p95 ожидания " + formatNumber(plan.getTargetP95Wait(), 1) + " с на этап: " +
+                "поваров " + formatStaff(plan.getRecommendedCooks()) +
+                ", официантов " + formatStaff(plan.getRecommendedWaiters()) +
+                " (режим " + restaurant.getLoadMode().getName().toLowerCase() + ")";
+
+        SwingUtilities.invokeLater(() -> {
+            rows.forEach(planTableModel::update);
+            planRecommendationLabel.setText(recommendation);
+        });
+    }
+
+    private static String formatNumber(double value, int digits) {
+        if (Double.isNaN(value)) return "—";
+        if (Double.isInfinite(value)) return "∞";
+        return String.format("%." + digits + "f", value);
+    }
+
+    private static String formatPercent(double value) {
+        if (Double.isNaN(value)) return "—";
+        return String.format("%.0f%%", value * 100);
+    }
+
+    private static String formatWait(double mean, double p95) {
+        return formatNumber(mean, 1) + " / " + formatNumber(p95, 1);
+    }
+
+    private static String formatStaff(int count) {
+        return count > 0 ? "не меньше " + count : "больше 50";
+    }
+
+    private Object[] latencyRow(String group, LatencyStats.Stage stage, HistogramSnapshot snapshot) {
+        return new Object[]{
+                group,
+                stage.getDisplayName(),
+                snapshot.getCount(),
+                snapshot.getMillisAtPercentile(50),
+                snapshot.getMillisAtPercentile(90),
+                snapshot.getMillisAtPercentile(99),
+                snapshot.getMaxMillis()
+        };
+    }
+
     private JLabel createStatLabel(String text) {
         JLabel label = new JLabel(text);
         label.setFont(new Font("Segoe UI", Font.BOLD, 24));
@@ -787,14 +970,37 @@ public class RestaurantGUI extends JFrame {
                 System.currentTimeMillis() + ".txt"));
 
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            try (java.io.PrintWriter writer = new java.io.PrintWriter(fileChooser.getSelectedFile())) {
-                writer.write(logArea.getText());
-                JOptionPane.showMessageDialog(this, "Логи успешно сохранены!",
-                        "Сохранение", JOptionPane.INFORMATION_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Ошибка при сохранении: " + ex.getMessage(),
-                        "Ошибка", JOptionPane.ERROR_MESSAGE);
-            }
+            java.io.File file = fileChooser.getSelectedFile();
+            String fallbackText = logArea.getText();
+
+            //выгружаем всю смену из журнала на диске в фоне, чтобы не блокировать интерфейс
+            new Thread(() -> {
+                try {
+                    EventJournal journal = restaurant.getJournal();
+                    long records = journal.exportShift(file.toPath());
+                    if (records == 0) {
+                        try (java.io.PrintWriter writer = new java.io.PrintWriter(file, "UTF-8")) {
+                            writer.write(fallbackText);
+                        }
+                    }
+                    String failure = journal.getFailure();
+                    if (failure == null) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                                "Логи успешно сохранены! Записей: " + records,
+                                "Сохранение", JOptionPane.INFORMATION_MESSAGE));
+                    } else {
+                        long lost = journal.getLostAfterFailure();
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                                "Логи сохранены не полностью: " + failure + ".\nЗаписей: " + records +
+                                        ", не записано событий: " + lost,
+                                "Сохранение", JOptionPane.WARNING_MESSAGE));
+                    }
+                } catch (Exception ex) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                            "Ошибка при сохранении: " + ex.getMessage(),
+                            "Ошибка", JOptionPane.ERROR_MESSAGE));
+                }
+            }, "log-export").start();
         }
     }
 
@@ -952,266 +1158,143 @@ public class RestaurantGUI extends JFrame {
     }
 
     public void logMessage(String message) {
-        SwingUtilities.invokeLater(() -> {
-            String timestamp = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-            logArea.append("[" + timestamp + "] " + message + "\n");
-
-            int maxLines = 500;
-            String[] lines = logArea.getText().split("\n");
-            if (lines.length > maxLines) {
-                StringBuilder trimmed = new StringBuilder();
-                for (int i = lines.length - maxLines; i < lines.length; i++) {
-                    trimmed.append(lines[i]).append("\n");
-                }
-                logArea.setText(trimmed.toString());
+        refresher.log(message);
+    }
+
+    private void appendLogLines(List<UiRefresher.LogLine> lines) {
+        StringBuilder text = new StringBuilder();
+        for (UiRefresher.LogLine line : lines) {
+            String timestamp = LocalTime.ofInstant(java.time.Instant.ofEpochMilli(line.timestamp),
+                    java.time.ZoneId.systemDefault()).format(LOG_TIME_FORMAT);
+            text.append('[').append(timestamp).append("] ").append(line.message).append('\n');
+        }
+        logArea.append(text.toString());
+
+        //обрезаем начало документа, не разбирая весь текст на строки
+        int excess = logArea.getLineCount() - 1 - MAX_LOG_LINES;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+            } catch (javax.swing.text.BadLocationException ignored) {
             }
+        }
 
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+        logArea.setCaretPosition(logArea.getDocument().getLength());
     }
 
     public void updateOrderStatus(Order order) {
-        SwingUtilities.invokeLater(() -> {
-            activeOrders.put(order.getId(), order);
-            updateOrdersTable();
-        });
+        refresher.orderChanged(order);
     }
 
     public void clearActiveOrders() {
-        SwingUtilities.invokeLater(() -> {
-            activeOrders.clear();
-            updateOrdersTable();
-        });
+        SwingUtilities.invokeLater(() -> ordersTableModel.clear());
     }
 
-    public void removeOldOrders() {
-        SwingUtilities.invokeLater(() -> {
-            long now = System.currentTimeMillis();
-            Iterator<Map.Entry<String, Order>> it = activeOrders.entrySet().iterator();
-            int removed = 0;
-            while (it.hasNext()) {
-                Map.Entry<String, Order> entry = it.next();
-                Order order = entry.getValue();
-                if (order.getStatus() == Order.OrderStatus.DELIVERED &&
-                        (now - order.getCreationTime()) > 30000) {
-                    it.remove();
-                    removed++;
-                }
-            }
-            if (removed > 0) {
-                updateOrdersTable();
-            }
-        });
+    public void removeOrders(List<Order> orders) {
+        SwingUtilities.invokeLater(() -> orders.forEach(ordersTableModel::remove));
     }
 
-    public void updateCookingProgress() {
-        SwingUtilities.invokeLater(() -> {
-            updateOrdersTable();
-        });
+    public void updateCookingProgress(Order order) {
+        refresher.orderChanged(order);
     }
 
-    public void updateQueueStatus(int currentSize, int maxSize) {
-        SwingUtilities.invokeLater(() -> {
-            if (queueProgressBar == null) {
-                return;
-            }
-
-            int progress = maxSize > 0 ? (int) ((currentSize / (double) maxSize) * 100) : 0;
-            queueProgressBar.setValue(progress);
-            queueProgressBar.setString(currentSize + " / " + maxSize);
+    //один кадр интерфейса: все изменения, накопленные с прошлого кадра
+    private void renderFrame(RestaurantSnapshot snapshot, List<UiRefresher.LogLine> logLines,
+                             Collection<Order> changedOrders) {
+        if (!logLines.isEmpty()) {
+            appendLogLines(logLines);
+        }
 
-            if (progress > 80) {
-                queueProgressBar.setForeground(BUTTON_STOP);
-                queueProgressBar.setBackground(LIGHT_BG);
-                queueProgressBar.setString("ПЕРЕПОЛНЕНА! " + currentSize + "/" + maxSize);
-            } else if (progress > 50) {
-                queueProgressBar.setForeground(BUTTON_PAUSE);
-                queueProgressBar.setBackground(LIGHT_BG);
-                queueProgressBar.setString("Высокая " + currentSize + "/" + maxSize);
+        for (Order order : changedOrders) {
+            if (matchesOrderFilter(order)) {
+                ordersTableModel.upsert(order);
             } else {
-                queueProgressBar.setForeground(BUTTON_ADD);
-                queueProgressBar.setBackground(LIGHT_BG);
-                queueProgressBar.setString(currentSize + " / " + maxSize);
-            }
-
-            updateQueueInfoLabel(currentSize, maxSize);
-        });
-    }
-
-    private void updateQueueInfoLabel(int currentSize, int maxSize) {
-        SwingUtilities.invokeLater(() -> {
-            Component[] components = getContentPane().getComponents();
-            for (Component comp : components) {
-                if (comp instanceof JPanel) {
-                    JPanel mainPanel = (JPanel) comp;
-                    Component[] mainComponents = mainPanel.getComponents();
-                    for (Component mainComp : mainComponents) {
-                        if (mainComp instanceof JTabbedPane) {
-                            JTabbedPane tabbedPane = (JTabbedPane) mainComp;
-                            Component statsTab = tabbedPane.getComponentAt(2);
-                            if (statsTab instanceof JPanel) {
-                                JPanel statsPanel = (JPanel) statsTab;
-                                findAndUpdateQueueLabel(statsPanel, currentSize, maxSize);
-                                return;
-                            }
-                        }
-                    }
-                }
-            }
-        });
-    }
-
-    private void findAndUpdateQueueLabel(Container container, int currentSize, int maxSize) {
-        for (Component comp : container.getComponents()) {
-            if (comp instanceof JLabel && "queueInfoLabel".equals(comp.getName())) {
-                JLabel label = (JLabel) comp;
-                label.setText(currentSize + "/" + maxSize);
-                label.setForeground(new Color(60, 60, 60));
-                return;
-            }
-
-            if (comp instanceof Container) {
-                findAndUpdateQueueLabel((Container) comp, currentSize, maxSize);
+                ordersTableModel.remove(order);
             }
         }
-    }
 
-    public void updateStatistics() {
-        if (updateScheduled.get()) {
-            return;
+        if (snapshot != null) {
+            applySnapshot(snapshot);
         }
-
-        updateScheduled.set(true);
-
-        SwingUtilities.invokeLater(() -> {
-            try {
-                if (totalOrdersLabel != null) {
-                    totalOrdersLabel.setText(String.valueOf(restaurant.getTotalOrders()));
-                    waitingOrdersLabel.setText(String.valueOf(restaurant.getWaitingOrders()));
-                    cookingOrdersLabel.setText(String.valueOf(restaurant.getCookingOrders()));
-                    readyOrdersLabel.setText(String.valueOf(restaurant.getReadyOrdersCount()));
-                    deliveredOrdersLabel.setText(String.valueOf(restaurant.getDeliveredOrders()));
-
-                    updateWaitersTable();
-                    updateCooksTable();
-
-                    int currentSize = restaurant.getQueueSize();
-                    int maxSize = restaurant.getMaxQueueSize();
-                    updateQueueStatus(currentSize, maxSize);
-
-                    boolean isRunning = restaurant.isRunning();
-                    boolean isPaused = restaurant.isPaused();
-
-                    startButton.setEnabled(!isRunning);
-                    pauseButton.setEnabled(isRunning);
-                    stopButton.setEnabled(isRunning);
-
-                    if (isPaused) {
-                        pauseButton.setText("ПРОДОЛЖИТЬ");
-                        pauseButton.setBackground(BUTTON_PAUSE.brighter());
-                    } else {
-                        pauseButton.setText("ПАУЗА");
-                        pauseButton.setBackground(BUTTON_PAUSE);
-                    }
-                }
-            } finally {
-                updateScheduled.set(false);
-            }
-        });
-    }
-
-    public void updateWaiterStatus() {
-        updateStatistics();
     }
 
-    public void updateCookStatus() {
-        updateStatistics();
+    private void applySnapshot(RestaurantSnapshot snapshot) {
+        totalOrdersLabel.setText(String.valueOf(snapshot.getTotalOrders()));
+        waitingOrdersLabel.setText(String.valueOf(snapshot.getWaitingOrders()));
+        cookingOrdersLabel.setText(String.valueOf(snapshot.getCookingOrders()));
+        readyOrdersLabel.setText(String.valueOf(snapshot.getReadyOrders()));
+        deliveredOrdersLabel.setText(String.valueOf(snapshot.getDeliveredOrders()));
+
+        updateWaitersTable(snapshot);
+        updateCooksTable(snapshot);
+        updateQueueStatus(snapshot.getQueueSize(), snapshot.getMaxQueueSize());
+        updateQueueVisualization(snapshot);
+
+        boolean isRunning = snapshot.isRunning();
+        startButton.setEnabled(!isRunning);
+        pauseButton.setEnabled(isRunning);
+        stopButton.setEnabled(isRunning);
+
+        if (snapshot.isPaused()) {
+            pauseButton.setText("ПРОДОЛЖИТЬ");
+            pauseButton.setBackground(BUTTON_PAUSE.brighter());
+        } else {
+            pauseButton.setText("ПАУЗА");
+            pauseButton.setBackground(BUTTON_PAUSE);
+        }
     }
 
-    private void updateOrdersTable() {
-        SwingUtilities.invokeLater(() -> {
-            ordersTableModel.setRowCount(0);
-
-            int orderNumber = 1;
-            for (Order order : activeOrders.values()) {
-                Object[] row = {
-                        orderNumber++,
-                        order.getClientName(),
-                        order.getDishName(),
-                        order.getDishCategory().getDisplayName(),
-                        order.getStatus().getDisplayName(),
-                        order.getAssignedWaiter() != null ? order.getAssignedWaiter() : "-",
-                        formatTime(order.getTotalTime()),
-                        createProgressBar(order)
-                };
-                ordersTableModel.addRow(row);
-            }
-        });
-    }
+    private void updateQueueStatus(int currentSize, int maxSize) {
+        int progress = maxSize > 0 ? (int) ((currentSize / (double) maxSize) * 100) : 0;
+        queueProgressBar.setValue(progress);
 
-    private String formatTime(long milliseconds) {
-        long seconds = milliseconds / 1000;
-        if (seconds < 60) {
-            return seconds + " сек";
+        if (progress > 80) {
+            queueProgressBar.setForeground(BUTTON_STOP);
+            queueProgressBar.setString("ПЕРЕПОЛНЕНА! " + currentSize + "/" + maxSize);
+        } else if (progress > 50) {
+            queueProgressBar.setForeground(BUTTON_PAUSE);
+            queueProgressBar.setString("Высокая " + currentSize + "/" + maxSize);
         } else {
-            long minutes = seconds / 60;
-            long remainingSeconds = seconds % 60;
-            return minutes + ":" + String.format("%02d", remainingSeconds);
+            queueProgressBar.setForeground(BUTTON_ADD);
+            queueProgressBar.setString(currentSize + " / " + maxSize);
         }
-    }
+        queueProgressBar.setBackground(LIGHT_BG);
 
-    private JProgressBar createProgressBar(Order order) {
-        JProgressBar progressBar = new JProgressBar(0, 100);
-        progressBar.setStringPainted(true);
-        progressBar.setFont(new Font("Segoe UI", Font.BOLD, 10));
+        queueInfoLabel.setText(currentSize + "/" + maxSize);
+    }
 
+    private ProgressValue progressFor(Order order) {
         switch (order.getStatus()) {
             case WAITING_FOR_COOKING:
-                progressBar.setValue(20);
-                progressBar.setString("Ожидание");
-                progressBar.setForeground(STATUS_WAITING.darker());
-                progressBar.setBackground(STATUS_WAITING);
-                break;
+                return new ProgressValue(20, "Ожидание", STATUS_WAITING.darker(), STATUS_WAITING);
 
             case COOKING:
-                long elapsed = System.currentTimeMillis() - order.getStartCookingTime();
+                long elapsed = order.getCookingElapsedTime();
                 int totalTime = order.getDishCategory().getPreparationTime();
                 int progress = 20 + (int) ((elapsed / (double) totalTime) * 60);
                 progress = Math.min(80, Math.max(20, progress));
-                progressBar.setValue(progress);
-                progressBar.setString("Готовится " + progress + "%");
-                progressBar.setForeground(STATUS_COOKING.darker());
-                progressBar.setBackground(STATUS_COOKING);
-                break;
+                return new ProgressValue(progress, "Готовится " + progress + "%",
+                        STATUS_COOKING.darker(), STATUS_COOKING);
 
             case READY:
-                progressBar.setValue(90);
-                progressBar.setString("Готово");
-                progressBar.setForeground(STATUS_READY.darker());
-                progressBar.setBackground(STATUS_READY);
-                break;
+                return new ProgressValue(90, "Готово", STATUS_READY.darker(), STATUS_READY);
+
+            case DELIVERING:
+                return new ProgressValue(95, "Несут", STATUS_DELIVERED.darker(), STATUS_DELIVERED);
 
             case DELIVERED:
-                progressBar.setValue(100);
-                progressBar.setString("Доставлен");
-                progressBar.setForeground(STATUS_DELIVERED.darker());
-                progressBar.setBackground(STATUS_DELIVERED);
-                break;
+                return new ProgressValue(100, "Доставлен", STATUS_DELIVERED.darker(), STATUS_DELIVERED);
+
+            case REJECTED:
+                return new ProgressValue(100, "Отклонен", STATUS_REJECTED.darker(), STATUS_REJECTED);
 
             default:
-                progressBar.setValue(10);
-                progressBar.setString("Создан");
-                progressBar.setForeground(STATUS_CREATED.darker());
-                progressBar.setBackground(STATUS_CREATED);
+                return new ProgressValue(10, "Создан", STATUS_CREATED.darker(), STATUS_CREATED);
         }
-
-        return progressBar;
     }
 
-    private void updateWaitersTable() {
-        waitersTableModel.setRowCount(0);
-
-        for (Waiter waiter : restaurant.getWaiters()) {
+    private void updateWaitersTable(RestaurantSnapshot snapshot) {
+        for (RestaurantSnapshot.WaiterState waiter : snapshot.getWaiters()) {
             String productivity = "";
             int served = waiter.getOrdersServed();
             if (served > 0) {
@@ -1221,12 +1304,8 @@ public class RestaurantGUI extends JFrame {
                 productivity = "-";
             }
 
-            JProgressBar loadBar = new JProgressBar(0, 100);
-            loadBar.setValue(waiter.getLoadPercentage());
-            loadBar.setString(waiter.getCurrentOrders() + "/" + waiter.getMaxConcurrentOrders());
-            loadBar.setStringPainted(true);
-            loadBar.setForeground(BUTTON_ADD);
-            loadBar.setBackground(LIGHT_BG);
+            ProgressValue loadBar = new ProgressValue(waiter.getLoadPercentage(),
+                    waiter.getCurrentOrders() + "/" + waiter.getMaxConcurrentOrders(), BUTTON_ADD, LIGHT_BG);
 
             Object[] row = {
                     waiter.getName(),
@@ -1235,14 +1314,12 @@ public class RestaurantGUI extends JFrame {
                     productivity,
                     loadBar
             };
-            waitersTableModel.addRow(row);
+            waitersTableModel.update(waiter.getName(), row);
         }
     }
 
-    private void updateCooksTable() {
-        cooksTableModel.setRowCount(0);
-
-        for (Cook cook : restaurant.getCooks()) {
+    private void updateCooksTable(RestaurantSnapshot snapshot) {
+        for (RestaurantSnapshot.CookState cook : snapshot.getCooks()) {
             String productivity = "";
             int cooked = cook.getOrdersCooked();
             if (cooked > 0) {
@@ -1258,7 +1335,7 @@ public class RestaurantGUI extends JFrame {
                     cook.getOrdersCooked(),
                     productivity
             };
-            cooksTableModel.addRow(row);
+            cooksTableModel.update(cook.getName(), row);
         }
     }
 
@@ -1267,11 +1344,16 @@ public class RestaurantGUI extends JFrame {
         timer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
+                refreshLatencyTable();
+                refreshCapacityPlan();
                 SwingUtilities.invokeLater(() -> {
                     if (timeLabel != null) {
                         String time = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
                         timeLabel.setText("Время " + time);
                     }
+                    if (ordersTableModel != null) {
+                        ordersTableModel.refreshTimeColumn();
+                    }
                 });
             }
         }, 0, 1000);
@@ -0,0 +1,115 @@
+package gui;
+
+import model.Order;
+import model.Restaurant;
+import model.RestaurantSnapshot;
+
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//единственный источник работы для EDT: раз в кадр забирает накопленные изменения и последний срез состояния
+class UiRefresher {
+    interface FrameListener {
+        //snapshot == null, если состояние ресторана не менялось с прошлого кадра
+        void onFrame(RestaurantSnapshot snapshot, List<LogLine> logLines, Collection<Order> changedOrders);
+    }
+
+    static final class LogLine {
+        final long timestamp;
+        final String message;
+
+        LogLine(long timestamp, String message) {
+            this.timestamp = timestamp;
+            this.message = message;
+        }
+    }
+
+    private final Restaurant restaurant;
+    private final FrameListener listener;
+    private final int maxLogLinesPerFrame;
+    private final Timer timer;
+
+    private final ConcurrentLinkedQueue<LogLine> pendingLog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingLogCount = new AtomicInteger();
+    private final Map<String, Order> changedOrders = new ConcurrentHashMap<>();
+    private long renderedVersion = -1;
+
+    UiRefresher(Restaurant restaurant, FrameListener listener, int maxLogLinesPerFrame) {
+        this.restaurant = restaurant;
+        this.listener = listener;
+        this.maxLogLinesPerFrame = maxLogLinesPerFrame;
+
+        int fps = Math.max(1, Integer.getInteger("restaurant.ui.fps", 30));
+        this.timer = new Timer(1000 / fps, e -> renderFrame());
+        this.timer.setCoalesce(true);
+    }
+
+    void start() {
+        timer.start();
+    }
+
+    void stop() {
+        timer.stop();
+    }
+
+    //вызывается из любых потоков, EDT не трогается
+    void log(String message) {
+        pendingLog.offer(new LogLine(System.currentTimeMillis(), message));
+        //при перегрузке храним только то, что все равно поместится на экран
+        if (pendingLogCount.incrementAndGet() > maxLogLinesPerFrame) {
+            if (pendingLog.poll() != null) {
+                pendingLogCount.decrementAndGet();
+            }
+        }
+    }
+
+    void orderChanged(Order order) {
+        changedOrders.put(order.getId(), order);
+    }
+
+    //принудительная отрисовка в следующем кадре, например после очистки таблиц
+    void invalidate() {
+        renderedVersion = -1;
+    }
+
+    private void renderFrame() {
+        List<LogLine> lines = new ArrayList<>();
+        LogLine line;
+        while ((line = pendingLog.poll()) != null) {
+            pendingLogCount.decrementAndGet();
+            lines.add(line);
+        }
+
+        Collection<Order> orders;
+        if (changedOrders.isEmpty()) {
+            orders = List.of();
+        } else {
+            Map<String, Order> drained = new LinkedHashMap<>();
+            for (String id : changedOrders.keySet()) {
+                Order order = changedOrders.remove(id);
+                if (order != null) {
+                    drained.put(id, order);
+                }
+            }
+            orders = drained.values();
+        }
+
+        RestaurantSnapshot snapshot = null;
+        long version = restaurant.getStateVersion();
+        if (version != renderedVersion) {
+            snapshot = restaurant.getSnapshot();
+            renderedVersion = snapshot.getVersion();
+        }
+
+        if (snapshot != null || !lines.isEmpty() || !orders.isEmpty()) {
+            listener.onFrame(snapshot, lines, orders);
+        }
+    }
+}
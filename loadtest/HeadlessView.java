@@ -0,0 +1,84 @@
+package loadtest;
+
+import metrics.HistogramSnapshot;
+import metrics.LatencyHistogram;
+import model.Order;
+import model.RestaurantView;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//интерфейс без окна: ловит доставки и считает задержку от запланированного времени прихода клиента
+class HeadlessView implements RestaurantView {
+    private final boolean verbose;
+    private final double timeScale;
+    private final Map<String, Long> intendedArrival = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong deliveredInWindow = new AtomicLong();
+
+    private volatile long windowStart = Long.MAX_VALUE;
+    private volatile long windowEnd = Long.MAX_VALUE;
+
+    HeadlessView(boolean verbose, double timeScale) {
+        this.verbose = verbose;
+        this.timeScale = timeScale;
+    }
+
+    void setWindow(long startNanos, long endNanos) {
+        this.windowStart = startNanos;
+        this.windowEnd = endNanos;
+    }
+
+    void expect(Order order, long intendedNanos) {
+        intendedArrival.put(order.getId(), intendedNanos);
+    }
+
+    void forget(Order order) {
+        intendedArrival.remove(order.getId());
+    }
+
+    int getPending() {
+        return intendedArrival.size();
+    }
+
+    long getDeliveredInWindow() {
+        return deliveredInWindow.get();
+    }
+
+    HistogramSnapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public void logMessage(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    @Override
+    public void updateOrderStatus(Order order) {
+        if (order.getStatus() != Order.OrderStatus.DELIVERED) return;
+
+        long now = System.nanoTime();
+        Long intended = intendedArrival.remove(order.getId());
+        if (intended == null) return;
+
+        //в микросекундах симуляции: реальное время, умноженное на ускорение
+        latency.record((long) ((now - intended) / 1000 * timeScale));
+        if (now >= windowStart && now <= windowEnd) {
+            deliveredInWindow.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void updateCookingProgress(Order order) { }
+
+    @Override
+    public void clearActiveOrders() { }
+
+    @Override
+    public void removeOrders(List<Order> orders) { }
+}
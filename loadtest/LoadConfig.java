@@ -0,0 +1,71 @@
+package loadtest;
+
+//параметры одного прогона; время - в секундах симуляции, до ускорения
+final class LoadConfig {
+    final int waiters;
+    final int cooks;
+    final int queueSize;
+    final double timeScale;
+    final double ratePerSec;
+    final double durationSec;
+    final double warmupSec;
+    final double drainSec;
+    //0 - столько ядер, сколько видит JVM
+    final int cores;
+
+    LoadConfig(int waiters, int cooks, int queueSize, double timeScale, double ratePerSec,
+               double durationSec, double warmupSec, double drainSec, int cores) {
+        if (waiters < 1 || cooks < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Официантов, поваров и мест в очереди должно быть хотя бы по одному");
+        }
+        if (timeScale < 1 || ratePerSec <= 0 || durationSec <= 0 || warmupSec < 0 || warmupSec >= durationSec) {
+            throw new IllegalArgumentException("Неверные параметры времени: ускорение >= 1, частота > 0, 0 <= разгон < длительность");
+        }
+        this.waiters = waiters;
+        this.cooks = cooks;
+        this.queueSize = queueSize;
+        this.timeScale = timeScale;
+        this.ratePerSec = ratePerSec;
+        this.durationSec = durationSec;
+        this.warmupSec = warmupSec;
+        this.drainSec = drainSec;
+        this.cores = cores;
+    }
+
+    LoadConfig with(String key, String value) {
+        switch (key) {
+            case "waiters":
+                return new LoadConfig(Integer.parseInt(value), cooks, queueSize, timeScale, ratePerSec, durationSec, warmupSec, drainSec, cores);
+            case "cooks":
+                return new LoadConfig(waiters, Integer.parseInt(value), queueSize, timeScale, ratePerSec, durationSec, warmupSec, drainSec, cores);
+            case "queue":
+                return new LoadConfig(waiters, cooks, Integer.parseInt(value), timeScale, ratePerSec, durationSec, warmupSec, drainSec, cores);
+            case "scale":
+                return new LoadConfig(waiters, cooks, queueSize, Double.parseDouble(value), ratePerSec, durationSec, warmupSec, drainSec, cores);
+            case "rate":
+                return new LoadConfig(waiters, cooks, queueSize, timeScale, Double.parseDouble(value), durationSec, warmupSec, drainSec, cores);
+            case "duration":
+                return new LoadConfig(waiters, cooks, queueSize, timeScale, ratePerSec, Double.parseDouble(value), warmupSec, drainSec, cores);
+            case "warmup":
+                return new LoadConfig(waiters, cooks, queueSize, timeScale, ratePerSec, durationSec, Double.parseDouble(value), drainSec, cores);
+            case "drain":
+                return new LoadConfig(waiters, cooks, queueSize, timeScale, ratePerSec, durationSec, warmupSec, Double.parseDouble(value), cores);
+            case "cores":
+                return new LoadConfig(waiters, cooks, queueSize, timeScale, ratePerSec, durationSec, warmupSec, drainSec, Integer.parseInt(value));
+            default:
+                throw new IllegalArgumentException("Неизвестный параметр: " + key);
+        }
+    }
+
+    //перевод секунд симуляции в реальные наносекунды
+    long realNanos(double simulatedSec) {
+        return (long) (simulatedSec * 1_000_000_000L / timeScale);
+    }
+
+    @Override
+    public String toString() {
+        return "официантов=" + waiters + ", поваров=" + cooks + ", очередь=" + queueSize +
+                ", ускорение=" + timeScale + "x, заказов/с=" + ratePerSec +
+                (cores > 0 ? ", ядер=" + cores : "");
+    }
+}
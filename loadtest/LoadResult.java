@@ -0,0 +1,77 @@
+package loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//итог одного прогона; задержки в миллисекундах симуляции
+final class LoadResult {
+    static final String[] KEY_FIELDS = {"waiters", "cooks", "queueSize", "timeScale", "ratePerSec", "cores"};
+
+    private final Map<String, Object> values;
+
+    LoadResult(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    static LoadResult of(LoadConfig config, int cores) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("waiters", config.waiters);
+        values.put("cooks", config.cooks);
+        values.put("queueSize", config.queueSize);
+        values.put("timeScale", config.timeScale);
+        values.put("ratePerSec", config.ratePerSec);
+        values.put("durationSec", config.durationSec);
+        values.put("warmupSec", config.warmupSec);
+        values.put("cores", cores);
+        return new LoadResult(values);
+    }
+
+    LoadResult put(String key, Object value) {
+        values.put(key, value);
+        return this;
+    }
+
+    double get(String key) {
+        Object value = values.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    //точки сравниваются с базовой линией только при совпадении конфигурации
+    String key() {
+        StringBuilder sb = new StringBuilder();
+        for (String field : KEY_FIELDS) {
+            sb.append(field).append('=').append(get(field)).append(';');
+        }
+        //режим выдачи по умолчанию в ключ не входит, чтобы старые отчеты оставались сравнимы
+        Object deliveryMode = values.get("deliveryMode");
+        if (deliveryMode != null && !"ASSIGNED".equals(deliveryMode)) {
+            sb.append("deliveryMode=").append(deliveryMode).append(';');
+        }
+        Object kitchenQueue = values.get("kitchenQueue");
+        if (kitchenQueue != null && !"INDEXED".equals(kitchenQueue)) {
+            sb.append("kitchenQueue=").append(kitchenQueue).append(';');
+        }
+        Object kitchenWait = values.get("kitchenWait");
+        if (kitchenWait != null && !"PARK".equals(kitchenWait)) {
+            sb.append("kitchenWait=").append(kitchenWait).append(';');
+        }
+        Object pipeline = values.get("pipeline");
+        if (pipeline != null && !"QUEUES".equals(pipeline)) {
+            sb.append("pipeline=").append(pipeline).append(';');
+        }
+        Object ticketShare = values.get("ticketShare");
+        if (ticketShare instanceof Number && ((Number) ticketShare).doubleValue() > 0) {
+            sb.append("ticketShare=").append(ticketShare).append(';');
+        }
+        return sb.toString();
+    }
+
+    Map<String, Object> toMap() {
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    static LoadResult fromMap(Object map) {
+        return new LoadResult(new LinkedHashMap<>((Map<String, Object>) map));
+    }
+}
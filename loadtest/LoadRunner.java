@@ -0,0 +1,227 @@
+package loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//нагрузочный прогон без окна:
+//  java -cp app/target/restaurant-1.0-SNAPSHOT.jar loadtest.LoadRunner --rate 2 --scale 10 --sweep waiters=2,4,8
+//выход 2 - результат хуже базовой линии больше допуска
+public class LoadRunner {
+    private static final String USAGE = String.join("\n",
+            "Параметры (время в секундах симуляции):",
+            "  --waiters N      официантов (3)",
+            "  --cooks N        поваров (2)",
+            "  --queue N        мест в очереди кухни (20)",
+            "  --scale X        ускорение времени (10)",
+            "  --rate X         заказов в секунду (1)",
+            "  --duration S     длительность подачи заказов (120)",
+            "  --warmup S       разгон без измерений (20)",
+            "  --drain S        ожидание незавершенных заказов (60)",
+            "  --sweep K=a,b,c  перебор: waiters, cooks, queue, rate, scale или cores",
+            "  --out FILE       отчет JSON (load-report.json)",
+            "  --baseline FILE  сравнить с прошлым отчетом",
+            "  --tolerance P    допустимое ухудшение в процентах (10)",
+            "  --verbose        печатать журнал событий",
+            "Настройки ресторана передаются свойствами -Drestaurant.*, например -Drestaurant.delivery.mode=POOLED");
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        Map<String, String> options = parseArgs(args);
+        if (options.containsKey("help")) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        LoadConfig base = new LoadConfig(3, 2, 20, 10, 1, 120, 20, 60, 0);
+        for (String key : new String[]{"waiters", "cooks", "queue", "scale", "rate", "duration", "warmup", "drain", "cores"}) {
+            if (options.containsKey(key)) {
+                base = base.with(key, options.get(key));
+            }
+        }
+        boolean verbose = options.containsKey("verbose");
+
+        //дочерний процесс для перебора ядер: один прогон, результат в файл
+        if (options.containsKey("point-out")) {
+            LoadResult result = new LoadScenario(base, verbose).run();
+            Files.writeString(Paths.get(options.get("point-out")), Json.write(result.toMap()), StandardCharsets.UTF_8);
+            System.exit(0);
+        }
+
+        List<LoadConfig> points = new ArrayList<>();
+        String sweep = options.get("sweep");
+        String sweepKey = null;
+        if (sweep == null) {
+            points.add(base);
+        } else {
+            int eq = sweep.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Перебор задается как ключ=значение1,значение2: " + sweep);
+            sweepKey = sweep.substring(0, eq);
+            for (String value : sweep.substring(eq + 1).split(",")) {
+                points.add(base.with(sweepKey, value.trim()));
+            }
+        }
+
+        List<LoadResult> results = new ArrayList<>();
+        for (LoadConfig point : points) {
+            System.out.println("Прогон: " + point);
+            LoadResult result = point.cores > 0 ? runInChildJvm(point, options) : new LoadScenario(point, verbose).run();
+            results.add(result);
+            printResult(result);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", LocalDateTime.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("sweep", sweepKey);
+        List<Object> serialized = new ArrayList<>();
+        for (LoadResult result : results) {
+            serialized.add(result.toMap());
+        }
+        report.put("points", serialized);
+
+        Path out = Paths.get(options.getOrDefault("out", "load-report.json"));
+        Files.writeString(out, Json.write(report), StandardCharsets.UTF_8);
+        System.out.println("Отчет сохранен: " + out.toAbsolutePath());
+
+        if (options.containsKey("baseline")) {
+            double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "10"));
+            boolean regressed = compareWithBaseline(results, Paths.get(options.get("baseline")), tolerance);
+            System.exit(regressed ? 2 : 0);
+        }
+        System.exit(0);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg + "\n" + USAGE);
+            }
+            String key = arg.substring(2);
+            if (key.equals("verbose") || key.equals("help")) {
+                options.put(key, "true");
+            } else if (i + 1 < args.length) {
+                options.put(key, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Нет значения для " + arg);
+            }
+        }
+        return options;
+    }
+
+    //число ядер меняется только при старте JVM, поэтому каждая точка - отдельный процесс
+    private static LoadResult runInChildJvm(LoadConfig point, Map<String, String> options)
+            throws IOException, InterruptedException {
+        File pointFile = File.createTempFile("load-point", ".json");
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-XX:ActiveProcessorCount=" + point.cores);
+            command.add("-Djava.awt.headless=true");
+            for (String property : System.getProperties().stringPropertyNames()) {
+                if (property.startsWith("restaurant.")) {
+                    command.add("-D" + property + "=" + System.getProperty(property));
+                }
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(LoadRunner.class.getName());
+            addOption(command, "waiters", point.waiters);
+            addOption(command, "cooks", point.cooks);
+            addOption(command, "queue", point.queueSize);
+            addOption(command, "scale", point.timeScale);
+            addOption(command, "rate", point.ratePerSec);
+            addOption(command, "duration", point.durationSec);
+            addOption(command, "warmup", point.warmupSec);
+            addOption(command, "drain", point.drainSec);
+            if (options.containsKey("verbose")) {
+                command.add("--verbose");
+            }
+            command.add("--point-out");
+            command.add(pointFile.getAbsolutePath());
+
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IllegalStateException("Прогон на " + point.cores + " ядрах завершился с кодом " + exitCode);
+            }
+            return LoadResult.fromMap(Json.parse(Files.readString(pointFile.toPath(), StandardCharsets.UTF_8)));
+        } finally {
+            pointFile.delete();
+        }
+    }
+
+    private static void addOption(List<String> command, String key, Object value) {
+        command.add("--" + key);
+        command.add(String.valueOf(value));
+    }
+
+    private static void printResult(LoadResult r) {
+        System.out.println(String.format(Locale.ROOT,
+                "  подано %.2f/с, доставлено %.2f/с, p50=%.0fмс p90=%.0fмс p99=%.0fмс max=%.0fмс, " +
+                        "выдача p50=%.0fмс p99=%.0fмс, отказов %d, не завершено %d, GC %d (%dмс), пик кучи %dМБ",
+                r.get("offeredPerSec"), r.get("throughputPerSec"),
+                r.get("latencyP50Ms"), r.get("latencyP90Ms"), r.get("latencyP99Ms"), r.get("latencyMaxMs"),
+                r.get("readyToDeliveredP50Ms"), r.get("readyToDeliveredP99Ms"),
+                (long) r.get("rejected"), (long) r.get("incomplete"),
+                (long) r.get("gcCount"), (long) r.get("gcTimeMs"), (long) r.get("heapPeakBytes") / (1024 * 1024)));
+        Object ticketsServed = r.get("ticketsServed");
+        if (ticketsServed instanceof Number && ((Number) ticketsServed).longValue() > 0) {
+            System.out.println(String.format(Locale.ROOT, "  столов обслужено %d, стол p50=%.0fмс p99=%.0fмс",
+                    ((Number) ticketsServed).longValue(), r.get("tableTurnP50Ms"), r.get("tableTurnP99Ms")));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean compareWithBaseline(List<LoadResult> results, Path baselineFile, double tolerancePercent)
+            throws IOException {
+        Map<String, Object> baseline = (Map<String, Object>) Json.parse(Files.readString(baselineFile, StandardCharsets.UTF_8));
+        Map<String, LoadResult> baselineByKey = new HashMap<>();
+        for (Object point : (List<Object>) baseline.get("points")) {
+            LoadResult result = LoadResult.fromMap(point);
+            baselineByKey.put(result.key(), result);
+        }
+
+        System.out.println("Сравнение с " + baselineFile + " (допуск " + tolerancePercent + "%):");
+        double tolerance = tolerancePercent / 100.0;
+        boolean regressed = false;
+        for (LoadResult current : results) {
+            LoadResult before = baselineByKey.get(current.key());
+            if (before == null) {
+                System.out.println("  " + current.key() + " нет в базовой линии");
+                continue;
+            }
+
+            double throughputBefore = before.get("throughputPerSec");
+            double throughputNow = current.get("throughputPerSec");
+            double p99Before = before.get("latencyP99Ms");
+            double p99Now = current.get("latencyP99Ms");
+
+            boolean worse = throughputNow < throughputBefore * (1 - tolerance) ||
+                    p99Now > p99Before * (1 + tolerance) ||
+                    current.get("rejected") > before.get("rejected") * (1 + tolerance) + 1;
+            regressed |= worse;
+
+            System.out.println(String.format(Locale.ROOT,
+                    "  %s пропускная %.2f -> %.2f/с, p99 %.0f -> %.0fмс, отказов %d -> %d%s",
+                    current.key(), throughputBefore, throughputNow, p99Before, p99Now,
+                    (long) before.get("rejected"), (long) current.get("rejected"),
+                    worse ? "  УХУДШЕНИЕ" : ""));
+        }
+        return regressed;
+    }
+}
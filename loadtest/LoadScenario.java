@@ -0,0 +1,181 @@
+package loadtest;
+
+import log.LogLevel;
+import metrics.HistogramSnapshot;
+import model.Order;
+import model.OrderPipeline;
+import model.Restaurant;
+import model.Ticket;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+//один прогон: заказы приходят по расписанию с заданной частотой, задержка считается от запланированного прихода,
+//поэтому отставание генератора (coordinated omission) попадает в результат, а не теряется
+final class LoadScenario {
+    private static final String[] CLIENT_NAMES = {
+            "Иван Иванов", "Мария Петрова", "Алексей Сидоров",
+            "Екатерина Кузнецова", "Дмитрий Васильев", "Ольга Николаева"
+    };
+
+    private final LoadConfig config;
+    private final boolean verbose;
+
+    LoadScenario(LoadConfig config, boolean verbose) {
+        this.config = config;
+        this.verbose = verbose;
+    }
+
+    LoadResult run() throws InterruptedException {
+        HeadlessView view = new HeadlessView(verbose, config.timeScale);
+        Restaurant restaurant = new Restaurant(view, config.waiters, config.cooks, config.queueSize);
+        restaurant.getLogger().setLevel(verbose ? LogLevel.INFO : LogLevel.WARN);
+        restaurant.setTimeScale(config.timeScale);
+        restaurant.setClientGenerationEnabled(false);
+        restaurant.setMaxTotalOrders(Integer.MAX_VALUE);
+        restaurant.setMaxOrdersPerWaiter(Integer.MAX_VALUE);
+
+        System.gc();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+        resetHeapPeak();
+
+        restaurant.start();
+
+        long intervalNanos = (long) (1_000_000_000L / (config.ratePerSec * config.timeScale));
+        long start = System.nanoTime();
+        long measureFrom = start + config.realNanos(config.warmupSec);
+        long end = start + config.realNanos(config.durationSec);
+        view.setWindow(measureFrom, end);
+
+        long offered = 0;
+        long measured = 0;
+        long acceptedMeasured = 0;
+        //столы идут мимо замера задержки по блюдам: их меряет время обслуживания стола
+        double ticketShare = restaurant.getTicketShare();
+        long ticketsOffered = 0;
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) break;
+
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            if (ticketShare > 0 && ThreadLocalRandom.current().nextDouble() < ticketShare) {
+                restaurant.addManualTicket(Ticket.createRandomTicket(CLIENT_NAMES[(int) (i % CLIENT_NAMES.length)]));
+                ticketsOffered++;
+                continue;
+            }
+
+            Order order = Order.createRandomOrder(CLIENT_NAMES[(int) (i % CLIENT_NAMES.length)]);
+            boolean inWindow = intended >= measureFrom;
+            if (inWindow) {
+                view.expect(order, intended);
+                measured++;
+            }
+            offered++;
+
+            if (restaurant.addManualOrder(order)) {
+                if (inWindow) acceptedMeasured++;
+            } else if (inWindow) {
+                view.forget(order);
+            }
+        }
+
+        //даем доделать принятые заказы
+        long drainDeadline = System.nanoTime() + config.realNanos(config.drainSec);
+        while ((view.getPending() > 0 || restaurant.getOpenTickets() > 0) && System.nanoTime() < drainDeadline) {
+            Thread.sleep(20);
+        }
+        int incomplete = view.getPending();
+        int rejected = restaurant.getRejectedOrders();
+        int delivered = restaurant.getDeliveredOrders();
+        Restaurant.DeliveryMode deliveryMode = restaurant.getDeliveryMode();
+        HistogramSnapshot handoff = restaurant.getLatencyStats().getDeliveryModeSnapshot(deliveryMode);
+        HistogramSnapshot tableTurn = restaurant.getLatencyStats().getTableTurnSnapshot();
+        int ticketsServed = restaurant.getServedTickets();
+        long arrivalsDropped = 0;
+        for (OrderPipeline.StageState stage : restaurant.getPipelineStages()) {
+            arrivalsDropped += stage.getDropped();
+        }
+
+        restaurant.stop();
+        restaurant.getJournal().close();
+
+        double windowSec = config.durationSec - config.warmupSec;
+        HistogramSnapshot latency = view.getLatency();
+        Runtime runtime = Runtime.getRuntime();
+
+        return LoadResult.of(config, Runtime.getRuntime().availableProcessors())
+                .put("offered", offered)
+                .put("measured", measured)
+                .put("accepted", acceptedMeasured)
+                .put("rejected", rejected)
+                .put("delivered", delivered)
+                .put("incomplete", incomplete)
+                .put("offeredPerSec", measured / windowSec)
+                .put("throughputPerSec", view.getDeliveredInWindow() / windowSec)
+                .put("latencyP50Ms", latency.getValueAtPercentile(50) / 1000.0)
+                .put("latencyP90Ms", latency.getValueAtPercentile(90) / 1000.0)
+                .put("latencyP99Ms", latency.getValueAtPercentile(99) / 1000.0)
+                .put("latencyP999Ms", latency.getValueAtPercentile(99.9) / 1000.0)
+                .put("latencyMaxMs", latency.getMax() / 1000.0)
+                .put("latencyMeanMs", latency.getMean() / 1000.0)
+                .put("deliveryMode", deliveryMode.name())
+                .put("readyToDeliveredP50Ms", handoff.getValueAtPercentile(50) * config.timeScale / 1000.0)
+                .put("readyToDeliveredP99Ms", handoff.getValueAtPercentile(99) * config.timeScale / 1000.0)
+                .put("kitchenQueue", restaurant.getKitchenBackend().name())
+                .put("kitchenWait", restaurant.getKitchenWaitStrategy().name())
+                .put("pipeline", restaurant.getPipelineMode().name())
+                .put("pipelineDropped", arrivalsDropped)
+                .put("ticketShare", ticketShare)
+                .put("ticketsOffered", ticketsOffered)
+                .put("ticketsServed", ticketsServed)
+                .put("tableTurnP50Ms", tableTurn.getValueAtPercentile(50) * config.timeScale / 1000.0)
+                .put("tableTurnP99Ms", tableTurn.getValueAtPercentile(99) * config.timeScale / 1000.0)
+                .put("heapUsedBytes", runtime.totalMemory() - runtime.freeMemory())
+                .put("heapPeakBytes", heapPeak())
+                .put("gcCount", gcCount() - gcCountBefore)
+                .put("gcTimeMs", gcTimeMillis() - gcTimeBefore);
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long heapPeak() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,350 @@
+package log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//асинхронный бинарный журнал: потоки ресторана пишут в кольцевой буфер, отдельный поток сбрасывает его в файлы
+public class EventJournal {
+    //заголовок записи: длина записи, время, уровень, категория, длина текста
+    private static final int HEADER_BYTES = 4 + 8 + 1 + 1 + 4;
+    private static final int MAX_MESSAGE_BYTES = 16 * 1024;
+    private static final int BATCH_SIZE = 1024;
+    private static final DateTimeFormatter SHIFT_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final EventRingBuffer ring;
+    private final Path directory;
+    private final boolean compress;
+    private final long maxFileBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private final Object fileLock = new Object();
+    private final List<Path> shiftFiles = new ArrayList<>();
+    private String shiftName;
+    private int filePart;
+    private FileChannel fileChannel;
+    private WritableByteChannel out;
+    private long bytesInFile;
+    //ошибка записи в этой смене: дальше события смены не пишутся, выгрузка помечается неполной
+    private volatile String failure;
+    private volatile long lostAfterFailure;
+    private volatile Consumer<String> failureListener;
+    private boolean closed;
+
+    private volatile long writtenSequence;
+    private volatile boolean running;
+    private Thread writerThread;
+    private Thread shutdownHook;
+
+    public EventJournal() {
+        this(Paths.get(System.getProperty("restaurant.journal.dir",
+                        Paths.get(System.getProperty("java.io.tmpdir"), "restaurant-journal").toString())),
+                Boolean.getBoolean("restaurant.journal.compress"),
+                Long.getLong("restaurant.journal.maxFileBytes", 4L * 1024 * 1024),
+                Integer.getInteger("restaurant.journal.capacity", 16384));
+    }
+
+    public EventJournal(Path directory, boolean compress, long maxFileBytes, int capacity) {
+        this.ring = new EventRingBuffer(capacity);
+        this.directory = directory;
+        this.compress = compress;
+        this.maxFileBytes = maxFileBytes;
+        this.shiftName = newShiftName();
+    }
+
+    public synchronized void start() {
+        if (running || closed) return;
+        running = true;
+        writerThread = new Thread(this::writeLoop, "restaurant-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        shutdownHook = new Thread(this::close, "restaurant-journal-close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    //сообщение об ошибке записи; вызывается из потока журнала
+    public void setFailureListener(Consumer<String> listener) {
+        this.failureListener = listener;
+    }
+
+    //null - смена пишется без потерь
+    public String getFailure() { return failure; }
+
+    public long getLostAfterFailure() { return lostAfterFailure; }
+
+    public boolean publish(LogLevel level, LogCategory category, String message) {
+        return ring.publish(System.currentTimeMillis(), level, category, message);
+    }
+
+    //новая смена пишется в новую серию файлов и заново пробует писать после ошибки
+    public void startShift() {
+        flush();
+        synchronized (fileLock) {
+            closeFile();
+            shiftFiles.clear();
+            shiftName = newShiftName();
+            filePart = 0;
+            failure = null;
+            lostAfterFailure = 0;
+        }
+    }
+
+    //ждем, пока писатель сбросит все опубликованные к этому моменту события
+    public void flush() {
+        long target = ring.getClaimedSequence();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (running && writtenSequence < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    //дожидается писателя: после возврата новых частей файла не появится, текущая закрыта целиком
+    public void close() {
+        Thread writer;
+        Thread hook;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            writer = writerThread;
+            hook = shutdownHook;
+            shutdownHook = null;
+        }
+        flush();
+        running = false;
+        if (writer != null && writer != Thread.currentThread()) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (fileLock) {
+            //то, что успели опубликовать после остановки писателя
+            ring.drain(this::encode, Integer.MAX_VALUE);
+            closeFile();
+        }
+        if (hook != null && hook != Thread.currentThread()) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                //JVM уже завершается, хук снять нельзя
+            }
+        }
+    }
+
+    //потоковая выгрузка всей текущей смены в текстовый файл; возвращает число записей.
+    //если запись смены прерывалась, последней строкой файла идет пометка о неполном журнале (см. getFailure)
+    public long exportShift(Path target) throws IOException {
+        flush();
+        List<Path> files;
+        synchronized (fileLock) {
+            //закрываем текущий файл, чтобы сжатый поток был завершен и читался целиком
+            closeFile();
+            files = new ArrayList<>(shiftFiles);
+        }
+
+        long records = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            for (Path file : files) {
+                try (DataInputStream input = new DataInputStream(openForRead(file))) {
+                    records += copyRecords(input, writer);
+                }
+            }
+            String reason = failure;
+            if (reason != null) {
+                writer.write("[!] Журнал смены неполный: " + reason + ", не записано событий: " + lostAfterFailure);
+                writer.newLine();
+            }
+        }
+        return records;
+    }
+
+    private long copyRecords(DataInputStream input, BufferedWriter writer) throws IOException {
+        long records = 0;
+        byte[] text = new byte[MAX_MESSAGE_BYTES];
+        while (true) {
+            try {
+                input.readInt();
+            } catch (EOFException e) {
+                return records;
+            }
+            long timestamp = input.readLong();
+            input.readByte();
+            input.readByte();
+            int length = input.readInt();
+            input.readFully(text, 0, length);
+
+            String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault())
+                    .format(TIME_FORMAT);
+            writer.write("[" + time + "] ");
+            writer.write(new String(text, 0, length, StandardCharsets.UTF_8));
+            writer.newLine();
+            records++;
+        }
+    }
+
+    private InputStream openForRead(Path file) throws IOException {
+        InputStream raw = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        return file.toString().endsWith(".gz") ? new GZIPInputStream(raw, 64 * 1024) : raw;
+    }
+
+    private void writeLoop() {
+        while (running) {
+            int drained;
+            synchronized (fileLock) {
+                if (!running) break;
+                drained = ring.drain(this::encode, BATCH_SIZE);
+                long lost = ring.takeDropped();
+                if (lost > 0) {
+                    encode(System.currentTimeMillis(), (byte) LogLevel.WARN.ordinal(),
+                            (byte) LogCategory.SYSTEM.ordinal(), "Журнал переполнен, потеряно событий: " + lost);
+                }
+                writeBuffer();
+                writtenSequence = ring.getConsumedSequence();
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        }
+    }
+
+    private void encode(long timestamp, byte level, byte category, String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(text.length, MAX_MESSAGE_BYTES);
+        int recordBytes = HEADER_BYTES + length;
+
+        if (buffer.remaining() < recordBytes) {
+            writeBuffer();
+        }
+
+        buffer.putInt(recordBytes);
+        buffer.putLong(timestamp);
+        buffer.put(level);
+        buffer.put(category);
+        buffer.putInt(length);
+        buffer.put(text, 0, length);
+    }
+
+    private void writeBuffer() {
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        boolean rotate = false;
+        String error = null;
+        try {
+            if (failure == null) {
+                if (out == null) {
+                    openFile();
+                }
+                bytesInFile += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                rotate = bytesInFile >= maxFileBytes;
+            } else {
+                lostAfterFailure += countRecords(buffer);
+            }
+        } catch (IOException e) {
+            error = "ошибка записи в " + directory + ": " + e.getMessage();
+            lostAfterFailure += countRecords(buffer);
+        } finally {
+            buffer.clear();
+        }
+
+        if (error != null) {
+            fail(error);
+        }
+
+        if (rotate) {
+            closeFile();
+        }
+    }
+
+    //записи буфера, которые не попали на диск; при ошибке посреди записи буфер считается потерянным целиком
+    private static long countRecords(ByteBuffer data) {
+        long records = 0;
+        int pos = 0;
+        while (pos + 4 <= data.limit()) {
+            int length = data.getInt(pos);
+            if (length <= 0) break;
+            pos += length;
+            records++;
+        }
+        return records;
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(directory);
+        filePart++;
+        Path file = directory.resolve(String.format("%s-%03d.evl%s", shiftName, filePart, compress ? ".gz" : ""));
+        fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        out = compress
+                ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), 64 * 1024))
+                : fileChannel;
+        bytesInFile = 0;
+        shiftFiles.add(file);
+    }
+
+    //ошибка закрытия - та же поломка журнала, что и ошибка записи: хвост части (у сжатой - конец gzip) мог не попасть на диск
+    private void closeFile() {
+        writeBuffer();
+        if (out == null) return;
+        String error = null;
+        try {
+            out.close();
+        } catch (IOException e) {
+            error = "ошибка закрытия файла в " + directory + ": " + e.getMessage();
+        }
+        //канал закрываем и после ошибки потока, иначе файл останется открытым
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            if (error == null) error = "ошибка закрытия файла в " + directory + ": " + e.getMessage();
+        }
+        out = null;
+        fileChannel = null;
+        if (error != null) {
+            fail(error);
+        }
+    }
+
+    //первая ошибка диска за смену: дальше события смены только считаются потерянными
+    private void fail(String error) {
+        if (failure != null) return;
+        failure = error;
+        Consumer<String> listener = failureListener;
+        if (listener != null) {
+            listener.accept("Журнал смены перестал писаться на диск (" + error + "), события смены дальше теряются");
+        }
+    }
+
+    private static String newShiftName() {
+        return "shift-" + LocalDateTime.now().format(SHIFT_FORMAT);
+    }
+}
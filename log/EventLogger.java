@@ -0,0 +1,201 @@
+package log;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class EventLogger {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Consumer<String> sink;
+    private final RateLimiter[] limiters;
+    private volatile EventJournal journal;
+
+    private volatile int minLevel;
+    private volatile int categoryMask;
+    private volatile int maxPerSecond;
+
+    public EventLogger(Consumer<String> sink) {
+        this.sink = sink;
+        this.limiters = new RateLimiter[LogCategory.values().length];
+        for (int i = 0; i < limiters.length; i++) {
+            limiters[i] = new RateLimiter();
+        }
+
+        setLevel(parseLevel(System.getProperty("restaurant.log.level"), LogLevel.INFO));
+        setCategories(parseCategories(System.getProperty("restaurant.log.categories")));
+        setMaxPerSecond(Integer.getInteger("restaurant.log.rate", 100));
+    }
+
+    //быстрая проверка без построения строки
+    public boolean isEnabled(LogLevel level, LogCategory category) {
+        return level.ordinal() >= minLevel && (categoryMask & (1 << category.ordinal())) != 0;
+    }
+
+    public void debug(LogCategory category, Supplier<String> message) {
+        log(LogLevel.DEBUG, category, message);
+    }
+
+    public void info(LogCategory category, Supplier<String> message) {
+        log(LogLevel.INFO, category, message);
+    }
+
+    public void info(LogCategory category, String message) {
+        if (isEnabled(LogLevel.INFO, category)) {
+            emit(LogLevel.INFO, category, message);
+        }
+    }
+
+    public void warn(LogCategory category, Supplier<String> message) {
+        log(LogLevel.WARN, category, message);
+    }
+
+    public void warn(LogCategory category, String message) {
+        if (isEnabled(LogLevel.WARN, category)) {
+            emit(LogLevel.WARN, category, message);
+        }
+    }
+
+    public void error(LogCategory category, Supplier<String> message) {
+        log(LogLevel.ERROR, category, message);
+    }
+
+    public void log(LogLevel level, LogCategory category, Supplier<String> message) {
+        if (isEnabled(level, category)) {
+            emit(level, category, message.get());
+        }
+    }
+
+    private void emit(LogLevel level, LogCategory category, String message) {
+        //предупреждения и ошибки не сэмплируются
+        if (category.isSampled() && level.ordinal() < LogLevel.WARN.ordinal()) {
+            RateLimiter limiter = limiters[category.ordinal()];
+            int suppressed = limiter.rollWindow(System.nanoTime());
+            if (suppressed > 0) {
+                emitSummary(category, suppressed);
+            }
+            if (!limiter.tryAcquire(maxPerSecond)) {
+                return;
+            }
+        }
+        sink.accept(message);
+
+        EventJournal target = journal;
+        if (target != null) {
+            target.publish(level, category, message);
+        }
+    }
+
+    //сбрасываем накопленные счетчики подавленных сообщений, например при завершении смены
+    public void flushSuppressed() {
+        for (LogCategory category : LogCategory.values()) {
+            int suppressed = limiters[category.ordinal()].drainSuppressed();
+            if (suppressed > 0) {
+                emitSummary(category, suppressed);
+            }
+        }
+    }
+
+    private void emitSummary(LogCategory category, int suppressed) {
+        String summary = "[" + category.getDisplayName() + "] подавлено сообщений из-за нагрузки: " + suppressed;
+        sink.accept(summary);
+
+        EventJournal target = journal;
+        if (target != null) {
+            target.publish(LogLevel.WARN, category, summary);
+        }
+    }
+
+    public void setJournal(EventJournal journal) {
+        this.journal = journal;
+        if (journal != null) {
+            journal.setFailureListener(message -> emit(LogLevel.ERROR, LogCategory.SYSTEM, message));
+        }
+    }
+
+    public void setLevel(LogLevel level) {
+        this.minLevel = level.ordinal();
+    }
+
+    public LogLevel getLevel() {
+        return LogLevel.values()[minLevel];
+    }
+
+    public void setCategories(Set<LogCategory> categories) {
+        int mask = 0;
+        for (LogCategory category : categories) {
+            mask |= 1 << category.ordinal();
+        }
+        this.categoryMask = mask;
+    }
+
+    public Set<LogCategory> getCategories() {
+        Set<LogCategory> result = EnumSet.noneOf(LogCategory.class);
+        for (LogCategory category : LogCategory.values()) {
+            if ((categoryMask & (1 << category.ordinal())) != 0) {
+                result.add(category);
+            }
+        }
+        return result;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = Math.max(1, maxPerSecond);
+    }
+
+    public int getMaxPerSecond() { return maxPerSecond; }
+
+    private static LogLevel parseLevel(String value, LogLevel defaultLevel) {
+        if (value == null || value.isBlank()) return defaultLevel;
+        try {
+            return LogLevel.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+
+    private static Set<LogCategory> parseCategories(String value) {
+        if (value == null || value.isBlank()) return EnumSet.allOf(LogCategory.class);
+
+        Set<LogCategory> result = EnumSet.of(LogCategory.SYSTEM);
+        for (String name : value.split(",")) {
+            try {
+                result.add(LogCategory.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return result;
+    }
+
+    //окно в одну секунду: счетчик пропущенных и подавленных сообщений
+    private static class RateLimiter {
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+        private final AtomicInteger passed = new AtomicInteger();
+        private final AtomicInteger suppressed = new AtomicInteger();
+
+        int rollWindow(long now) {
+            long start = windowStart.get();
+            if (now - start < WINDOW_NANOS || !windowStart.compareAndSet(start, now)) {
+                return 0;
+            }
+            passed.set(0);
+            return suppressed.getAndSet(0);
+        }
+
+        boolean tryAcquire(int limit) {
+            if (passed.incrementAndGet() <= limit) {
+                return true;
+            }
+            suppressed.incrementAndGet();
+            return false;
+        }
+
+        int drainSuppressed() {
+            return suppressed.getAndSet(0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//кольцевой буфер без блокировок: много писателей (потоки ресторана), один читатель (поток журнала)
+class EventRingBuffer {
+    interface Handler {
+        void onEvent(long timestamp, byte level, byte category, String message);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] levels;
+    private final byte[] categories;
+    private final String[] messages;
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumedSequence;
+
+    EventRingBuffer(int requestedCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.levels = new byte[size];
+        this.categories = new byte[size];
+        this.messages = new String[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    //при переполнении событие отбрасывается, поток ресторана никогда не ждет
+    boolean publish(long timestamp, LogLevel level, LogCategory category, String message) {
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - consumedSequence >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        timestamps[index] = timestamp;
+        levels[index] = (byte) level.ordinal();
+        categories[index] = (byte) category.ordinal();
+        messages[index] = message;
+        published.set(index, sequence);
+        return true;
+    }
+
+    int drain(Handler handler, int maxEvents) {
+        long next = consumedSequence;
+        int count = 0;
+        while (count < maxEvents) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                break;
+            }
+            handler.onEvent(timestamps[index], levels[index], categories[index], messages[index]);
+            messages[index] = null;
+            next++;
+            count++;
+        }
+        consumedSequence = next;
+        return count;
+    }
+
+    long getClaimedSequence() { return claimSequence.get(); }
+    long getConsumedSequence() { return consumedSequence; }
+
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
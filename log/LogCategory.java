@@ -0,0 +1,22 @@
+package log;
+
+//категории журнала; для sampled-категорий при перегрузке включается ограничение частоты
+public enum LogCategory {
+    SYSTEM("Система", false),
+    CLIENT("Клиенты", true),
+    WAITER("Официанты", true),
+    COOK("Повара", true),
+    KITCHEN("Очередь кухни", true),
+    DELIVERY("Доставка", true);
+
+    private final String displayName;
+    private final boolean sampled;
+
+    LogCategory(String displayName, boolean sampled) {
+        this.displayName = displayName;
+        this.sampled = sampled;
+    }
+
+    public String getDisplayName() { return displayName; }
+    public boolean isSampled() { return sampled; }
+}
@@ -0,0 +1,125 @@
+package metrics;
+
+import model.Order;
+import model.Restaurant;
+import model.Waiter;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+//прогноз по теории очередей для текущего состава и фактические показатели смены.
+//кухня - c поваров с общим временем готовки по смеси категорий; официанты - прием заказа фиксированной длительности
+public final class CapacityPlan {
+    private static final int MAX_STAFF = 50;
+
+    private final double predictedArrivalRate;
+    private final CapacityPlanner.Prediction kitchenMmc;
+    private final CapacityPlanner.Prediction kitchenMgc;
+    private final CapacityPlanner.Prediction waitersMmc;
+    private final CapacityPlanner.Prediction waitersMgc;
+    private final double acceptanceTime;
+    private final double targetP95Wait;
+    private final int recommendedCooks;
+    private final int recommendedWaiters;
+
+    private final double measuredArrivalRate;
+    private final double measuredKitchenUtilization;
+    private final double measuredWaiterUtilization;
+    private final double measuredQueueLength;
+    private final double measuredMeanWait;
+    private final double measuredP95Wait;
+    private final long measuredOrders;
+
+    private CapacityPlan(Restaurant restaurant, double measuredQueueLength, double targetP95Wait) {
+        double scale = restaurant.getTimeScale();
+        int cooks = restaurant.getCooks().size();
+        int waiters = restaurant.getWaiters().size();
+        LatencyStats stats = restaurant.getLatencyStats();
+
+        //смесь категорий: по факту, когда заказов достаточно, иначе равномерная, как в Order.createRandomOrder
+        Map<Order.DishCategory, Long> mix = new EnumMap<>(Order.DishCategory.class);
+        long mixTotal = 0;
+        for (Order.DishCategory category : Order.DishCategory.values()) {
+            long count = stats.getCategorySnapshot(category, LatencyStats.Stage.TOTAL).getCount();
+            mix.put(category, count);
+            mixTotal += count;
+        }
+        boolean uniform = mixTotal < 20;
+
+        double meanService = 0;
+        double secondMoment = 0;
+        for (Order.DishCategory category : Order.DishCategory.values()) {
+            double share = uniform ? 1.0 / Order.DishCategory.values().length : (double) mix.get(category) / mixTotal;
+            double seconds = category.getPreparationTime() / 1000.0 / scale;
+            meanService += share * seconds;
+            secondMoment += share * seconds * seconds;
+        }
+        double serviceScv = secondMoment / (meanService * meanService) - 1;
+
+        this.targetP95Wait = targetP95Wait;
+        this.predictedArrivalRate = 1000.0 * scale / restaurant.getLoadMode().getMeanDelay();
+        this.kitchenMmc = CapacityPlanner.mmc(cooks, predictedArrivalRate, meanService);
+        this.kitchenMgc = CapacityPlanner.mgc(cooks, predictedArrivalRate, meanService, serviceScv);
+
+        //прием заказа - фиксированная пауза, вариации нет
+        this.acceptanceTime = Waiter.getOrderAcceptanceTime() / 1000.0 / scale;
+        this.waitersMmc = CapacityPlanner.mmc(waiters, predictedArrivalRate, acceptanceTime);
+        this.waitersMgc = CapacityPlanner.mgc(waiters, predictedArrivalRate, acceptanceTime, 0);
+
+        this.recommendedCooks = CapacityPlanner.minServers(predictedArrivalRate, meanService, serviceScv, targetP95Wait, MAX_STAFF);
+        this.recommendedWaiters = CapacityPlanner.minServers(predictedArrivalRate, acceptanceTime, 0, targetP95Wait, MAX_STAFF);
+
+        double elapsed = restaurant.getShiftStartTime() > 0
+                ? (System.currentTimeMillis() - restaurant.getShiftStartTime()) / 1000.0 : 0;
+        long accepted = 0;
+        for (Waiter waiter : restaurant.getWaiters()) {
+            accepted += waiter.getOrdersAccepted();
+        }
+        long cookingMicros = stats.getOverallSnapshot(LatencyStats.Stage.COOKING).getSum();
+        HistogramSnapshot waiting = stats.getOverallSnapshot(LatencyStats.Stage.WAITING);
+
+        this.measuredArrivalRate = elapsed > 0 ? restaurant.getTotalOrders() / elapsed : Double.NaN;
+        this.measuredKitchenUtilization = elapsed > 0 ? cookingMicros / 1_000_000.0 / (elapsed * cooks) : Double.NaN;
+        this.measuredWaiterUtilization = elapsed > 0 ? accepted * acceptanceTime / (elapsed * waiters) : Double.NaN;
+        this.measuredQueueLength = measuredQueueLength;
+        this.measuredOrders = waiting.getCount();
+        this.measuredMeanWait = waiting.getCount() > 0 ? waiting.getMean() / 1_000_000.0 : Double.NaN;
+        this.measuredP95Wait = waiting.getCount() > 0 ? waiting.getValueAtPercentile(95) / 1_000_000.0 : Double.NaN;
+    }
+
+    //measuredQueueLength - средняя длина очереди кухни по замерам; targetP95Wait в секундах
+    public static CapacityPlan of(Restaurant restaurant, double measuredQueueLength, double targetP95Wait) {
+        return new CapacityPlan(restaurant, measuredQueueLength, targetP95Wait);
+    }
+
+    public double getPredictedArrivalRate() { return predictedArrivalRate; }
+    public CapacityPlanner.Prediction getKitchenMmc() { return kitchenMmc; }
+    public CapacityPlanner.Prediction getKitchenMgc() { return kitchenMgc; }
+    public CapacityPlanner.Prediction getWaitersMmc() { return waitersMmc; }
+    public CapacityPlanner.Prediction getWaitersMgc() { return waitersMgc; }
+    public double getTargetP95Wait() { return targetP95Wait; }
+    public int getRecommendedCooks() { return recommendedCooks; }
+    public int getRecommendedWaiters() { return recommendedWaiters; }
+
+    //этап "Ожидание" (от заказа до начала готовки) = очередь к официанту + прием + очередь кухни
+    public double getPredictedMeanWait(boolean generalService) {
+        CapacityPlanner.Prediction waiters = generalService ? waitersMgc : waitersMmc;
+        CapacityPlanner.Prediction kitchen = generalService ? kitchenMgc : kitchenMmc;
+        return waiters.getMeanWait() + acceptanceTime + kitchen.getMeanWait();
+    }
+
+    //сумма p95 этапов - оценка сверху для p95 суммы
+    public double getPredictedP95Wait(boolean generalService) {
+        CapacityPlanner.Prediction waiters = generalService ? waitersMgc : waitersMmc;
+        CapacityPlanner.Prediction kitchen = generalService ? kitchenMgc : kitchenMmc;
+        return waiters.getP95Wait() + acceptanceTime + kitchen.getP95Wait();
+    }
+
+    public double getMeasuredArrivalRate() { return measuredArrivalRate; }
+    public double getMeasuredKitchenUtilization() { return measuredKitchenUtilization; }
+    public double getMeasuredWaiterUtilization() { return measuredWaiterUtilization; }
+    public double getMeasuredQueueLength() { return measuredQueueLength; }
+    public double getMeasuredMeanWait() { return measuredMeanWait; }
+    public double getMeasuredP95Wait() { return measuredP95Wait; }
+    public long getMeasuredOrders() { return measuredOrders; }
+}
@@ -0,0 +1,89 @@
+package metrics;
+
+//формулы теории очередей для c одинаковых обслуживающих (поваров или официантов); время в секундах
+public final class CapacityPlanner {
+    private CapacityPlanner() {
+    }
+
+    public static final class Prediction {
+        private final int servers;
+        private final double arrivalRate;
+        private final double meanService;
+        private final double utilization;
+        private final double queueLength;
+        private final double meanWait;
+        private final double p95Wait;
+
+        Prediction(int servers, double arrivalRate, double meanService, double utilization,
+                   double queueLength, double meanWait, double p95Wait) {
+            this.servers = servers;
+            this.arrivalRate = arrivalRate;
+            this.meanService = meanService;
+            this.utilization = utilization;
+            this.queueLength = queueLength;
+            this.meanWait = meanWait;
+            this.p95Wait = p95Wait;
+        }
+
+        public int getServers() { return servers; }
+        public double getArrivalRate() { return arrivalRate; }
+        public double getMeanService() { return meanService; }
+        public double getUtilization() { return utilization; }
+        //для перегруженной системы очередь и ожидание бесконечны
+        public double getQueueLength() { return queueLength; }
+        public double getMeanWait() { return meanWait; }
+        public double getP95Wait() { return p95Wait; }
+        public boolean isStable() { return utilization < 1; }
+    }
+
+    //вероятность ожидания по формуле Эрланга C; offeredLoad = lambda * E[S]
+    static double erlangC(int servers, double offeredLoad) {
+        double rho = offeredLoad / servers;
+        if (rho >= 1) return 1;
+
+        //рекуррентно через Эрланг B, без факториалов
+        double erlangB = 1;
+        for (int k = 1; k <= servers; k++) {
+            erlangB = offeredLoad * erlangB / (k + offeredLoad * erlangB);
+        }
+        return erlangB / (1 - rho * (1 - erlangB));
+    }
+
+    public static Prediction mmc(int servers, double arrivalRate, double meanService) {
+        return mgc(servers, arrivalRate, meanService, 1);
+    }
+
+    //M/G/c по приближению Аллена-Кунина: ожидание M/M/c, умноженное на (1 + Cs^2) / 2,
+    //где Cs^2 - квадрат коэффициента вариации времени обслуживания
+    public static Prediction mgc(int servers, double arrivalRate, double meanService, double serviceScv) {
+        double offeredLoad = arrivalRate * meanService;
+        double utilization = offeredLoad / servers;
+        if (utilization >= 1) {
+            return new Prediction(servers, arrivalRate, meanService, utilization,
+                    Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+
+        double probabilityOfWait = erlangC(servers, offeredLoad);
+        double drainRate = servers / meanService - arrivalRate;
+        double variability = (1 + serviceScv) / 2;
+
+        double meanWait = variability * probabilityOfWait / drainRate;
+        //хвост ожидания экспоненциальный: P(W > t) = C * exp(-(c*mu - lambda) * t / k)
+        double p95Wait = probabilityOfWait <= 0.05 ? 0 : variability * Math.log(probabilityOfWait / 0.05) / drainRate;
+
+        return new Prediction(servers, arrivalRate, meanService, utilization,
+                arrivalRate * meanWait, meanWait, p95Wait);
+    }
+
+    //минимальное число обслуживающих, при котором p95 ожидания не превышает цель; -1, если не нашли до maxServers
+    public static int minServers(double arrivalRate, double meanService, double serviceScv,
+                                 double targetP95Wait, int maxServers) {
+        int start = Math.max(1, (int) Math.floor(arrivalRate * meanService) + 1);
+        for (int servers = start; servers <= maxServers; servers++) {
+            if (mgc(servers, arrivalRate, meanService, serviceScv).getP95Wait() <= targetP95Wait) {
+                return servers;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,39 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import model.Order;
+
+@Name("restaurant.CookOrder")
+@Label("Приготовление заказа")
+@Category({"Ресторан", "Заказы"})
+public class CookOrderEvent extends jdk.jfr.Event {
+    @Label("Заказ")
+    String orderId;
+
+    @Label("Категория")
+    String category;
+
+    @Label("Повар")
+    String cook;
+
+    @Label("Ожидание готовки")
+    @Timespan(Timespan.MILLISECONDS)
+    long waitingMillis;
+
+    @Label("Завершен")
+    boolean completed;
+
+    public void record(Order order, String cookName, boolean done) {
+        if (shouldCommit()) {
+            orderId = order.getId();
+            category = order.getDishCategory().name();
+            cook = cookName;
+            waitingMillis = order.getWaitingTime();
+            completed = done;
+            commit();
+        }
+    }
+}
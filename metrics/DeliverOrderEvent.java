@@ -0,0 +1,56 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import model.Order;
+
+//доставка клиенту; несет разбивку полного времени заказа по этапам
+@Name("restaurant.DeliverOrder")
+@Label("Доставка заказа")
+@Category({"Ресторан", "Заказы"})
+public class DeliverOrderEvent extends jdk.jfr.Event {
+    @Label("Заказ")
+    String orderId;
+
+    @Label("Категория")
+    String category;
+
+    @Label("Официант")
+    String waiter;
+
+    @Label("Ожидание готовки")
+    @Timespan(Timespan.MILLISECONDS)
+    long waitingMillis;
+
+    @Label("Готовка")
+    @Timespan(Timespan.MILLISECONDS)
+    long cookingMillis;
+
+    @Label("Выдача")
+    @Timespan(Timespan.MILLISECONDS)
+    long pickupMillis;
+
+    @Label("Доставка")
+    @Timespan(Timespan.MILLISECONDS)
+    long deliveryMillis;
+
+    @Label("Всего")
+    @Timespan(Timespan.MILLISECONDS)
+    long totalMillis;
+
+    public void record(Order order, String waiterName) {
+        if (shouldCommit()) {
+            orderId = order.getId();
+            category = order.getDishCategory().name();
+            waiter = waiterName;
+            waitingMillis = order.getWaitingTime();
+            cookingMillis = order.getCookingTime();
+            pickupMillis = order.getPickupTime();
+            deliveryMillis = order.getDeliveryTime();
+            totalMillis = order.getTotalTime();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package metrics;
+
+//неизменяемая копия гистограммы на момент чтения; значения в микросекундах
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    //сумма гистограмм с одинаковой разбивкой, например по всем категориям
+    public static HistogramSnapshot merge(Iterable<HistogramSnapshot> snapshots) {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (HistogramSnapshot snapshot : snapshots) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += snapshot.counts[i];
+            }
+            count += snapshot.count;
+            sum += snapshot.sum;
+            max = Math.max(max, snapshot.max);
+        }
+        return new HistogramSnapshot(counts, count, sum, max);
+    }
+
+    public long getCount() { return count; }
+    public long getSum() { return sum; }
+    public long getMax() { return max; }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    //percentile от 0 до 100
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.highestValueInBucket(i), max);
+            }
+        }
+        return max;
+    }
+
+    //число значений не больше заданного (с точностью до интервала гистограммы)
+    public long getCountAtOrBelow(long value) {
+        int last = LatencyHistogram.bucketIndex(Math.min(value, LatencyHistogram.MAX_VALUE));
+        long result = 0;
+        for (int i = 0; i <= last; i++) {
+            result += counts[i];
+        }
+        return result;
+    }
+
+    public long getMillisAtPercentile(double percentile) {
+        return getValueAtPercentile(percentile) / 1000;
+    }
+
+    public long getMaxMillis() {
+        return max / 1000;
+    }
+}
@@ -0,0 +1,38 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import model.Order;
+
+//повар забирает заказ; длительность - сколько повар ждал работу
+@Name("restaurant.KitchenDequeue")
+@Label("Заказ из очереди кухни")
+@Category({"Ресторан", "Заказы"})
+@Description("Повар берет заказ из очереди кухни, длительность - простой повара")
+public class KitchenDequeueEvent extends jdk.jfr.Event {
+    @Label("Заказ")
+    String orderId;
+
+    @Label("Категория")
+    String category;
+
+    @Label("Ожидание заказа")
+    @Timespan(Timespan.MILLISECONDS)
+    long orderAgeMillis;
+
+    @Label("Осталось в очереди")
+    int queueDepth;
+
+    public void record(Order order, int depth) {
+        if (shouldCommit()) {
+            orderId = order.getId();
+            category = order.getDishCategory().name();
+            orderAgeMillis = order.getTotalTime();
+            queueDepth = depth;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import model.Order;
+
+//официант ставит заказ в очередь кухни; длительность включает ожидание свободного места
+@Name("restaurant.KitchenEnqueue")
+@Label("Заказ в очередь кухни")
+@Category({"Ресторан", "Заказы"})
+@Description("Постановка заказа в очередь кухни, включая ожидание при переполнении")
+public class KitchenEnqueueEvent extends jdk.jfr.Event {
+    @Label("Заказ")
+    String orderId;
+
+    @Label("Категория")
+    String category;
+
+    @Label("Официант")
+    String waiter;
+
+    @Label("Принят")
+    boolean added;
+
+    @Label("Глубина очереди")
+    int queueDepth;
+
+    public void record(Order order, String waiterName, boolean accepted, int depth) {
+        if (shouldCommit()) {
+            orderId = order.getId();
+            category = order.getDishCategory().name();
+            waiter = waiterName;
+            added = accepted;
+            queueDepth = depth;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import model.Restaurant;
+
+//периодический срез очередей; пишется только во время записи JFR
+@Name("restaurant.KitchenQueue")
+@Label("Очереди ресторана")
+@Category({"Ресторан", "Очереди"})
+@Period("1 s")
+@StackTrace(false)
+public class KitchenQueueEvent extends jdk.jfr.Event {
+    private static volatile Restaurant source;
+
+    static {
+        FlightRecorder.addPeriodicEvent(KitchenQueueEvent.class, KitchenQueueEvent::emit);
+    }
+
+    @Label("Глубина очереди кухни")
+    int queueDepth;
+
+    @Label("Вместимость очереди кухни")
+    int queueCapacity;
+
+    @Label("Ждут кухню")
+    int waitingOrders;
+
+    @Label("Готовятся")
+    int cookingOrders;
+
+    @Label("Ждут официанта")
+    int readyOrders;
+
+    public static void bind(Restaurant restaurant) {
+        source = restaurant;
+    }
+
+    private static void emit() {
+        Restaurant restaurant = source;
+        if (restaurant == null) return;
+
+        KitchenQueueEvent event = new KitchenQueueEvent();
+        event.queueDepth = restaurant.getQueueSize();
+        event.queueCapacity = restaurant.getMaxQueueSize();
+        event.waitingOrders = restaurant.getWaitingOrders();
+        event.cookingOrders = restaurant.getCookingOrders();
+        event.readyOrders = restaurant.getReadyOrdersCount();
+        event.commit();
+    }
+}
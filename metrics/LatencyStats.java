@@ -0,0 +1,138 @@
+package metrics;
+
+import model.Order;
+import model.Restaurant;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+//гистограммы задержек доставленных заказов по категориям блюд и по официантам
+public class LatencyStats {
+    public enum Stage {
+        WAITING("Ожидание"),
+        COOKING("Готовка"),
+        PICKUP("Выдача"),
+        DELIVERY("Доставка"),
+        TOTAL("Всего");
+
+        private final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() { return displayName; }
+    }
+
+    private final Map<Order.DishCategory, LatencyHistogram[]> byCategory = new EnumMap<>(Order.DishCategory.class);
+    private final Map<String, LatencyHistogram[]> byWaiter = new ConcurrentHashMap<>();
+    //от готовности до доставки по режиму выдачи, чтобы сравнить своего официанта и общую раздачу
+    private final Map<Restaurant.DeliveryMode, LatencyHistogram> byDeliveryMode = new EnumMap<>(Restaurant.DeliveryMode.class);
+    //от заказа стола до подачи последней перемены
+    private final LatencyHistogram tableTurn = new LatencyHistogram();
+
+    public LatencyStats() {
+        for (Order.DishCategory category : Order.DishCategory.values()) {
+            byCategory.put(category, newHistograms());
+        }
+        for (Restaurant.DeliveryMode mode : Restaurant.DeliveryMode.values()) {
+            byDeliveryMode.put(mode, new LatencyHistogram());
+        }
+    }
+
+    //длительности этапов по монотонным отметкам фаз заказа, в микросекундах
+    public void recordDelivered(Order order, Restaurant.DeliveryMode mode) {
+        long[] micros = new long[Stage.values().length];
+        micros[Stage.WAITING.ordinal()] = stageMicros(order, Order.Phase.CREATED, Order.Phase.COOK_START);
+        micros[Stage.COOKING.ordinal()] = stageMicros(order, Order.Phase.COOK_START, Order.Phase.READY);
+        micros[Stage.PICKUP.ordinal()] = stageMicros(order, Order.Phase.READY, Order.Phase.PICKED_UP);
+        micros[Stage.DELIVERY.ordinal()] = stageMicros(order, Order.Phase.PICKED_UP, Order.Phase.DELIVERED);
+        micros[Stage.TOTAL.ordinal()] = stageMicros(order, Order.Phase.CREATED, Order.Phase.DELIVERED);
+
+        record(byCategory.get(order.getDishCategory()), micros);
+
+        String waiter = order.getAssignedWaiter();
+        if (waiter != null) {
+            record(byWaiter.computeIfAbsent(waiter, name -> newHistograms()), micros);
+        }
+        byDeliveryMode.get(mode).record(stageMicros(order, Order.Phase.READY, Order.Phase.DELIVERED));
+    }
+
+    public void recordTableTurn(long micros) {
+        tableTurn.record(micros);
+    }
+
+    private static long stageMicros(Order order, Order.Phase from, Order.Phase to) {
+        return order.hasReached(to) ? order.getPhaseDurationNanos(from, to) / 1000 : 0;
+    }
+
+    private void record(LatencyHistogram[] histograms, long[] micros) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].record(micros[i]);
+        }
+    }
+
+    public HistogramSnapshot getCategorySnapshot(Order.DishCategory category, Stage stage) {
+        return byCategory.get(category)[stage.ordinal()].snapshot();
+    }
+
+    public HistogramSnapshot getOverallSnapshot(Stage stage) {
+        List<HistogramSnapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram[] histograms : byCategory.values()) {
+            snapshots.add(histograms[stage.ordinal()].snapshot());
+        }
+        return HistogramSnapshot.merge(snapshots);
+    }
+
+    public HistogramSnapshot getDeliveryModeSnapshot(Restaurant.DeliveryMode mode) {
+        return byDeliveryMode.get(mode).snapshot();
+    }
+
+    public HistogramSnapshot getTableTurnSnapshot() {
+        return tableTurn.snapshot();
+    }
+
+    public Map<String, HistogramSnapshot> getWaiterSnapshots(Stage stage) {
+        Map<String, HistogramSnapshot> result = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram[]> entry : byWaiter.entrySet()) {
+            result.put(entry.getKey(), entry.getValue()[stage.ordinal()].snapshot());
+        }
+        return result;
+    }
+
+    public void reset() {
+        for (LatencyHistogram[] histograms : byCategory.values()) {
+            resetAll(histograms);
+        }
+        for (LatencyHistogram[] histograms : byWaiter.values()) {
+            resetAll(histograms);
+        }
+        for (LatencyHistogram histogram : byDeliveryMode.values()) {
+            histogram.reset();
+        }
+        tableTurn.reset();
+    }
+
+    private static void resetAll(LatencyHistogram[] histograms) {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    public static String formatPercentiles(HistogramSnapshot snapshot) {
+        return "p50=" + snapshot.getMillisAtPercentile(50) + "мс, p90=" + snapshot.getMillisAtPercentile(90) +
+                "мс, p99=" + snapshot.getMillisAtPercentile(99) + "мс, max=" + snapshot.getMaxMillis() + "мс";
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+}
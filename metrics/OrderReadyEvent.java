@@ -0,0 +1,40 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import model.Order;
+
+@Name("restaurant.OrderReady")
+@Label("Заказ готов")
+@Category({"Ресторан", "Заказы"})
+public class OrderReadyEvent extends jdk.jfr.Event {
+    @Label("Заказ")
+    String orderId;
+
+    @Label("Категория")
+    String category;
+
+    @Label("Официант")
+    String waiter;
+
+    @Label("Ожидание готовки")
+    @Timespan(Timespan.MILLISECONDS)
+    long waitingMillis;
+
+    @Label("Готовка")
+    @Timespan(Timespan.MILLISECONDS)
+    long cookingMillis;
+
+    public void record(Order order, String waiterName) {
+        if (shouldCommit()) {
+            orderId = order.getId();
+            category = order.getDishCategory().name();
+            waiter = waiterName;
+            waitingMillis = order.getWaitingTime();
+            cookingMillis = order.getCookingTime();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import log.LogCategory;
+import model.Order;
+import model.OrderCounter;
+import model.OrderPipeline;
+import model.Restaurant;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+//HTTP-эндпоинт /metrics в текстовом формате Prometheus; включается свойством restaurant.metrics.port.
+//при сборе читаются согласованный срез счетчиков заказов (писатели его не ждут), размеры очередей и копии
+//гистограмм; полный срез ресторана с сотрудниками и очередями не строится. размер очереди кухни у ARRAY
+//берется под ее замком, остальные реализации отдают его без блокировки
+public class PrometheusExporter {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    //границы интервалов гистограммы в секундах
+    private static final double[] BUCKETS = {0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 20, 30, 60, 120};
+
+    private static PrometheusExporter instance;
+
+    private final HttpServer server;
+    private volatile Restaurant restaurant;
+
+    private PrometheusExporter(int port) throws IOException {
+        String host = System.getProperty("restaurant.metrics.host", InetAddress.getLoopbackAddress().getHostAddress());
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", this::handle);
+        //один поток: параллельные опросы не конкурируют между собой
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    //сервер создается один раз, новый ресторан просто подменяет источник данных
+    public static synchronized void bindIfEnabled(Restaurant restaurant) {
+        Integer port = Integer.getInteger("restaurant.metrics.port");
+        if (port == null) return;
+
+        if (instance == null) {
+            try {
+                instance = new PrometheusExporter(port);
+            } catch (IOException e) {
+                restaurant.getLogger().warn(LogCategory.SYSTEM,
+                        "Не удалось запустить сервер метрик на порту " + port + ": " + e.getMessage());
+                return;
+            }
+        }
+        instance.restaurant = restaurant;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = collect().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String collect() {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        Restaurant target = restaurant;
+        if (target != null) {
+            writeRestaurant(sb, target);
+            writeLatency(sb, target.getLatencyStats());
+            writePools(sb, target);
+            writePipeline(sb, target);
+        }
+        writeJvm(sb);
+        return sb.toString();
+    }
+
+    private static void writeRestaurant(StringBuilder sb, Restaurant r) {
+        //счетчики заказов из одного среза, чтобы состояния в сумме сходились с созданными
+        StripedCounters.Snapshot<OrderCounter> s = r.getOrderCounters();
+        header(sb, "restaurant_orders_created_total", "counter", "Заказы, созданные за смену");
+        sample(sb, "restaurant_orders_created_total", "", s.get(OrderCounter.TOTAL));
+        header(sb, "restaurant_orders_delivered_total", "counter", "Заказы, доставленные за смену");
+        sample(sb, "restaurant_orders_delivered_total", "", s.get(OrderCounter.DELIVERED));
+        header(sb, "restaurant_orders_rejected_total", "counter", "Заказы, не принятые рестораном или кухней");
+        sample(sb, "restaurant_orders_rejected_total", "", s.get(OrderCounter.REJECTED));
+
+        header(sb, "restaurant_orders", "gauge", "Заказы по текущему состоянию");
+        sample(sb, "restaurant_orders", "{state=\"waiting\"}", s.get(OrderCounter.WAITING));
+        sample(sb, "restaurant_orders", "{state=\"cooking\"}", s.get(OrderCounter.COOKING));
+        sample(sb, "restaurant_orders", "{state=\"ready\"}", s.get(OrderCounter.READY));
+        sample(sb, "restaurant_orders", "{state=\"delivering\"}", s.get(OrderCounter.DELIVERING));
+
+        header(sb, "restaurant_kitchen_queue_depth", "gauge", "Заказы в очереди кухни");
+        sample(sb, "restaurant_kitchen_queue_depth", "", r.getQueueSize());
+        header(sb, "restaurant_kitchen_queue_capacity", "gauge", "Вместимость очереди кухни");
+        sample(sb, "restaurant_kitchen_queue_capacity", "", r.getMaxQueueSize());
+
+        header(sb, "restaurant_running", "gauge", "1, если смена идет");
+        sample(sb, "restaurant_running", "", r.isRunning() ? 1 : 0);
+        header(sb, "restaurant_paused", "gauge", "1, если ресторан на паузе");
+        sample(sb, "restaurant_paused", "", r.isPaused() ? 1 : 0);
+    }
+
+    private static void writeLatency(StringBuilder sb, LatencyStats stats) {
+        String name = "restaurant_order_latency_seconds";
+        header(sb, name, "histogram", "Задержки доставленных заказов по категориям и этапам");
+        for (Order.DishCategory category : Order.DishCategory.values()) {
+            for (LatencyStats.Stage stage : LatencyStats.Stage.values()) {
+                String labels = "category=\"" + category.name().toLowerCase(Locale.ROOT) +
+                        "\",stage=\"" + stage.name().toLowerCase(Locale.ROOT) + "\"";
+                writeHistogram(sb, name, labels, stats.getCategorySnapshot(category, stage));
+            }
+        }
+
+        name = "restaurant_ready_to_delivered_seconds";
+        header(sb, name, "histogram", "От готовности до доставки по режиму выдачи");
+        for (Restaurant.DeliveryMode mode : Restaurant.DeliveryMode.values()) {
+            String labels = "mode=\"" + mode.name().toLowerCase(Locale.ROOT) + "\"";
+            writeHistogram(sb, name, labels, stats.getDeliveryModeSnapshot(mode));
+        }
+
+        name = "restaurant_table_turn_seconds";
+        header(sb, name, "histogram", "От заказа стола до подачи последней перемены");
+        writeHistogram(sb, name, "", stats.getTableTurnSnapshot());
+    }
+
+    private static void writeHistogram(StringBuilder sb, String name, String labels, HistogramSnapshot snapshot) {
+        String bucketLabels = labels.isEmpty() ? "" : labels + ",";
+        for (double bound : BUCKETS) {
+            long count = snapshot.getCountAtOrBelow((long) (bound * 1_000_000));
+            sample(sb, name + "_bucket", "{" + bucketLabels + "le=\"" + format(bound) + "\"}", count);
+        }
+        sample(sb, name + "_bucket", "{" + bucketLabels + "le=\"+Inf\"}", snapshot.getCount());
+        String seriesLabels = labels.isEmpty() ? "" : "{" + labels + "}";
+        sample(sb, name + "_sum", seriesLabels, snapshot.getSum() / 1_000_000.0);
+        sample(sb, name + "_count", seriesLabels, snapshot.getCount());
+    }
+
+    //стадии конвейера есть только в режиме FLOW
+    private static void writePipeline(StringBuilder sb, Restaurant r) {
+        List<OrderPipeline.StageState> stages = r.getPipelineStages();
+        if (stages.isEmpty()) return;
+
+        header(sb, "restaurant_pipeline_buffered", "gauge", "Заказы в буфере стадии конвейера");
+        for (OrderPipeline.StageState stage : stages) {
+            sample(sb, "restaurant_pipeline_buffered", "{stage=\"" + stage.getId() + "\"}", stage.getBuffered());
+        }
+        header(sb, "restaurant_pipeline_in_flight", "gauge", "Заказы, переданные дальше и еще не взятые в работу");
+        for (OrderPipeline.StageState stage : stages) {
+            sample(sb, "restaurant_pipeline_in_flight", "{stage=\"" + stage.getId() + "\"}", stage.getInFlight());
+        }
+        header(sb, "restaurant_pipeline_orders_total", "counter", "Заказы, прошедшие стадию конвейера");
+        for (OrderPipeline.StageState stage : stages) {
+            sample(sb, "restaurant_pipeline_orders_total", "{stage=\"" + stage.getId() + "\",outcome=\"delivered\"}",
+                    stage.getDelivered());
+            sample(sb, "restaurant_pipeline_orders_total", "{stage=\"" + stage.getId() + "\",outcome=\"dropped\"}",
+                    stage.getDropped());
+        }
+        header(sb, "restaurant_pipeline_throttled_total", "counter", "Пропущенные такты генератора клиентов");
+        sample(sb, "restaurant_pipeline_throttled_total", "", r.getPipelineThrottled());
+    }
+
+    private static void writePools(StringBuilder sb, Restaurant r) {
+        ThreadPoolExecutor[] pools = {asThreadPool(r.getCookPool()), asThreadPool(r.getWaiterPool())};
+        String[] labels = {"{pool=\"cook\"}", "{pool=\"waiter\"}"};
+
+        header(sb, "restaurant_pool_threads", "gauge", "Потоки в пуле");
+        for (int i = 0; i < pools.length; i++) {
+            if (pools[i] != null) sample(sb, "restaurant_pool_threads", labels[i], pools[i].getPoolSize());
+        }
+        header(sb, "restaurant_pool_active_threads", "gauge", "Потоки, выполняющие задачи");
+        for (int i = 0; i < pools.length; i++) {
+            if (pools[i] != null) sample(sb, "restaurant_pool_active_threads", labels[i], pools[i].getActiveCount());
+        }
+        header(sb, "restaurant_pool_queued_tasks", "gauge", "Задачи в очереди пула");
+        for (int i = 0; i < pools.length; i++) {
+            if (pools[i] != null) sample(sb, "restaurant_pool_queued_tasks", labels[i], pools[i].getQueue().size());
+        }
+        header(sb, "restaurant_pool_completed_tasks_total", "counter", "Завершенные задачи пула");
+        for (int i = 0; i < pools.length; i++) {
+            if (pools[i] != null) sample(sb, "restaurant_pool_completed_tasks_total", labels[i], pools[i].getCompletedTaskCount());
+        }
+    }
+
+    private static ThreadPoolExecutor asThreadPool(ExecutorService executor) {
+        return executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) executor : null;
+    }
+
+    private static void writeJvm(StringBuilder sb) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+
+        header(sb, "jvm_memory_used_bytes", "gauge", "Используемая память");
+        sample(sb, "jvm_memory_used_bytes", "{area=\"heap\"}", heap.getUsed());
+        sample(sb, "jvm_memory_used_bytes", "{area=\"nonheap\"}", nonHeap.getUsed());
+        header(sb, "jvm_memory_committed_bytes", "gauge", "Выделенная память");
+        sample(sb, "jvm_memory_committed_bytes", "{area=\"heap\"}", heap.getCommitted());
+        sample(sb, "jvm_memory_committed_bytes", "{area=\"nonheap\"}", nonHeap.getCommitted());
+        header(sb, "jvm_memory_max_bytes", "gauge", "Максимум памяти");
+        sample(sb, "jvm_memory_max_bytes", "{area=\"heap\"}", heap.getMax());
+
+        header(sb, "jvm_threads_live", "gauge", "Живые потоки");
+        sample(sb, "jvm_threads_live", "", ManagementFactory.getThreadMXBean().getThreadCount());
+
+        header(sb, "jvm_gc_collections_total", "counter", "Сборки мусора");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(sb, "jvm_gc_collections_total", "{gc=\"" + gc.getName() + "\"}", gc.getCollectionCount());
+        }
+        header(sb, "jvm_gc_pause_seconds_total", "counter", "Суммарное время сборок мусора");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(sb, "jvm_gc_pause_seconds_total", "{gc=\"" + gc.getName() + "\"}", gc.getCollectionTime() / 1000.0);
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, long value) {
+        sb.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append(labels).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%s", value);
+    }
+}
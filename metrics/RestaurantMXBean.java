@@ -0,0 +1,59 @@
+package metrics;
+
+import model.RestaurantSnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+public interface RestaurantMXBean {
+    int getTotalOrders();
+    int getWaitingOrders();
+    int getCookingOrders();
+    int getReadyOrders();
+    int getDeliveredOrders();
+    int getRejectedOrders();
+    int getKitchenQueueSize();
+    int getKitchenQueueCapacity();
+
+    boolean isRunning();
+    boolean isPaused();
+
+    String getLoadMode();
+    void setLoadMode(String mode);
+
+    String getDeliveryMode();
+    void setDeliveryMode(String mode);
+
+    //реализация очереди кухни задается при запуске, способ ожидания повара меняется на ходу
+    String getKitchenQueue();
+    String getKitchenWaitStrategy();
+    void setKitchenWaitStrategy(String strategy);
+
+    //режим конвейера меняется со следующей смены
+    String getPipelineMode();
+    void setPipelineMode(String mode);
+    //ключ вида "kitchen.buffered" или "arrivals.dropped"
+    Map<String, Long> getPipelineStages();
+
+    String getLogLevel();
+    void setLogLevel(String level);
+
+    List<RestaurantSnapshot.WaiterState> getWaiters();
+    List<RestaurantSnapshot.CookState> getCooks();
+
+    //ключ вида "SOUP.TOTAL.p99", "Официант-1.PICKUP.max", "READY_TO_DELIVERED.POOLED.p90" или "TABLE_TURN.p50",
+    //значения в миллисекундах
+    Map<String, Long> getLatencyPercentiles();
+
+    //выборка из архива доставленных: category - имя категории (SOUP), waiter - имя официанта, пустая строка - любые.
+    //ключи "archived", "offHeapBytes" и "TOTAL.count", "WAITING.p99" и т.д. по этапам, значения в миллисекундах
+    Map<String, Long> queryDelivered(String category, String waiter);
+
+    //снять заказ, который еще ждет повара; false - его уже готовят или нет в очереди.
+    //на RING заказ отклоняется сразу, а из очереди уходит, когда до него дойдет повар
+    boolean cancelOrder(String orderId);
+
+    void pause();
+    void resume();
+    void stop();
+}
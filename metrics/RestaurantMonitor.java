@@ -0,0 +1,213 @@
+package metrics;
+
+import log.LogLevel;
+import model.DeliveredOrderArchive;
+import model.KitchenQueues;
+import model.Order;
+import model.OrderPipeline;
+import model.Restaurant;
+import model.RestaurantSnapshot;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//MBean для наблюдения и управления рестораном через JConsole/VisualVM и другие JMX-клиенты
+public class RestaurantMonitor implements RestaurantMXBean {
+    public static final String OBJECT_NAME = "restaurant:type=Restaurant";
+
+    private final Restaurant restaurant;
+
+    private RestaurantMonitor(Restaurant restaurant) {
+        this.restaurant = restaurant;
+    }
+
+    //последний созданный ресторан заменяет предыдущую регистрацию
+    public static void register(Restaurant restaurant) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            RestaurantMonitor monitor = new RestaurantMonitor(restaurant);
+            try {
+                server.registerMBean(monitor, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(monitor, name);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public int getTotalOrders() { return restaurant.getTotalOrders(); }
+
+    @Override
+    public int getWaitingOrders() { return restaurant.getWaitingOrders(); }
+
+    @Override
+    public int getCookingOrders() { return restaurant.getCookingOrders(); }
+
+    @Override
+    public int getReadyOrders() { return restaurant.getReadyOrdersCount(); }
+
+    @Override
+    public int getDeliveredOrders() { return restaurant.getDeliveredOrders(); }
+
+    @Override
+    public int getRejectedOrders() { return restaurant.getRejectedOrders(); }
+
+    @Override
+    public int getKitchenQueueSize() { return restaurant.getQueueSize(); }
+
+    @Override
+    public int getKitchenQueueCapacity() { return restaurant.getMaxQueueSize(); }
+
+    @Override
+    public boolean isRunning() { return restaurant.isRunning(); }
+
+    @Override
+    public boolean isPaused() { return restaurant.isPaused(); }
+
+    @Override
+    public String getLoadMode() { return restaurant.getLoadMode().name(); }
+
+    @Override
+    public void setLoadMode(String mode) {
+        restaurant.setLoadMode(Restaurant.LoadMode.valueOf(mode.trim().toUpperCase()));
+    }
+
+    @Override
+    public String getDeliveryMode() { return restaurant.getDeliveryMode().name(); }
+
+    @Override
+    public void setDeliveryMode(String mode) {
+        restaurant.setDeliveryMode(Restaurant.DeliveryMode.valueOf(mode.trim().toUpperCase()));
+    }
+
+    @Override
+    public String getKitchenQueue() { return restaurant.getKitchenBackend().name(); }
+
+    @Override
+    public String getKitchenWaitStrategy() { return restaurant.getKitchenWaitStrategy().name(); }
+
+    @Override
+    public void setKitchenWaitStrategy(String strategy) {
+        restaurant.setKitchenWaitStrategy(KitchenQueues.WaitStrategy.valueOf(strategy.trim().toUpperCase()));
+    }
+
+    @Override
+    public String getPipelineMode() { return restaurant.getPipelineMode().name(); }
+
+    @Override
+    public void setPipelineMode(String mode) {
+        restaurant.setPipelineMode(Restaurant.PipelineMode.valueOf(mode.trim().toUpperCase()));
+    }
+
+    @Override
+    public Map<String, Long> getPipelineStages() {
+        Map<String, Long> result = new TreeMap<>();
+        for (OrderPipeline.StageState stage : restaurant.getPipelineStages()) {
+            result.put(stage.getId() + ".buffered", (long) stage.getBuffered());
+            result.put(stage.getId() + ".inFlight", stage.getInFlight());
+            result.put(stage.getId() + ".submitted", stage.getSubmitted());
+            result.put(stage.getId() + ".delivered", stage.getDelivered());
+            result.put(stage.getId() + ".dropped", stage.getDropped());
+        }
+        if (!result.isEmpty()) {
+            result.put("throttled", restaurant.getPipelineThrottled());
+        }
+        return result;
+    }
+
+    @Override
+    public String getLogLevel() { return restaurant.getLogger().getLevel().name(); }
+
+    @Override
+    public void setLogLevel(String level) {
+        restaurant.getLogger().setLevel(LogLevel.valueOf(level.trim().toUpperCase()));
+    }
+
+    @Override
+    public List<RestaurantSnapshot.WaiterState> getWaiters() {
+        return restaurant.getSnapshot().getWaiters();
+    }
+
+    @Override
+    public List<RestaurantSnapshot.CookState> getCooks() {
+        return restaurant.getSnapshot().getCooks();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyPercentiles() {
+        LatencyStats stats = restaurant.getLatencyStats();
+        Map<String, Long> result = new TreeMap<>();
+        for (LatencyStats.Stage stage : LatencyStats.Stage.values()) {
+            for (Order.DishCategory category : Order.DishCategory.values()) {
+                putPercentiles(result, category.name() + "." + stage.name(), stats.getCategorySnapshot(category, stage));
+            }
+            for (Map.Entry<String, HistogramSnapshot> entry : stats.getWaiterSnapshots(stage).entrySet()) {
+                putPercentiles(result, entry.getKey() + "." + stage.name(), entry.getValue());
+            }
+        }
+        for (Restaurant.DeliveryMode mode : Restaurant.DeliveryMode.values()) {
+            putPercentiles(result, "READY_TO_DELIVERED." + mode.name(), stats.getDeliveryModeSnapshot(mode));
+        }
+        putPercentiles(result, "TABLE_TURN", stats.getTableTurnSnapshot());
+        return result;
+    }
+
+    private static void putPercentiles(Map<String, Long> result, String prefix, HistogramSnapshot snapshot) {
+        result.put(prefix + ".count", snapshot.getCount());
+        result.put(prefix + ".p50", snapshot.getMillisAtPercentile(50));
+        result.put(prefix + ".p90", snapshot.getMillisAtPercentile(90));
+        result.put(prefix + ".p99", snapshot.getMillisAtPercentile(99));
+        result.put(prefix + ".max", snapshot.getMaxMillis());
+    }
+
+    @Override
+    public Map<String, Long> queryDelivered(String category, String waiter) {
+        DeliveredOrderArchive archive = restaurant.getDeliveredArchive();
+        Order.DishCategory dishCategory = category == null || category.trim().isEmpty()
+                ? null : Order.DishCategory.valueOf(category.trim().toUpperCase());
+        String waiterName = waiter == null || waiter.trim().isEmpty() ? null : waiter.trim();
+
+        Map<String, Long> result = new TreeMap<>();
+        result.put("archived", (long) archive.size());
+        result.put("offHeapBytes", archive.getOffHeapBytes());
+        putPercentiles(result, "WAITING", archive.durations(dishCategory, waiterName, Order.Phase.CREATED, Order.Phase.COOK_START));
+        putPercentiles(result, "COOKING", archive.durations(dishCategory, waiterName, Order.Phase.COOK_START, Order.Phase.READY));
+        putPercentiles(result, "PICKUP", archive.durations(dishCategory, waiterName, Order.Phase.READY, Order.Phase.PICKED_UP));
+        putPercentiles(result, "DELIVERY", archive.durations(dishCategory, waiterName, Order.Phase.PICKED_UP, Order.Phase.DELIVERED));
+        putPercentiles(result, "TOTAL", archive.durations(dishCategory, waiterName, Order.Phase.CREATED, Order.Phase.DELIVERED));
+        return result;
+    }
+
+    @Override
+    public boolean cancelOrder(String orderId) {
+        return restaurant.cancelQueuedOrder(orderId.trim());
+    }
+
+    @Override
+    public void pause() {
+        if (restaurant.isRunning()) {
+            restaurant.pause();
+        }
+    }
+
+    @Override
+    public void resume() {
+        if (restaurant.isRunning()) {
+            restaurant.resume();
+        }
+    }
+
+    @Override
+    public void stop() {
+        restaurant.stop();
+    }
+}
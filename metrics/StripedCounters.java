@@ -0,0 +1,174 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+//набор счетчиков с полосами по потокам: запись идет в свою полосу и не гоняет общую кэш-линию между ядрами.
+//у каждой полосы две фазы; срез переключает фазу, дожидается писателей старой фазы и запоминает ее сумму,
+//поэтому изменение нескольких счетчиков одной операцией попадает в срез либо целиком, либо никак.
+//ячейки только растут и никогда не обнуляются на ходу, так что sum() читает их без блокировки
+public final class StripedCounters<E extends Enum<E>> {
+    private static final int STRIPES = stripeCount();
+    //8 long = 64 байта, отдельная кэш-линия
+    private static final int PAD = 8;
+
+    private final Class<E> type;
+    private final int size;
+    private final int blockSize;
+    //[полоса][фаза][счетчик], каждый блок выровнен по кэш-линии
+    private final AtomicLongArray cells;
+    //[полоса][фаза] - сколько писателей сейчас пишут в эту фазу
+    private final AtomicLongArray writers;
+    private volatile int phase;
+
+    private final ReentrantLock readLock = new ReentrantLock();
+    //[фаза][счетчик] - сумма фазы на момент, когда ее в последний раз покинули все писатели
+    private final long[][] settled;
+    private long epoch;
+
+    public StripedCounters(Class<E> type) {
+        this.type = type;
+        this.size = type.getEnumConstants().length;
+        this.blockSize = (size + PAD - 1) / PAD * PAD + PAD;
+        this.cells = new AtomicLongArray(STRIPES * 2 * blockSize);
+        this.writers = new AtomicLongArray((STRIPES * 2 + 1) * PAD);
+        this.settled = new long[2][size];
+    }
+
+    public void increment(E counter) {
+        apply(counter.ordinal(), 1, -1, 0);
+    }
+
+    public void add(E counter, long delta) {
+        apply(counter.ordinal(), delta, -1, 0);
+    }
+
+    //переход заказа из одного состояния в другое
+    public void move(E from, E to) {
+        apply(from.ordinal(), -1, to.ordinal(), 1);
+    }
+
+    public void add(E first, long firstDelta, E second, long secondDelta) {
+        apply(first.ordinal(), firstDelta, second.ordinal(), secondDelta);
+    }
+
+    private void apply(int first, long firstDelta, int second, long secondDelta) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+
+        int p;
+        int slot;
+        while (true) {
+            p = phase;
+            slot = writerSlot(stripe, p);
+            writers.getAndIncrement(slot);
+            //фазу могли переключить между чтением и регистрацией: тогда пишем уже в новую
+            if (phase == p) break;
+            writers.getAndDecrement(slot);
+        }
+
+        int block = block(stripe, p);
+        cells.getAndAdd(block + first, firstDelta);
+        if (second >= 0) {
+            cells.getAndAdd(block + second, secondDelta);
+        }
+        writers.getAndDecrement(slot);
+    }
+
+    //согласованный срез: все операции, завершенные до него, и ни одной частично
+    public Snapshot<E> snapshot() {
+        readLock.lock();
+        try {
+            int old = phase;
+            phase = old ^ 1;
+
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                int slot = writerSlot(stripe, old);
+                //писатель держит фазу считанные наносекунды, но его могли вытеснить - уступаем процессор
+                while (writers.get(slot) != 0) {
+                    Thread.yield();
+                }
+            }
+
+            //старая фаза замерла; новая с прошлого среза не менялась до этого переключения,
+            //поэтому ее запомненная сумма - ровно то, что в нее попало до среза
+            long[] oldSum = settled[old];
+            Arrays.fill(oldSum, 0);
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                int block = block(stripe, old);
+                for (int i = 0; i < size; i++) {
+                    oldSum[i] += cells.get(block + i);
+                }
+            }
+
+            long[] newSum = settled[old ^ 1];
+            Map<E, Long> values = new EnumMap<>(type);
+            for (E counter : type.getEnumConstants()) {
+                values.put(counter, oldSum[counter.ordinal()] + newSum[counter.ordinal()]);
+            }
+            return new Snapshot<>(values, ++epoch);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //быстрое значение одного счетчика без блокировки и без переключения фазы, как у LongAdder.sum():
+    //операция, идущая прямо сейчас, может быть учтена частично
+    public long sum(E counter) {
+        int index = counter.ordinal();
+        long total = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            total += cells.get(block(stripe, 0) + index) + cells.get(block(stripe, 1) + index);
+        }
+        return total;
+    }
+
+    //только когда писателей нет, например между сменами
+    public void reset() {
+        readLock.lock();
+        try {
+            for (int i = 0; i < cells.length(); i++) {
+                cells.set(i, 0);
+            }
+            Arrays.fill(settled[0], 0);
+            Arrays.fill(settled[1], 0);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private int block(int stripe, int p) {
+        return (stripe * 2 + p) * blockSize;
+    }
+
+    private static int writerSlot(int stripe, int p) {
+        return (stripe * 2 + p + 1) * PAD;
+    }
+
+    private static int stripeCount() {
+        int cpus = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        return Integer.highestOneBit(Math.max(1, cpus));
+    }
+
+    public static final class Snapshot<E extends Enum<E>> {
+        private final Map<E, Long> values;
+        private final long epoch;
+
+        Snapshot(Map<E, Long> values, long epoch) {
+            this.values = values;
+            this.epoch = epoch;
+        }
+
+        public long get(E counter) {
+            return values.get(counter);
+        }
+
+        public int getInt(E counter) {
+            return (int) get(counter);
+        }
+
+        public long getEpoch() { return epoch; }
+    }
+}
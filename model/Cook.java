@@ -1,24 +1,28 @@
 package model;
 
-import gui.RestaurantGUI;
+import log.EventLogger;
+import log.LogCategory;
+import metrics.CookOrderEvent;
 
 public class Cook implements Runnable {
     private final String name;
     private final Restaurant restaurant;
-    private final RestaurantGUI gui;
+    private final RestaurantView gui;
+    private final EventLogger log;
     private volatile boolean isCooking = false;
     private volatile boolean isPaused = false;
     private int ordersCooked = 0;
 
-    public Cook(String name, Restaurant restaurant, RestaurantGUI gui) {
+    public Cook(String name, Restaurant restaurant, RestaurantView gui) {
         this.name = name;
         this.restaurant = restaurant;
         this.gui = gui;
+        this.log = restaurant.getLogger();
     }
 
     @Override
     public void run() {
-        gui.logMessage("[ПОВАР]" + name + " готов к работе");
+        log.info(LogCategory.COOK, () -> "[ПОВАР]" + name + " готов к работе");
 
         while (isCooking) {
             try {
@@ -26,19 +30,19 @@ public class Cook implements Runnable {
 
                 Order order = restaurant.takeFromKitchenQueue();
 
-                cookOrder(order);
-
-                ordersCooked++;
-                gui.updateCookStatus();
+                if (cookOrder(order)) {
+                    ordersCooked++;
+                    restaurant.publishState();
+                }
 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                gui.logMessage(name + " был прерван");
+                log.warn(LogCategory.COOK, () -> name + " был прерван");
                 break;
             } catch (Exception e) {
-                gui.logMessage("Ошибка у повара " + name + ": " + e.getMessage());
+                log.error(LogCategory.COOK, () -> "Ошибка у повара " + name + ": " + e.getMessage());
                 try {
-                    Thread.sleep(1000);
+                    restaurant.sleepScaled(1000);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     break;
@@ -47,12 +51,22 @@ public class Cook implements Runnable {
         }
     }
 
-    //стадии приготовления
-    private void cookOrder(Order order) throws InterruptedException {
-        order.setStatus(Order.OrderStatus.COOKING);
-        order.setStartCookingTime(System.currentTimeMillis());
+    //стадии приготовления; false, если заказ взять не удалось
+    private boolean cookOrder(Order order) throws InterruptedException {
+        if (!restaurant.advanceOrder(order, Order.OrderStatus.WAITING_FOR_COOKING, Order.OrderStatus.COOKING)) {
+            log.warn(LogCategory.COOK, () -> "[ПОВАР]" + name + ": заказ " + order.getId() + " уже не ждет готовки (" +
+                    order.getStatus().getDisplayName() + ")");
+            return false;
+        }
+        //отметка только у взятого заказа: снятый или отклоненный не должен попасть в статистику готовки.
+        //пока отметки нет, время готовки читается как 0
+        order.markPhase(Order.Phase.COOK_START);
+        restaurant.assignCook(order, name);
+
+        CookOrderEvent event = new CookOrderEvent();
+        event.begin();
 
-        gui.logMessage("[ПОВАР]" + name + " начинает готовить: " +
+        log.info(LogCategory.COOK, () -> "[ПОВАР]" + name + " начинает готовить: " +
                 order.getDishName() +
                 " (" + order.getDishCategory().getDisplayName() + ")");
 
@@ -68,26 +82,28 @@ public class Cook implements Runnable {
 
             restaurant.checkPause();
 
-            Thread.sleep(stepTime);
+            restaurant.sleepScaled(stepTime);
 
-            gui.updateCookingProgress();
+            gui.updateCookingProgress(order);
         }
 
         if (isCooking) {
-            order.setFinishCookingTime(System.currentTimeMillis());
+            order.markPhase(Order.Phase.READY);
             restaurant.completeOrder(order);
 
-            gui.logMessage("[ПОВАР]" + name + " приготовил: " +
+            log.info(LogCategory.COOK, () -> "[ПОВАР]" + name + " приготовил: " +
                     order.getDishName() + " за " +
                     (order.getCookingTime() / 1000) + "сек");
         }
+        event.record(order, name, isCooking);
+        return true;
     }
 
     public void setCooking(boolean cooking) {
         if (cooking && !isCooking) {
-            gui.logMessage("[ПОВАР]" + name + " готов к работе");
+            log.info(LogCategory.COOK, () -> "[ПОВАР]" + name + " готов к работе");
         } else if (!cooking && isCooking) {
-            gui.logMessage("[ПОВАР]" + name + " закончил смену. Приготовлено: " + ordersCooked);
+            log.info(LogCategory.COOK, () -> "[ПОВАР]" + name + " закончил смену. Приготовлено: " + ordersCooked);
         }
         this.isCooking = cooking;
     }
@@ -95,9 +111,9 @@ public class Cook implements Runnable {
     public void setPaused(boolean paused) {
         this.isPaused = paused;
         if (paused) {
-            gui.logMessage(name + " приостановил готовку");
+            log.info(LogCategory.COOK, () -> name + " приостановил готовку");
         } else {
-            gui.logMessage(name + " возобновил готовку");
+            log.info(LogCategory.COOK, () -> name + " возобновил готовку");
         }
     }
 
@@ -0,0 +1,324 @@
+package model;
+
+import metrics.HistogramSnapshot;
+import metrics.LatencyHistogram;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//архив доставленных заказов смены вне кучи, по столбцам: id, категория, официант, повар, отметки фаз.
+//строки лежат кусками по CHUNK_ROWS, у каждого куска битовые карты по категории и официанту,
+//так что выборка - это AND слов карт и чтение только подошедших строк. запись строки ничего не выделяет
+//в куче; куски после смены не освобождаются, а переиспользуются следующей
+public final class DeliveredOrderArchive {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+    private static final int WORDS = CHUNK_ROWS / 64;
+    private static final Order.Phase[] PHASES = Order.Phase.values();
+    private static final Order.DishCategory[] CATEGORIES = Order.DishCategory.values();
+    //байт на строку без битовых карт: id, категория, официант, повар, создание, остальные фазы
+    private static final int ROW_BYTES = 4 + 1 + 2 + 2 + 8 + 4 * (PHASES.length - 1);
+    private static final int NOT_REACHED = -1;
+    private static final short NO_NAME = -1;
+
+    private final int maxRows;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Chunk> chunks = new ArrayList<>();
+    //имена сотрудников - словарь, в столбцах только их номера
+    private final Map<String, Short> waiterIds = new HashMap<>();
+    private final List<String> waiterNames = new ArrayList<>();
+    private final Map<String, Short> cookIds = new HashMap<>();
+    private final List<String> cookNames = new ArrayList<>();
+    private int size;
+    private long dropped;
+
+    DeliveredOrderArchive(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    private static final class Chunk {
+        final IntBuffer ids = ByteBuffer.allocateDirect(CHUNK_ROWS * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        final ByteBuffer categories = ByteBuffer.allocateDirect(CHUNK_ROWS);
+        final ShortBuffer waiters = shorts();
+        final ShortBuffer cooks = shorts();
+        //создание - System.nanoTime(), остальные фазы - микросекунды от создания
+        final LongBuffer created = ByteBuffer.allocateDirect(CHUNK_ROWS * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        final IntBuffer[] phases = new IntBuffer[PHASES.length];
+        final LongBuffer[] categoryBits = new LongBuffer[CATEGORIES.length];
+        final List<LongBuffer> waiterBits = new ArrayList<>();
+
+        Chunk() {
+            for (int i = 1; i < phases.length; i++) {
+                phases[i] = ByteBuffer.allocateDirect(CHUNK_ROWS * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+            for (int i = 0; i < categoryBits.length; i++) {
+                categoryBits[i] = bitmap();
+            }
+        }
+
+        LongBuffer waiterBitmap(int waiter) {
+            while (waiterBits.size() <= waiter) {
+                waiterBits.add(bitmap());
+            }
+            return waiterBits.get(waiter);
+        }
+
+        //кусок из прошлой смены: столбцы перезапишутся, а карты надо обнулить
+        void reset() {
+            for (LongBuffer bits : categoryBits) {
+                zero(bits);
+            }
+            for (LongBuffer bits : waiterBits) {
+                zero(bits);
+            }
+        }
+
+        long bytes() {
+            return (long) CHUNK_ROWS * ROW_BYTES + (long) (categoryBits.length + waiterBits.size()) * WORDS * 8;
+        }
+
+        private static ShortBuffer shorts() {
+            return ByteBuffer.allocateDirect(CHUNK_ROWS * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        }
+
+        private static LongBuffer bitmap() {
+            return ByteBuffer.allocateDirect(WORDS * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+
+        private static void zero(LongBuffer bits) {
+            for (int i = 0; i < WORDS; i++) {
+                bits.put(i, 0);
+            }
+        }
+    }
+
+    //false - архив заполнен, заказ не записан
+    boolean append(Order order) {
+        lock.writeLock().lock();
+        try {
+            if (size >= maxRows) {
+                dropped++;
+                return false;
+            }
+            int chunkIndex = size >>> CHUNK_BITS;
+            int row = size & (CHUNK_ROWS - 1);
+            Chunk chunk;
+            if (chunkIndex < chunks.size()) {
+                chunk = chunks.get(chunkIndex);
+                if (row == 0) {
+                    chunk.reset();
+                }
+            } else {
+                try {
+                    chunk = new Chunk();
+                } catch (OutOfMemoryError e) {
+                    //кончилась память вне кучи (-XX:MaxDirectMemorySize): архив дальше не растет
+                    dropped++;
+                    return false;
+                }
+                chunks.add(chunk);
+            }
+
+            chunk.ids.put(row, parseId(order.getId()));
+            chunk.categories.put(row, (byte) order.getDishCategory().ordinal());
+            short waiter = nameId(waiterIds, waiterNames, order.getAssignedWaiter());
+            chunk.waiters.put(row, waiter);
+            chunk.cooks.put(row, nameId(cookIds, cookNames, order.getAssignedCook()));
+
+            long created = order.getPhaseNanos(Order.Phase.CREATED);
+            chunk.created.put(row, created);
+            for (int i = 1; i < PHASES.length; i++) {
+                chunk.phases[i].put(row, order.hasReached(PHASES[i])
+                        ? (int) Math.min(Integer.MAX_VALUE, (order.getPhaseNanos(PHASES[i]) - created) / 1000)
+                        : NOT_REACHED);
+            }
+
+            setBit(chunk.categoryBits[order.getDishCategory().ordinal()], row);
+            if (waiter != NO_NAME) {
+                setBit(chunk.waiterBitmap(waiter), row);
+            }
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //новая смена пишет поверх прошлой; словари имен и память кусков остаются
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            dropped = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //category и waiter == null - без отбора по ним
+    public long count(Order.DishCategory category, String waiter) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (int c = 0; c < chunkCount(); c++) {
+                LongBuffer categoryBits = categoryBits(c, category);
+                LongBuffer waiterBits = waiterBits(c, waiter);
+                if (categoryBits == null && category != null || waiterBits == null && waiter != null) continue;
+                for (int w = 0; w < WORDS; w++) {
+                    count += Long.bitCount(word(c, w, categoryBits, waiterBits));
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //распределение времени между двумя фазами у отобранных заказов, в микросекундах
+    public HistogramSnapshot durations(Order.DishCategory category, String waiter, Order.Phase from, Order.Phase to) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        lock.readLock().lock();
+        try {
+            for (int c = 0; c < chunkCount(); c++) {
+                LongBuffer categoryBits = categoryBits(c, category);
+                LongBuffer waiterBits = waiterBits(c, waiter);
+                if (categoryBits == null && category != null || waiterBits == null && waiter != null) continue;
+                Chunk chunk = chunks.get(c);
+                for (int w = 0; w < WORDS; w++) {
+                    long bits = word(c, w, categoryBits, waiterBits);
+                    while (bits != 0) {
+                        int row = w * 64 + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        long start = phaseMicros(chunk, from, row);
+                        long end = phaseMicros(chunk, to, row);
+                        if (start != NOT_REACHED && end != NOT_REACHED) {
+                            histogram.record(end - start);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return histogram.snapshot();
+    }
+
+    //id первых limit отобранных заказов
+    public List<String> ids(Order.DishCategory category, String waiter, int limit) {
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int c = 0; c < chunkCount() && ids.size() < limit; c++) {
+                LongBuffer categoryBits = categoryBits(c, category);
+                LongBuffer waiterBits = waiterBits(c, waiter);
+                if (categoryBits == null && category != null || waiterBits == null && waiter != null) continue;
+                Chunk chunk = chunks.get(c);
+                for (int w = 0; w < WORDS && ids.size() < limit; w++) {
+                    long bits = word(c, w, categoryBits, waiterBits);
+                    while (bits != 0 && ids.size() < limit) {
+                        int row = w * 64 + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        ids.add(String.format("%08x", chunk.ids.get(row)));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getDropped() {
+        lock.readLock().lock();
+        try {
+            return dropped;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //выделено вне кучи, включая куски прошлых смен
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Chunk chunk : chunks) {
+                bytes += chunk.bytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int chunkCount() {
+        return (size + CHUNK_ROWS - 1) >>> CHUNK_BITS;
+    }
+
+    private LongBuffer categoryBits(int chunk, Order.DishCategory category) {
+        return category == null ? null : chunks.get(chunk).categoryBits[category.ordinal()];
+    }
+
+    private LongBuffer waiterBits(int chunk, String waiter) {
+        if (waiter == null) return null;
+        Short id = waiterIds.get(waiter);
+        List<LongBuffer> bits = chunks.get(chunk).waiterBits;
+        return id == null || id >= bits.size() ? null : bits.get(id);
+    }
+
+    //слово выборки: AND карт отбора, обрезанный по числу записанных строк
+    private long word(int chunk, int w, LongBuffer categoryBits, LongBuffer waiterBits) {
+        int first = (chunk << CHUNK_BITS) + w * 64;
+        if (first >= size) return 0;
+        long bits = size - first >= 64 ? -1L : (1L << (size - first)) - 1;
+        if (categoryBits != null) bits &= categoryBits.get(w);
+        if (waiterBits != null) bits &= waiterBits.get(w);
+        return bits;
+    }
+
+    private static long phaseMicros(Chunk chunk, Order.Phase phase, int row) {
+        return phase == Order.Phase.CREATED ? 0 : chunk.phases[phase.ordinal()].get(row);
+    }
+
+    private static void setBit(LongBuffer bits, int row) {
+        int w = row >>> 6;
+        bits.put(w, bits.get(w) | 1L << (row & 63));
+    }
+
+    private static short nameId(Map<String, Short> ids, List<String> names, String name) {
+        if (name == null) return NO_NAME;
+        Short id = ids.get(name);
+        if (id == null) {
+            id = (short) names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    //id заказа - 8 шестнадцатеричных цифр UUID, в столбце хватает int
+    private static int parseId(String id) {
+        try {
+            return Integer.parseUnsignedInt(id, 16);
+        } catch (NumberFormatException e) {
+            return id.hashCode();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package model;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//очередь кухни и ее отображение в одной структуре: двусвязный список заказов с индексом по id под одним замком.
+//постановка, выдача и снятие заказа по id - O(1); срез для экрана копирует не больше limit первых заказов
+//и кэшируется по версии, так что повторные запросы без изменений ничего не копируют.
+//id - 8 цифр UUID и могут совпасть: такие заказы стоят в очереди как обычно, индекс по id ведет к самому
+//давнему из них, остальные связаны за ним цепочкой
+public final class IndexedOrderQueue extends AbstractQueue<Order> implements BlockingQueue<Order> {
+    private static final class Node {
+        final Order order;
+        Node prev;
+        Node next;
+        //следующий в очереди заказ с тем же id
+        Node sameId;
+
+        Node(Order order) {
+            this.order = order;
+        }
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final int limit;
+        final List<Order> orders;
+
+        Snapshot(long version, int limit, List<Order> orders) {
+            this.version = version;
+            this.limit = limit;
+            this.orders = orders;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Node> index = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private Node head;
+    private Node tail;
+    //меняются под замком, читаются без него
+    private volatile int count;
+    private volatile long version;
+    private volatile Snapshot snapshot;
+
+    public IndexedOrderQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость очереди должна быть больше нуля: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(Order order) {
+        if (order == null) throw new NullPointerException();
+        lock.lock();
+        try {
+            if (count >= capacity) {
+                return false;
+            }
+            link(order);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Order order) throws InterruptedException {
+        if (order == null) throw new NullPointerException();
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+            link(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Order order, long timeout, TimeUnit unit) throws InterruptedException {
+        if (order == null) throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                if (nanos <= 0) return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            link(order);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order poll() {
+        lock.lock();
+        try {
+            return head == null ? null : unlink(head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (head == null) {
+                notEmpty.await();
+            }
+            return unlink(head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (head == null) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlink(head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order peek() {
+        lock.lock();
+        try {
+            return head == null ? null : head.order;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //самый давний заказ в очереди с этим id, без снятия; null - его уже взяли или не было
+    public Order get(String orderId) {
+        lock.lock();
+        try {
+            Node node = index.get(orderId);
+            return node == null ? null : node.order;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //снимает заказ, который еще ждет повара; null - его уже взяли или не было
+    public Order removeById(String orderId) {
+        lock.lock();
+        try {
+            Node node = index.get(orderId);
+            return node == null ? null : unlink(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //именно этот заказ, а не первый с его id
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Order)) return false;
+        lock.lock();
+        try {
+            Node node = find((Order) o);
+            if (node == null) return false;
+            unlink(node);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Order)) return false;
+        lock.lock();
+        try {
+            return find((Order) o) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Node find(Order order) {
+        Node node = index.get(order.getId());
+        while (node != null && node.order != order) {
+            node = node.sameId;
+        }
+        return node;
+    }
+
+    //первые limit заказов в порядке очереди, как они стояли в один момент
+    public List<Order> snapshot(int limit) {
+        Snapshot cached = snapshot;
+        if (cached != null && cached.version == version && cached.limit == limit) {
+            return cached.orders;
+        }
+        lock.lock();
+        try {
+            List<Order> orders = new ArrayList<>(Math.min(limit, count));
+            for (Node node = head; node != null && orders.size() < limit; node = node.next) {
+                orders.add(node.order);
+            }
+            List<Order> result = Collections.unmodifiableList(orders);
+            snapshot = new Snapshot(version, limit, result);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getVersion() { return version; }
+
+    private void link(Order order) {
+        Node node = new Node(order);
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+            node.prev = tail;
+        }
+        tail = node;
+        Node sameId = index.putIfAbsent(order.getId(), node);
+        if (sameId != null) {
+            while (sameId.sameId != null) {
+                sameId = sameId.sameId;
+            }
+            sameId.sameId = node;
+        }
+        count++;
+        version++;
+        notEmpty.signal();
+    }
+
+    private Order unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        String id = node.order.getId();
+        Node first = index.get(id);
+        if (first == node) {
+            if (node.sameId == null) {
+                index.remove(id);
+            } else {
+                index.put(id, node.sameId);
+            }
+        } else {
+            while (first.sameId != node) {
+                first = first.sameId;
+            }
+            first.sameId = node.sameId;
+        }
+        node.sameId = null;
+        count--;
+        version++;
+        notFull.signal();
+        return node.order;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - count;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Order> c, int maxElements) {
+        if (c == this) throw new IllegalArgumentException();
+        lock.lock();
+        try {
+            int drained = 0;
+            while (head != null && drained < maxElements) {
+                c.add(unlink(head));
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            while (head != null) {
+                unlink(head);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //обход по срезу всей очереди; удаление - через remove или removeById
+    @Override
+    public Iterator<Order> iterator() {
+        return snapshot(Integer.MAX_VALUE).iterator();
+    }
+}
@@ -0,0 +1,120 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+
+//реализации очереди кухни и способы ожидания повара; выбираются при запуске свойствами
+//restaurant.kitchen.queue и restaurant.kitchen.wait
+public final class KitchenQueues {
+    //сколько раз повар проверяет очередь, прежде чем заснуть
+    private static final int SPINS = Integer.getInteger("restaurant.kitchen.spins", 1000);
+
+    public enum Backend {
+        //один замок, индекс по id: дешевый срез для экрана и снятие заказа за O(1)
+        INDEXED("Индексированная очередь"),
+        //два замка и узел на каждый заказ
+        LINKED("LinkedBlockingQueue"),
+        //один замок, массив выделен заранее
+        ARRAY("ArrayBlockingQueue"),
+        //без замков, но узел на каждый заказ и без ограничения емкости: предел держит ресторан
+        TRANSFER("LinkedTransferQueue"),
+        //без замков, ячейки выделены заранее
+        RING("Кольцевой буфер");
+
+        private final String name;
+
+        Backend(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        public BlockingQueue<Order> create(int capacity) {
+            switch (this) {
+                case INDEXED: return new IndexedOrderQueue(capacity);
+                case ARRAY: return new ArrayBlockingQueue<>(capacity);
+                case TRANSFER: return new LinkedTransferQueue<>();
+                case RING: return new RingBufferQueue<>(capacity);
+                default: return new LinkedBlockingQueue<>(capacity);
+            }
+        }
+    }
+
+    //у остальных реализаций срез собирается обходом и может не совпасть ни с одним моментом очереди
+    static List<Order> snapshot(BlockingQueue<Order> queue, int limit) {
+        if (queue instanceof IndexedOrderQueue) {
+            return ((IndexedOrderQueue) queue).snapshot(limit);
+        }
+        List<Order> orders = new ArrayList<>();
+        for (Order order : queue) {
+            if (orders.size() >= limit) break;
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    static Order findById(BlockingQueue<Order> queue, String orderId) {
+        if (queue instanceof IndexedOrderQueue) {
+            return ((IndexedOrderQueue) queue).get(orderId);
+        }
+        for (Order order : queue) {
+            if (order.getId().equals(orderId)) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    //снятие именно этого заказа: с тем же id в очереди может стоять другой.
+    //кольцевой буфер снимать из середины не умеет
+    static boolean remove(BlockingQueue<Order> queue, Order order) {
+        try {
+            return queue.remove(order);
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    public enum WaitStrategy {
+        //сразу засыпает в очереди и ждет, пока разбудит официант
+        PARK("Парковка"),
+        //сначала крутится на poll: заказ, пришедший за микросекунды, забирается без засыпания и пробуждения.
+        //на одном ядре только мешает официантам
+        SPIN_THEN_PARK("Спин, затем парковка");
+
+        private final String name;
+
+        WaitStrategy(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        public <E> E take(BlockingQueue<E> queue) throws InterruptedException {
+            E e = spin(queue);
+            return e != null ? e : queue.take();
+        }
+
+        public <E> E poll(BlockingQueue<E> queue, long timeout, TimeUnit unit) throws InterruptedException {
+            E e = spin(queue);
+            return e != null ? e : queue.poll(timeout, unit);
+        }
+
+        private <E> E spin(BlockingQueue<E> queue) {
+            if (this != SPIN_THEN_PARK) return null;
+            for (int i = 0; i < SPINS; i++) {
+                E e = queue.poll();
+                if (e != null) return e;
+                Thread.onSpinWait();
+            }
+            return null;
+        }
+    }
+
+    private KitchenQueues() { }
+}
@@ -1,17 +1,46 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Order {
     private final String id;
     private final String clientName;
     private final String dishName;
     private final DishCategory dishCategory;
-    private OrderStatus status;
+    //слово состояния: младшие биты - статус, старшие - число переходов; меняется только через CAS
+    private final AtomicInteger state = new AtomicInteger(OrderStatus.CREATED.ordinal());
+    //настенное время только для показа; длительности считаются по phaseNanos
     private final long creationTime;
-    private long startCookingTime;
-    private long finishCookingTime;
-    private String assignedWaiter;
+    //System.nanoTime() каждой фазы, NOT_REACHED - фаза еще не наступила
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private volatile String assignedWaiter;
+    private volatile String assignedCook;
+    //стол, в который входит блюдо; null у одиночного заказа
+    private Ticket ticket;
+
+    private static final int STATUS_BITS = 4;
+    private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private static final long NOT_REACHED = Long.MIN_VALUE;
+    //запись с release, чтение с acquire: фазы пишут одни потоки, а читают другие (EDT, статистика)
+    private static final VarHandle PHASE_NANOS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    //моменты жизни заказа по порядку
+    public enum Phase {
+        CREATED,
+        ASSIGNED,
+        ACCEPTED,
+        ENQUEUED,
+        COOK_START,
+        READY,
+        PICKED_UP,
+        DELIVERED
+    }
 
     public enum DishCategory {
         APPETIZER("Закуска", 1000, new String[]{
@@ -80,7 +109,9 @@ public class Order {
         WAITING_FOR_COOKING("В ожидании"),
         COOKING("Готовится"),
         READY("Готов"),
-        DELIVERED("Доставлен");
+        DELIVERING("Доставляется"),
+        DELIVERED("Доставлен"),
+        REJECTED("Отклонен");
 
         private final String displayName;
 
@@ -89,6 +120,22 @@ public class Order {
         }
 
         public String getDisplayName() { return displayName; }
+
+        //заказ идет только вперед; отклонить можно, пока он не попал к повару
+        public boolean canMoveTo(OrderStatus next) {
+            switch (this) {
+                case CREATED: return next == WAITING_FOR_COOKING || next == REJECTED;
+                case WAITING_FOR_COOKING: return next == COOKING || next == REJECTED;
+                case COOKING: return next == READY;
+                case READY: return next == DELIVERING;
+                case DELIVERING: return next == DELIVERED;
+                default: return false;
+            }
+        }
+
+        public boolean isFinal() {
+            return this == DELIVERED || this == REJECTED;
+        }
     }
 
     public Order(String clientName, String dishName, DishCategory dishCategory) {
@@ -96,8 +143,9 @@ public class Order {
         this.clientName = clientName;
         this.dishName = dishName;
         this.dishCategory = dishCategory;
-        this.status = OrderStatus.CREATED;
         this.creationTime = System.currentTimeMillis();
+        Arrays.fill(phaseNanos, NOT_REACHED);
+        phaseNanos[Phase.CREATED.ordinal()] = System.nanoTime();
     }
 
     public static Order createRandomOrder(String clientName) {
@@ -111,33 +159,92 @@ public class Order {
     public String getClientName() { return clientName; }
     public String getDishName() { return dishName; }
     public DishCategory getDishCategory() { return dishCategory; }
-    public OrderStatus getStatus() { return status; }
-    public void setStatus(OrderStatus status) { this.status = status; }
-    public long getCreationTime() { return creationTime; }
-    public long getStartCookingTime() { return startCookingTime; }
-    public void setStartCookingTime(long startCookingTime) {
-        this.startCookingTime = startCookingTime;
-    }
+    public OrderStatus getStatus() { return STATUSES[state.get() & STATUS_MASK]; }
+
+    //сколько переходов заказ прошел, растет с каждым статусом
+    public int getTransitionCount() { return state.get() >>> STATUS_BITS; }
 
-    public void setFinishCookingTime(long finishCookingTime) {
-        this.finishCookingTime = finishCookingTime;
+    //false, если заказ уже не в статусе from (его перевел другой поток);
+    //недопустимый переход - ошибка в коде, а не гонка
+    public boolean transition(OrderStatus from, OrderStatus to) {
+        if (!from.canMoveTo(to)) {
+            throw new IllegalStateException("Недопустимый переход заказа " + id + ": " + from + " -> " + to);
+        }
+        int current = state.get();
+        if ((current & STATUS_MASK) != from.ordinal()) {
+            return false;
+        }
+        int next = (((current >>> STATUS_BITS) + 1) << STATUS_BITS) | to.ordinal();
+        //каждый переход меняет статус, поэтому неудачный CAS значит, что заказ уже не в from
+        return state.compareAndSet(current, next);
     }
+
+    public long getCreationTime() { return creationTime; }
     public String getAssignedWaiter() { return assignedWaiter; }
     public void setAssignedWaiter(String waiter) { this.assignedWaiter = waiter; }
+    public String getAssignedCook() { return assignedCook; }
+    public void setAssignedCook(String cook) { this.assignedCook = cook; }
+    public Ticket getTicket() { return ticket; }
+    void setTicket(Ticket ticket) { this.ticket = ticket; }
+
+    //отмечать фазу до перехода статуса, чтобы поток, увидевший новый статус, увидел и время
+    public void markPhase(Phase phase) {
+        markPhase(phase, System.nanoTime());
+    }
+
+    //отметка с заданным временем - для проверок, где длительности должны быть известны заранее
+    void markPhase(Phase phase, long nanos) {
+        PHASE_NANOS.setRelease(phaseNanos, phase.ordinal(), nanos == NOT_REACHED ? nanos + 1 : nanos);
+    }
 
+    public boolean hasReached(Phase phase) {
+        return getPhaseNanos(phase) != NOT_REACHED;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return (long) PHASE_NANOS.getAcquire(phaseNanos, phase.ordinal());
+    }
+
+    //от from до to; если to еще не наступила - до текущего момента, если from - 0
+    public long getPhaseDurationNanos(Phase from, Phase to) {
+        long start = getPhaseNanos(from);
+        if (start == NOT_REACHED) return 0;
+        long end = getPhaseNanos(to);
+        return (end == NOT_REACHED ? System.nanoTime() : end) - start;
+    }
+
+    //только завершенный отрезок, иначе 0
+    private long completedMillis(Phase from, Phase to) {
+        if (!hasReached(to)) return 0;
+        return getPhaseDurationNanos(from, to) / 1_000_000;
+    }
+
+    //от заказа до начала готовки, пока не начали - до текущего момента
     public long getWaitingTime() {
-        if (startCookingTime == 0) return System.currentTimeMillis() - creationTime;
-        return startCookingTime - creationTime;
+        return getPhaseDurationNanos(Phase.CREATED, Phase.COOK_START) / 1_000_000;
     }
 
     public long getCookingTime() {
-        if (finishCookingTime == 0 || startCookingTime == 0) return 0;
-        return finishCookingTime - startCookingTime;
+        return completedMillis(Phase.COOK_START, Phase.READY);
+    }
+
+    //сколько идет готовка прямо сейчас
+    public long getCookingElapsedTime() {
+        return getPhaseDurationNanos(Phase.COOK_START, Phase.READY) / 1_000_000;
+    }
+
+    //сколько готовый заказ ждал официанта
+    public long getPickupTime() {
+        return completedMillis(Phase.READY, Phase.PICKED_UP);
+    }
+
+    public long getDeliveryTime() {
+        return completedMillis(Phase.PICKED_UP, Phase.DELIVERED);
     }
 
+    //от заказа до доставки, для еще не доставленного - до текущего момента
     public long getTotalTime() {
-        if (status == OrderStatus.DELIVERED) return finishCookingTime - creationTime;
-        return System.currentTimeMillis() - creationTime;
+        return getPhaseDurationNanos(Phase.CREATED, Phase.DELIVERED) / 1_000_000;
     }
 
     @Override
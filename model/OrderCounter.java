@@ -0,0 +1,26 @@
+package model;
+
+//счетчики заказов ресторана: двигаются только удачными переходами статуса заказа (Restaurant.advanceOrder).
+//REJECTED - отказы: заказы, отклоненные кухней, и заказы, не принятые у входа (эти в TOTAL не входят)
+public enum OrderCounter {
+    TOTAL,
+    WAITING,
+    COOKING,
+    READY,
+    DELIVERING,
+    DELIVERED,
+    REJECTED;
+
+    //счетчик, в котором лежит заказ с этим статусом
+    public static OrderCounter of(Order.OrderStatus status) {
+        switch (status) {
+            case CREATED:
+            case WAITING_FOR_COOKING: return WAITING;
+            case COOKING: return COOKING;
+            case READY: return READY;
+            case DELIVERING: return DELIVERING;
+            case DELIVERED: return DELIVERED;
+            default: return REJECTED;
+        }
+    }
+}
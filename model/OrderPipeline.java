@@ -0,0 +1,216 @@
+package model;
+
+import log.EventLogger;
+import log.LogCategory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+//конвейер заказов на Flow: стадия запрашивает у предыдущей ровно столько заказов, сколько может принять.
+//занятые повара не дают спроса кухне, официанты упираются в кухню и перестают брать заказы,
+//буфер приема заполняется, и генератор клиентов притормаживает
+public final class OrderPipeline implements AutoCloseable {
+    private final EventLogger log;
+    private final ExecutorService executor;
+    private final Stage arrivals;
+    private final Stage kitchen;
+    private final AtomicLong throttled = new AtomicLong();
+    private volatile boolean saturated;
+
+    OrderPipeline(EventLogger log, int arrivalBuffer, int acceptanceDemand, Consumer<Order> dispatcher,
+                  int kitchenDemand, Consumer<Order> kitchenQueue) {
+        this.log = log;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "restaurant-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.arrivals = new Stage("arrivals", "Прием", arrivalBuffer, acceptanceDemand, dispatcher);
+        //заказ, которому кухня не дала места, ждет у официанта, а не в буфере
+        this.kitchen = new Stage("kitchen", "Кухня", 1, kitchenDemand, kitchenQueue);
+    }
+
+    //false - буфер приема полон, заказ не принят
+    boolean offerArrival(Order order) {
+        return arrivals.offer(order);
+    }
+
+    //генератор пропускает такт, пока прием не разберет свой буфер
+    boolean isArrivalSaturated() {
+        boolean full = arrivals.publisher.estimateMaximumLag() >= arrivals.publisher.getMaxBufferCapacity();
+        if (full) {
+            throttled.incrementAndGet();
+            if (!saturated) {
+                log.warn(LogCategory.CLIENT, "Официанты не успевают: генератор клиентов притормаживает");
+            }
+        } else if (saturated) {
+            log.info(LogCategory.CLIENT, "Прием разгрузился, генератор клиентов работает в обычном темпе");
+        }
+        saturated = full;
+        return full;
+    }
+
+    //ждет места на кухне не дольше timeoutMillis; false - не дождался
+    boolean offerKitchen(Order order, long timeoutMillis) {
+        return kitchen.offer(order, timeoutMillis);
+    }
+
+    //официант взял заказ в работу: прием может запросить следующий
+    void acceptanceTaken() {
+        arrivals.subscriber.release();
+    }
+
+    //повар взял заказ из очереди: кухня может запросить следующий
+    void kitchenTaken() {
+        kitchen.subscriber.release();
+    }
+
+    public long getThrottled() { return throttled.get(); }
+
+    public List<StageState> getStages() {
+        List<StageState> stages = new ArrayList<>();
+        stages.add(arrivals.state());
+        stages.add(kitchen.state());
+        return stages;
+    }
+
+    @Override
+    public void close() {
+        arrivals.publisher.close();
+        kitchen.publisher.close();
+        executor.shutdownNow();
+    }
+
+    //издатель с ограниченным буфером и подписчик, который отдает спрос по мере освобождения мест у следующей стадии
+    private final class Stage {
+        private final String id;
+        private final String name;
+        private final SubmissionPublisher<Order> publisher;
+        private final DemandSubscriber subscriber;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Stage(String id, String name, int buffer, int demand, Consumer<Order> sink) {
+            this.id = id;
+            this.name = name;
+            this.publisher = new SubmissionPublisher<>(executor, buffer);
+            this.subscriber = new DemandSubscriber(name, demand, sink);
+            publisher.subscribe(subscriber);
+        }
+
+        boolean offer(Order order) {
+            return count(publisher.offer(order, (s, item) -> false));
+        }
+
+        boolean offer(Order order, long timeoutMillis) {
+            return count(publisher.offer(order, timeoutMillis, TimeUnit.MILLISECONDS, (s, item) -> false));
+        }
+
+        private boolean count(int lag) {
+            if (lag < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            submitted.incrementAndGet();
+            return true;
+        }
+
+        StageState state() {
+            return new StageState(id, name, publisher.getMaxBufferCapacity(), publisher.estimateMaximumLag(),
+                    subscriber.demand, subscriber.inFlight(), submitted.get(), subscriber.delivered.get(), dropped.get());
+        }
+    }
+
+    private final class DemandSubscriber implements Flow.Subscriber<Order> {
+        private final String name;
+        private final int demand;
+        private final Consumer<Order> sink;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong released = new AtomicLong();
+        private volatile Flow.Subscription subscription;
+
+        DemandSubscriber(String name, int demand, Consumer<Order> sink) {
+            this.name = name;
+            this.demand = demand;
+            this.sink = sink;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(demand);
+        }
+
+        @Override
+        public void onNext(Order order) {
+            delivered.incrementAndGet();
+            sink.accept(order);
+        }
+
+        void release() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                released.incrementAndGet();
+                current.request(1);
+            }
+        }
+
+        //заказы, переданные следующей стадии и еще не взятые в работу
+        long inFlight() {
+            return delivered.get() - released.get();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            log.error(LogCategory.SYSTEM, () -> "Стадия конвейера \"" + name + "\" остановлена: " + error.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+            log.debug(LogCategory.SYSTEM, () -> "Стадия конвейера \"" + name + "\" закрыта");
+        }
+    }
+
+    public static final class StageState {
+        private final String id;
+        private final String name;
+        private final int bufferCapacity;
+        private final int buffered;
+        private final int demand;
+        private final long inFlight;
+        private final long submitted;
+        private final long delivered;
+        private final long dropped;
+
+        StageState(String id, String name, int bufferCapacity, int buffered, int demand, long inFlight,
+                   long submitted, long delivered, long dropped) {
+            this.id = id;
+            this.name = name;
+            this.bufferCapacity = bufferCapacity;
+            this.buffered = buffered;
+            this.demand = demand;
+            this.inFlight = inFlight;
+            this.submitted = submitted;
+            this.delivered = delivered;
+            this.dropped = dropped;
+        }
+
+        public String getId() { return id; }
+        public String getName() { return name; }
+        public int getBufferCapacity() { return bufferCapacity; }
+        public int getBuffered() { return buffered; }
+        //сколько заказов стадия может держать у следующей и сколько там сейчас
+        public int getDemand() { return demand; }
+        public long getInFlight() { return inFlight; }
+        public long getSubmitted() { return submitted; }
+        public long getDelivered() { return delivered; }
+        public long getDropped() { return dropped; }
+    }
+}
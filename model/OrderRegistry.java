@@ -0,0 +1,396 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+//заказы смены с индексами по статусу, официанту, повару и категории блюда; индексы правятся при каждом
+//переходе заказа (Restaurant.advanceOrder), так что выборка стоит столько, сколько заказов в ответе.
+//заказы разложены по полосам со своим замком, чтобы переходы разных заказов на потоках официантов и поваров
+//не стояли в одном мониторе; выборка обходит полосы и склеивает ответ по времени попадания в статус,
+//первый - дольше всех в нем. завершенные заказы хранятся retention: общая очередь завершений всех полос
+//вычищается с головы, когда завершается следующий заказ или когда ресторан зовет evictExpired
+public final class OrderRegistry {
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+    private static final int STRIPES = stripeCount();
+    private static final long NOT_FINISHED = Long.MIN_VALUE;
+
+    //под каким статусом и ключами заказ лежит в индексах сейчас
+    private static final class Entry {
+        final long sequence;
+        Order.OrderStatus status;
+        long statusNanos;
+        String waiter;
+        String cook;
+
+        Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    //заказ в ответе выборки с ключами сортировки на момент чтения полосы
+    private static final class Hit {
+        final Order order;
+        final int status;
+        final long statusNanos;
+        final long sequence;
+
+        Hit(Order order, Entry entry) {
+            this.order = order;
+            this.status = entry.status.ordinal();
+            this.statusNanos = entry.statusNanos;
+            this.sequence = entry.sequence;
+        }
+    }
+
+    private static final Comparator<Hit> ARRIVAL = Comparator.comparingLong(hit -> hit.sequence);
+    //статусы по порядку, внутри статуса - кто раньше в него попал
+    private static final Comparator<Hit> IN_STATUS = Comparator.<Hit>comparingInt(hit -> hit.status)
+            .thenComparingLong(hit -> hit.statusNanos)
+            .thenComparingLong(hit -> hit.sequence);
+
+    //завершенный заказ и момент завершения; в очереди завершений лежат по этому моменту
+    private static final class Finished {
+        final Order order;
+        final long nanos;
+
+        Finished(Order order, long nanos) {
+            this.order = order;
+            this.nanos = nanos;
+        }
+    }
+
+    private final long retentionNanos;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ConcurrentLinkedQueue<Finished> finished = new ConcurrentLinkedQueue<>();
+    //чистит один поток, остальные не ждут его: их просроченные уберет он или следующий вызов
+    private final ReentrantLock evicting = new ReentrantLock();
+
+    OrderRegistry(long retentionMillis) {
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos(retentionMillis);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    void add(Order order) {
+        Stripe stripe = stripe(order);
+        synchronized (stripe) {
+            stripe.add(order, sequence.incrementAndGet());
+        }
+    }
+
+    //переносит заказ в индексы по его текущим статусу, официанту и повару.
+    //возвращает завершенные заказы всех полос, срок хранения которых вышел
+    List<Order> refresh(Order order) {
+        Stripe stripe = stripe(order);
+        long finishedNanos;
+        synchronized (stripe) {
+            finishedNanos = stripe.refresh(order);
+        }
+        if (finishedNanos == NOT_FINISHED) return Collections.emptyList();
+
+        finished.offer(new Finished(order, finishedNanos));
+        return evictExpired(finishedNanos);
+    }
+
+    //просроченные завершенные заказы без нового завершения: последние в смене иначе так и остались бы
+    List<Order> evictExpired() {
+        return evictExpired(System.nanoTime());
+    }
+
+    private List<Order> evictExpired(long now) {
+        if (!evicting.tryLock()) return Collections.emptyList();
+        try {
+            List<Order> expired = null;
+            Finished head;
+            while ((head = finished.peek()) != null && now - head.nanos >= retentionNanos) {
+                finished.poll();
+                Stripe stripe = stripe(head.order);
+                synchronized (stripe) {
+                    if (!stripe.evict(head.order, head.nanos)) continue;
+                }
+                if (expired == null) expired = new ArrayList<>();
+                expired.add(head.order);
+            }
+            return expired == null ? Collections.<Order>emptyList() : expired;
+        } finally {
+            evicting.unlock();
+        }
+    }
+
+    void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        finished.clear();
+    }
+
+    //все заказы в порядке поступления
+    public List<Order> all() {
+        List<Hit> hits = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.forEach((order, entry) -> hits.add(new Hit(order, entry)));
+            }
+        }
+        return orders(hits, ARRIVAL);
+    }
+
+    public List<Order> byStatus(Order.OrderStatus status) {
+        List<Hit> hits = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.collect(stripe.byStatus.get(status), hits);
+            }
+        }
+        return orders(hits, IN_STATUS);
+    }
+
+    //status == null - в любом статусе
+    public List<Order> byWaiter(String waiter, Order.OrderStatus status) {
+        List<Hit> hits = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.byWaiter.find(waiter, status, stripe, hits);
+            }
+        }
+        return orders(hits, IN_STATUS);
+    }
+
+    public List<Order> byCook(String cook, Order.OrderStatus status) {
+        List<Hit> hits = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.byCook.find(cook, status, stripe, hits);
+            }
+        }
+        return orders(hits, IN_STATUS);
+    }
+
+    public List<Order> byCategory(Order.DishCategory category, Order.OrderStatus status) {
+        List<Hit> hits = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.byCategory.find(category, status, stripe, hits);
+            }
+        }
+        return orders(hits, IN_STATUS);
+    }
+
+    //дольше всех в этом статусе; null - таких нет. в полосе он первый в своем статусе
+    public Order oldest(Order.OrderStatus status) {
+        Hit oldest = null;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Order> it = stripe.byStatus.get(status).iterator();
+                if (!it.hasNext()) continue;
+                Order order = it.next();
+                Hit head = new Hit(order, stripe.entries.get(order));
+                if (oldest == null || IN_STATUS.compare(head, oldest) < 0) {
+                    oldest = head;
+                }
+            }
+        }
+        return oldest == null ? null : oldest.order;
+    }
+
+    public int count(Order.OrderStatus status) {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.byStatus.get(status).size();
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    //Order не переопределяет hashCode: полоса выбирается по адресу заказа, а не по id
+    private Stripe stripe(Order order) {
+        int h = System.identityHashCode(order);
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static List<Order> orders(List<Hit> hits, Comparator<Hit> order) {
+        hits.sort(order);
+        List<Order> orders = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            orders.add(hit.order);
+        }
+        return orders;
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    //полос больше, чем ядер: на одну полосу попадают заказы, которые двигаются одновременно
+    private static int stripeCount() {
+        int cpus = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+        return Integer.highestOneBit(Math.max(1, cpus)) * 4;
+    }
+
+    //индексы одной полосы; все методы вызываются под ее монитором
+    private static final class Stripe {
+        //Order не переопределяет equals: совпавшие id разных заказов друг друга не затрут
+        final Map<Order, Entry> entries = new LinkedHashMap<>();
+        final Map<Order.OrderStatus, Set<Order>> byStatus = new EnumMap<>(Order.OrderStatus.class);
+        final Index<String> byWaiter = new Index<>();
+        final Index<String> byCook = new Index<>();
+        final Index<Order.DishCategory> byCategory = new Index<>();
+
+        Stripe() {
+            for (Order.OrderStatus status : STATUSES) {
+                byStatus.put(status, new LinkedHashSet<>());
+            }
+        }
+
+        void add(Order order, long sequence) {
+            if (entries.containsKey(order)) return;
+            Entry entry = new Entry(sequence);
+            entries.put(order, entry);
+            entry.status = order.getStatus();
+            entry.statusNanos = System.nanoTime();
+            entry.waiter = order.getAssignedWaiter();
+            entry.cook = order.getAssignedCook();
+            byStatus.get(entry.status).add(order);
+            byWaiter.add(entry.waiter, entry.status, order);
+            byCook.add(entry.cook, entry.status, order);
+            byCategory.add(order.getDishCategory(), entry.status, order);
+        }
+
+        //статус меняет место заказа во всех индексах; смена официанта или повара - только в их индексе,
+        //заказ при этом не теряет своего места в статусе. возвращает момент завершения, если заказ
+        //только что завершился, иначе NOT_FINISHED
+        long refresh(Order order) {
+            Entry entry = entries.get(order);
+            if (entry == null) return NOT_FINISHED;
+
+            Order.OrderStatus status = order.getStatus();
+            String waiter = order.getAssignedWaiter();
+            String cook = order.getAssignedCook();
+            if (status == entry.status) {
+                if (!eq(waiter, entry.waiter)) {
+                    byWaiter.remove(entry.waiter, entry.status, order);
+                    byWaiter.add(waiter, entry.status, order);
+                    entry.waiter = waiter;
+                }
+                if (!eq(cook, entry.cook)) {
+                    byCook.remove(entry.cook, entry.status, order);
+                    byCook.add(cook, entry.status, order);
+                    entry.cook = cook;
+                }
+                return NOT_FINISHED;
+            }
+
+            boolean finished = status.isFinal() && !entry.status.isFinal();
+            byStatus.get(entry.status).remove(order);
+            byWaiter.remove(entry.waiter, entry.status, order);
+            byCook.remove(entry.cook, entry.status, order);
+            byCategory.remove(order.getDishCategory(), entry.status, order);
+            entry.status = status;
+            entry.statusNanos = System.nanoTime();
+            entry.waiter = waiter;
+            entry.cook = cook;
+            byStatus.get(status).add(order);
+            byWaiter.add(waiter, status, order);
+            byCook.add(cook, status, order);
+            byCategory.add(order.getDishCategory(), status, order);
+            return finished ? entry.statusNanos : NOT_FINISHED;
+        }
+
+        //false - заказа уже нет: смену очистили, пока он ждал в очереди завершений
+        boolean evict(Order order, long finishedNanos) {
+            Entry entry = entries.get(order);
+            if (entry == null || !entry.status.isFinal() || entry.statusNanos != finishedNanos) return false;
+            byStatus.get(entry.status).remove(order);
+            byWaiter.remove(entry.waiter, entry.status, order);
+            byCook.remove(entry.cook, entry.status, order);
+            byCategory.remove(order.getDishCategory(), entry.status, order);
+            entries.remove(order);
+            return true;
+        }
+
+        void collect(Set<Order> orders, List<Hit> hits) {
+            for (Order order : orders) {
+                hits.add(new Hit(order, entries.get(order)));
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            byStatus.values().forEach(Set::clear);
+            byWaiter.clear();
+            byCook.clear();
+            byCategory.clear();
+        }
+    }
+
+    //ключ -> статус -> заказы; пустые корзины удаляются, чтобы индекс не рос от ушедших сотрудников
+    private static final class Index<K> {
+        private final Map<K, Map<Order.OrderStatus, Set<Order>>> buckets = new HashMap<>();
+
+        void add(K key, Order.OrderStatus status, Order order) {
+            if (key == null) return;
+            buckets.computeIfAbsent(key, k -> new EnumMap<>(Order.OrderStatus.class))
+                    .computeIfAbsent(status, s -> new LinkedHashSet<>())
+                    .add(order);
+        }
+
+        void remove(K key, Order.OrderStatus status, Order order) {
+            if (key == null) return;
+            Map<Order.OrderStatus, Set<Order>> statuses = buckets.get(key);
+            if (statuses == null) return;
+            Set<Order> orders = statuses.get(status);
+            if (orders == null || !orders.remove(order)) return;
+            if (orders.isEmpty()) {
+                statuses.remove(status);
+                if (statuses.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+
+        void find(K key, Order.OrderStatus status, Stripe stripe, List<Hit> hits) {
+            Map<Order.OrderStatus, Set<Order>> statuses = buckets.get(key);
+            if (statuses == null) return;
+            if (status != null) {
+                Set<Order> orders = statuses.get(status);
+                if (orders != null) {
+                    stripe.collect(orders, hits);
+                }
+                return;
+            }
+            statuses.values().forEach(orders -> stripe.collect(orders, hits));
+        }
+
+        void clear() {
+            buckets.clear();
+        }
+    }
+}
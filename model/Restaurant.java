@@ -1,6 +1,18 @@
 package model;
 
-import gui.RestaurantGUI;
+import log.EventJournal;
+import log.EventLogger;
+import log.LogCategory;
+import log.LogLevel;
+import metrics.HistogramSnapshot;
+import metrics.KitchenDequeueEvent;
+import metrics.KitchenEnqueueEvent;
+import metrics.KitchenQueueEvent;
+import metrics.LatencyStats;
+import metrics.OrderReadyEvent;
+import metrics.PrometheusExporter;
+import metrics.RestaurantMonitor;
+import metrics.StripedCounters;
 
 import javax.swing.*;
 import java.awt.*;
@@ -8,45 +20,91 @@ import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Restaurant {
     private final BlockingQueue<Order> kitchenQueue;
     private final Map<String, Order> readyOrders;
+    //общая раздача: готовые заказы по порядку готовности, в режиме POOLED их уносит любой свободный официант
+    private final Queue<Order> pickupQueue = new ConcurrentLinkedQueue<>();
     private final Map<String, String> orderToWaiter;
-    private final RestaurantGUI gui;
+    private final RestaurantView gui;
+    private final EventLogger log;
+    private final EventJournal journal;
 
     private final List<Waiter> waiters;
     private final List<Cook> cooks;
     private ScheduledExecutorService clientScheduler;
-    private ExecutorService cookPool;
-    private ExecutorService waiterPool;
+    private volatile ExecutorService cookPool;
+    private volatile ExecutorService waiterPool;
     private ScheduledFuture<?> clientGenerationTask;
     private ScheduledFuture<?> loadScheduleTask;
 
     private final int maxQueueSize;
-    private final AtomicInteger totalOrders = new AtomicInteger(0);
-    private final AtomicInteger completedOrders = new AtomicInteger(0);
-    private final AtomicInteger waitingOrders = new AtomicInteger(0);
-    private final AtomicInteger cookingOrders = new AtomicInteger(0);
-    private final AtomicInteger deliveredOrders = new AtomicInteger(0);
+    //реализация очереди кухни фиксируется при создании ресторана, способ ожидания повара можно менять
+    private final KitchenQueues.Backend kitchenBackend = KitchenQueues.Backend.valueOf(
+            System.getProperty("restaurant.kitchen.queue", "INDEXED").trim().toUpperCase(Locale.ROOT));
+    private volatile KitchenQueues.WaitStrategy kitchenWait = KitchenQueues.WaitStrategy.valueOf(
+            System.getProperty("restaurant.kitchen.wait", "PARK").trim().toUpperCase(Locale.ROOT));
+    //каждый переход заказа - одна операция над счетчиками, срез для интерфейса всегда согласован
+    private final StripedCounters<OrderCounter> counters = new StripedCounters<>(OrderCounter.class);
 
     private final AtomicInteger waiterIndex = new AtomicInteger(0);
+    private final LatencyStats latencyStats = new LatencyStats();
 
+    //версия состояния растет при каждом изменении; срез строится только когда версия поменялась
+    private final AtomicLong stateVersion = new AtomicLong();
+    private volatile RestaurantSnapshot latestSnapshot;
+
+    private volatile long shiftStartTime;
     private volatile boolean isRunning = false;
     private volatile boolean isPaused = false;
     private volatile LoadMode currentLoadMode = LoadMode.NORMAL;
+    private volatile DeliveryMode deliveryMode =
+            DeliveryMode.valueOf(System.getProperty("restaurant.delivery.mode", "ASSIGNED").trim().toUpperCase(Locale.ROOT));
     private final Random random = new Random();
 
     private static final List<String> persistentHistory = Collections.synchronizedList(new ArrayList<>());
     private final List<String> sessionHistory = Collections.synchronizedList(new ArrayList<>());
 
-    private final List<Order> visibleKitchenQueue = Collections.synchronizedList(new ArrayList<>());
-    private final Map<String, List<Order>> waiterQueues = new ConcurrentHashMap<>();
+    private final Map<String, WaiterQueue> waiterQueues = new ConcurrentHashMap<>();
+    //заказы смены с индексами; завершенные держатся restaurant.registry.retention.ms (как и в таблице экрана)
+    private final OrderRegistry registry = new OrderRegistry(Long.getLong("restaurant.registry.retention.ms", 30000));
+    //доставленные заказы смены вне кучи; переживают stop() и очищаются со следующей сменой
+    private final DeliveredOrderArchive archive =
+            new DeliveredOrderArchive(Integer.getInteger("restaurant.archive.maxOrders", 1 << 22));
+    //заказы без официанта: все заняты или никто не работает; их разбирают свободные официанты
+    private static final String SHARED_QUEUE = "Общая очередь";
+    private static final String UNASSIGNED_QUEUE = "Ожидание";
 
     private final Object pauseLock = new Object();
     private volatile boolean shouldStopOnPause = false;
 
-    private static final int MAX_TOTAL_ORDERS = 100;
+    private volatile int maxTotalOrders = 100;
+    private volatile int maxOrdersPerWaiter = 50;
+
+    //поднос: сколько заказов официант уносит за один выход и сколько ждет (в мс симуляции),
+    //пока доготовятся остальные его заказы; 0 - берет только то, что уже готово
+    private volatile int trayCapacity = Integer.getInteger("restaurant.tray.capacity", 3);
+    private volatile int trayWindowMillis = Integer.getInteger("restaurant.tray.windowMs", 0);
+
+    //доля клиентов, заказывающих на весь стол по переменам, а не одно блюдо
+    private volatile double ticketShare = Double.parseDouble(System.getProperty("restaurant.tickets.share", "0"));
+
+    //режим конвейера применяется при открытии смены; buffer - сколько заказов ждет прием, прежде чем генератор встанет
+    private volatile PipelineMode pipelineMode =
+            PipelineMode.valueOf(System.getProperty("restaurant.pipeline", "QUEUES").trim().toUpperCase(Locale.ROOT));
+    private final int pipelineBuffer = Integer.getInteger("restaurant.pipeline.buffer", 8);
+    private volatile OrderPipeline pipeline;
+    //готовые перемены столов ждут официанта целиком, а не по блюду
+    private final Queue<List<Order>> readyCourses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger openTickets = new AtomicInteger();
+    private final AtomicInteger servedTickets = new AtomicInteger();
+
+    //во сколько раз ускорено время симуляции; 1 - реальное время
+    private volatile double timeScale = 1.0;
+    //без генерации клиентов заказы поступают только через addManualOrder, например от нагрузочного теста
+    private volatile boolean clientGenerationEnabled = true;
 
     private final Color MAIN_BG = new Color(248, 248, 250);
     private final Color ACCENT_BG = new Color(44, 47, 56);
@@ -56,7 +114,7 @@ public class Restaurant {
     private final Color BUTTON_ACTION = new Color(67, 117, 63);
 
     //нагрузка ресторана (к концу смена пик нагрузки, примерно в середине высокая, в остальное время обычная)
-    private enum LoadMode {
+    public enum LoadMode {
         NORMAL("Нормальная", 800, 1500),
         HIGH("Высокая", 400, 800),
         PEAK("Пиковая", 200, 400);
@@ -75,13 +133,53 @@ public class Restaurant {
         public int getDelay() {
             return minDelay + (int)(Math.random() * (maxDelay - minDelay));
         }
+
+        public double getMeanDelay() {
+            return (minDelay + maxDelay) / 2.0;
+        }
     }
 
-    public Restaurant(RestaurantGUI gui, int waiterCount, int cookCount) {
+    //кто уносит готовый заказ: принявший его официант или любой свободный
+    public enum DeliveryMode {
+        ASSIGNED("Свой официант"),
+        POOLED("Общая раздача");
+
+        private final String name;
+
+        DeliveryMode(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+    }
+
+    //как заказы идут по стадиям: блокирующие очереди с проверками вместимости или конвейер Flow со спросом
+    public enum PipelineMode {
+        QUEUES("Очереди"),
+        FLOW("Конвейер со спросом");
+
+        private final String name;
+
+        PipelineMode(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+    }
+
+    public Restaurant(RestaurantView gui, int waiterCount, int cookCount) {
+        this(gui, waiterCount, cookCount, 20);
+    }
+
+    public Restaurant(RestaurantView gui, int waiterCount, int cookCount, int maxQueueSize) {
         this.gui = gui;
-        this.maxQueueSize = 20;
+        this.log = new EventLogger(gui::logMessage);
+        this.journal = new EventJournal();
+        this.journal.start();
+        this.log.setJournal(journal);
+        this.maxQueueSize = maxQueueSize;
 
-        this.kitchenQueue = new LinkedBlockingQueue<>(maxQueueSize);
+        this.kitchenQueue = kitchenBackend.create(maxQueueSize);
         this.readyOrders = new ConcurrentHashMap<>();
         this.orderToWaiter = new ConcurrentHashMap<>();
 
@@ -89,13 +187,17 @@ public class Restaurant {
         this.cooks = Collections.synchronizedList(new ArrayList<>());
 
         initializeStaff(waiterCount, cookCount);
+
+        RestaurantMonitor.register(this);
+        PrometheusExporter.bindIfEnabled(this);
+        KitchenQueueEvent.bind(this);
     }
 
     private void initializeStaff(int waiterCount, int cookCount) {
         for (int i = 1; i <= waiterCount; i++) {
             Waiter waiter = new Waiter("Официант-" + i, this, gui);
             waiters.add(waiter);
-            waiterQueues.put(waiter.getName(), new ArrayList<>());
+            waiterQueues.put(waiter.getName(), new WaiterQueue());
         }
 
         int actualCookCount = cookCount;
@@ -107,39 +209,32 @@ public class Restaurant {
 
     public void start() {
         if (isRunning) {
-            gui.logMessage("Ресторан уже работает!");
+            log.warn(LogCategory.SYSTEM, "Ресторан уже работает!");
             return;
         }
 
-        isRunning = true;
-        isPaused = false;
-        shouldStopOnPause = false;
-        waiterIndex.set(0);
-
-        totalOrders.set(0);
-        waitingOrders.set(0);
-        cookingOrders.set(0);
-        deliveredOrders.set(0);
-        completedOrders.set(0);
-
-        visibleKitchenQueue.clear();
-        waiterQueues.values().forEach(List::clear);
-        readyOrders.clear();
-        orderToWaiter.clear();
+        openShift();
 
-        sessionHistory.clear();
-        sessionHistory.add("Ресторан начал работу: " + new Date());
+        if (pipelineMode == PipelineMode.FLOW) {
+            int acceptanceDemand = waiters.stream().mapToInt(Waiter::getMaxConcurrentOrders).sum();
+            pipeline = new OrderPipeline(log, pipelineBuffer, acceptanceDemand, this::dispatchToWaiter,
+                    maxQueueSize, this::acceptFromPipeline);
+        }
 
         this.clientScheduler = Executors.newScheduledThreadPool(5);
+        clientScheduler.scheduleWithFixedDelay(this::evictExpiredOrders, 1, 1, TimeUnit.SECONDS);
         this.cookPool = Executors.newFixedThreadPool(cooks.size());
-        this.waiterPool = Executors.newCachedThreadPool();
-
-        gui.logMessage("=== РЕСТОРАН ОТКРЫЛСЯ ===");
-        gui.logMessage("Смена продлится 3 минуты или до 100 заказов");
-        gui.logMessage("Режим: " + currentLoadMode.getName() + " нагрузка");
-        gui.logMessage("Очередь кухни: " + maxQueueSize + " мест");
-        gui.logMessage("Поваров: " + cooks.size() + " (специально мало для очереди)");
-        gui.logMessage("Лимит заказов: " + MAX_TOTAL_ORDERS);
+        //у официанта один цикл на все: прием, выдача и доставка
+        this.waiterPool = Executors.newFixedThreadPool(waiters.size());
+
+        log.info(LogCategory.SYSTEM, "=== РЕСТОРАН ОТКРЫЛСЯ ===");
+        log.info(LogCategory.SYSTEM, () -> "Смена продлится 3 минуты или до " + maxTotalOrders + " заказов");
+        log.info(LogCategory.SYSTEM, () -> "Режим: " + currentLoadMode.getName() + " нагрузка");
+        log.info(LogCategory.SYSTEM, () -> "Очередь кухни: " + maxQueueSize + " мест (" + kitchenBackend.getName() +
+                ", ожидание: " + kitchenWait.getName() + ")");
+        log.info(LogCategory.SYSTEM, () -> "Поваров: " + cooks.size() + " (специально мало для очереди)");
+        log.info(LogCategory.SYSTEM, () -> "Лимит заказов: " + maxTotalOrders);
+        log.info(LogCategory.SYSTEM, () -> "Конвейер: " + pipelineMode.getName());
 
         for (Cook cook : cooks) {
             cook.setCooking(true);
@@ -151,25 +246,69 @@ public class Restaurant {
             waiterPool.submit(waiter);
         }
 
-        startClientGeneration();
+        if (clientGenerationEnabled) {
+            startClientGeneration();
+            startLoadSchedule();
+        }
+
+        publishState();
+    }
 
-        startLoadSchedule();
+    //открывает смену: сбрасывает счетчики и очереди, но не запускает персонал и клиентов
+    void openShift() {
+        shiftStartTime = System.currentTimeMillis();
+        isRunning = true;
+        isPaused = false;
+        shouldStopOnPause = false;
+        waiterIndex.set(0);
+
+        counters.reset();
+        latencyStats.reset();
+
+        waiterQueues.values().forEach(WaiterQueue::clear);
+        registry.clear();
+        archive.clear();
+        readyOrders.clear();
+        pickupQueue.clear();
+        readyCourses.clear();
+        orderToWaiter.clear();
+        openTickets.set(0);
+        servedTickets.set(0);
+
+        sessionHistory.clear();
+        sessionHistory.add("Ресторан начал работу: " + new Date());
+
+        journal.startShift();
+    }
+
+    //кнопка в окне: пауза или продолжение. JMX вызывает pause()/resume() с явным состоянием,
+    //все три под одним монитором, чтобы одновременные вызовы не переключили дважды
+    public synchronized void togglePause() {
+        setPaused(!isPaused);
+    }
+
+    public synchronized void pause() {
+        setPaused(true);
+    }
 
-        gui.updateStatistics();
-        gui.updateQueueVisualization();
+    public synchronized void resume() {
+        setPaused(false);
     }
 
-    public void pause() {
+    private void setPaused(boolean paused) {
         if (!isRunning) {
-            gui.logMessage("Ресторан не работает!");
+            log.warn(LogCategory.SYSTEM, "Ресторан не работает!");
+            return;
+        }
+        if (isPaused == paused) {
             return;
         }
 
-        isPaused = !isPaused;
+        isPaused = paused;
 
         if (isPaused) {
-            gui.logMessage("=== ПАУЗА ===");
-            gui.logMessage("Все процессы ПРИОСТАНОВЛЕНЫ");
+            log.info(LogCategory.SYSTEM, "=== ПАУЗА ===");
+            log.info(LogCategory.SYSTEM, "Все процессы ПРИОСТАНОВЛЕНЫ");
 
             if (clientGenerationTask != null) {
                 clientGenerationTask.cancel(false);
@@ -190,7 +329,7 @@ public class Restaurant {
             shouldStopOnPause = true;
 
         } else {
-            gui.logMessage("=== ПРОДОЛЖЕНИЕ РАБОТЫ ===");
+            log.info(LogCategory.SYSTEM, "=== ПРОДОЛЖЕНИЕ РАБОТЫ ===");
 
             shouldStopOnPause = false;
 
@@ -210,8 +349,7 @@ public class Restaurant {
             startLoadSchedule();
         }
 
-        gui.updatePauseButton(isPaused);
-        gui.updateStatistics();
+        publishState();
     }
 
     public void checkPause() throws InterruptedException {
@@ -236,18 +374,46 @@ public class Restaurant {
         loadScheduleTask = clientScheduler.schedule(() -> {
             if (!isRunning || isPaused) return;
             setLoadMode(LoadMode.HIGH);
-        }, 1 * 60, TimeUnit.SECONDS);
+        }, scaled(60_000), TimeUnit.MILLISECONDS);
 
         clientScheduler.schedule(() -> {
             if (!isRunning || isPaused) return;
             setLoadMode(LoadMode.PEAK);
-        }, 2 * 60, TimeUnit.SECONDS);
+        }, scaled(120_000), TimeUnit.MILLISECONDS);
     }
 
-    private void setLoadMode(LoadMode mode) {
+    public void setLoadMode(LoadMode mode) {
+        if (currentLoadMode != mode) {
+            log.info(LogCategory.SYSTEM, () -> "Режим нагрузки: " + mode.getName());
+        }
         currentLoadMode = mode;
     }
 
+    public LoadMode getLoadMode() {
+        return currentLoadMode;
+    }
+
+    public synchronized void setDeliveryMode(DeliveryMode mode) {
+        if (deliveryMode == mode) return;
+        log.info(LogCategory.SYSTEM, () -> "Режим выдачи: " + mode.getName());
+        deliveryMode = mode;
+
+        if (mode == DeliveryMode.POOLED) {
+            //уже готовые заказы тоже на раздачу; повтор в очереди безвреден, забрать заказ можно один раз
+            List<Order> ready = new ArrayList<>(readyOrders.values());
+            ready.sort(Comparator.comparingLong(order -> order.getPhaseNanos(Order.Phase.READY)));
+            pickupQueue.addAll(ready);
+            wakeAllWaiters();
+        } else {
+            //готовые заказы остаются в readyOrders за своими официантами
+            pickupQueue.clear();
+        }
+    }
+
+    public DeliveryMode getDeliveryMode() {
+        return deliveryMode;
+    }
+
     private void startClientGeneration() {
         if (clientGenerationTask != null) {
             clientGenerationTask.cancel(false);
@@ -263,10 +429,13 @@ public class Restaurant {
             try {
                 if (!isRunning || isPaused) return;
 
-                if (totalOrders.get() >= MAX_TOTAL_ORDERS) {
+                OrderPipeline flow = pipeline;
+                if (flow != null && flow.isArrivalSaturated()) return;
+
+                if (counters.sum(OrderCounter.TOTAL) >= maxTotalOrders) {
                     if (isRunning) {
-                        gui.logMessage("Достигнут лимит в " + MAX_TOTAL_ORDERS + " заказов");
-                        gui.logMessage("Генерация новых клиентов приостановлена");
+                        log.warn(LogCategory.SYSTEM, () -> "Достигнут лимит в " + maxTotalOrders + " заказов");
+                        log.info(LogCategory.SYSTEM, "Генерация новых клиентов приостановлена");
                         stopClientGeneration();
 
                         showLimitReachedDialog();
@@ -277,19 +446,26 @@ public class Restaurant {
                 checkPause();
 
                 int delay = currentLoadMode.getDelay();
-                Thread.sleep(delay);
+                sleepScaled(delay);
 
                 if (!isRunning || isPaused) return;
 
                 checkPause();
 
                 String clientName = clientNames[random.nextInt(clientNames.length)];
+                if (random.nextDouble() < ticketShare) {
+                    Ticket ticket = Ticket.createRandomTicket(clientName);
+                    log.info(LogCategory.CLIENT, () -> "Клиент " + clientName + " заказал на стол " + ticket.size() +
+                            " блюд [Всего: " + (counters.sum(OrderCounter.TOTAL) + ticket.size()) + "/" + maxTotalOrders + "]");
+                    assignTicket(ticket);
+                    return;
+                }
                 Order order = Order.createRandomOrder(clientName);
-                int currentTotal = totalOrders.incrementAndGet();
+                long currentTotal = counters.sum(OrderCounter.TOTAL) + 1;
 
-                gui.logMessage("Клиент " + clientName + " заказал: " +
+                log.info(LogCategory.CLIENT, () -> "Клиент " + clientName + " заказал: " +
                         order.getDishName() + " (" + order.getDishCategory().getDisplayName() + ") " +
-                        "[Всего: " + currentTotal + "/" + MAX_TOTAL_ORDERS + "]");
+                        "[Всего: " + currentTotal + "/" + maxTotalOrders + "]");
 
                 assignOrderToWaiter(order);
 
@@ -309,6 +485,8 @@ public class Restaurant {
 
     //установка лимита заказов в 100 штук, т.к. экономит память и без него уходит в бесконечность и зависает
     private void showLimitReachedDialog() {
+        if (GraphicsEnvironment.isHeadless()) return;
+
         SwingUtilities.invokeLater(() -> {
             JDialog dialog = new JDialog((java.awt.Frame) null, "Лимит достигнут", true);
             dialog.setSize(500, 350);
@@ -343,13 +521,14 @@ public class Restaurant {
 
             StringBuilder message = new StringBuilder();
             message.append("Смена завершена по достижению лимита!\n\n");
-            message.append("Достигнут максимальный лимит: ").append(MAX_TOTAL_ORDERS).append(" заказов\n\n");
+            message.append("Достигнут максимальный лимит: ").append(maxTotalOrders).append(" заказов\n\n");
+            StripedCounters.Snapshot<OrderCounter> totals = counters.snapshot();
             message.append("Итоги смены:\n");
-            message.append("• Всего заказов: ").append(totalOrders.get()).append("\n");
-            message.append("• Доставлено: ").append(deliveredOrders.get()).append("\n");
-            message.append("• В ожидании: ").append(waitingOrders.get()).append("\n");
-            message.append("• Готовятся: ").append(cookingOrders.get()).append("\n");
-            message.append("• Готовы: ").append(readyOrders.size()).append("\n");
+            message.append("• Всего заказов: ").append(totals.get(OrderCounter.TOTAL)).append("\n");
+            message.append("• Доставлено: ").append(totals.get(OrderCounter.DELIVERED)).append("\n");
+            message.append("• В ожидании: ").append(totals.get(OrderCounter.WAITING)).append("\n");
+            message.append("• Готовятся: ").append(totals.get(OrderCounter.COOKING)).append("\n");
+            message.append("• Готовы: ").append(totals.get(OrderCounter.READY)).append("\n");
             message.append("• Очередь кухни: ").append(kitchenQueue.size()).append("/").append(maxQueueSize).append("\n\n");
             message.append("Новые заказы не принимаются.\n");
             message.append("Дождитесь завершения текущих заказов или завершите смену.");
@@ -381,13 +560,60 @@ public class Restaurant {
     }
 
     public void assignOrderToWaiter(Order order) {
-        waitingOrders.incrementAndGet();
-        gui.updateQueueVisualization();
+        submitOrder(order);
+    }
+
+    private boolean submitOrder(Order order) {
+        counters.add(OrderCounter.TOTAL, 1, OrderCounter.WAITING, 1);
+        registry.add(order);
+        publishState();
+        return dispatch(order, Collections.singletonList(order));
+    }
+
+    //стол принимает один официант по первому блюду; остальные блюда уходят на кухню по переменам
+    public boolean assignTicket(Ticket ticket) {
+        counters.add(OrderCounter.TOTAL, ticket.size(), OrderCounter.WAITING, ticket.size());
+        ticket.getItems().forEach(registry::add);
+        openTickets.incrementAndGet();
+        publishState();
+        if (!dispatch(ticket.getLead(), ticket.getItems())) {
+            openTickets.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
 
+    //на конвейере заказ сначала попадает в буфер приема; если он полон, заказ отклоняется целиком
+    private boolean dispatch(Order lead, List<Order> dishes) {
+        OrderPipeline flow = pipeline;
+        if (flow == null) {
+            dispatchToWaiter(lead);
+            return true;
+        }
+        if (flow.offerArrival(lead)) {
+            return true;
+        }
+        for (Order dish : dishes) {
+            advanceOrder(dish, Order.OrderStatus.CREATED, Order.OrderStatus.REJECTED);
+        }
+        log.warn(LogCategory.CLIENT, () -> "Прием переполнен, заказ " + lead.getId() + " отклонен");
+        publishState();
+        return false;
+    }
+
+    //официант взял заказ в работу; на конвейере это спрос для следующего заказа
+    void acceptanceTaken() {
+        OrderPipeline flow = pipeline;
+        if (flow != null) {
+            flow.acceptanceTaken();
+        }
+    }
+
+    private void dispatchToWaiter(Order order) {
         if (waiters.isEmpty()) {
-            gui.logMessage("Нет доступных официантов!");
-            addToWaiterQueue("Ожидание", order);
-            gui.updateStatistics();
+            log.warn(LogCategory.WAITER, "Нет доступных официантов!");
+            addToWaiterQueue(UNASSIGNED_QUEUE, order);
+            publishState();
             return;
         }
 
@@ -396,9 +622,9 @@ public class Restaurant {
                 .collect(java.util.stream.Collectors.toList());
 
         if (workingWaiters.isEmpty()) {
-            gui.logMessage("Все официанты не работают! Клиент " + order.getClientName() + " ждет...");
-            addToWaiterQueue("Ожидание", order);
-            gui.updateStatistics();
+            log.warn(LogCategory.WAITER, () -> "Все официанты не работают! Клиент " + order.getClientName() + " ждет...");
+            addToWaiterQueue(UNASSIGNED_QUEUE, order);
+            publishState();
             return;
         }
 
@@ -415,62 +641,129 @@ public class Restaurant {
         }
 
         if (selectedWaiter != null) {
-            selectedWaiter.acceptOrder(order);
-            gui.logMessage("Заказ " + order.getId() + " назначен " + selectedWaiter.getName() +
-                    " (активных: " + selectedWaiter.getCurrentOrders() + ", загруженность: " +
-                    selectedWaiter.getLoadPercentage() + "%)");
+            Waiter waiter = selectedWaiter;
+            order.markPhase(Order.Phase.ASSIGNED);
+            if (!waiter.acceptOrder(order)) {
+                addToWaiterQueue(SHARED_QUEUE, order);
+                return;
+            }
+            log.info(LogCategory.WAITER, () -> "Заказ " + order.getId() + " назначен " + waiter.getName() +
+                    " (активных: " + waiter.getCurrentOrders() + ", загруженность: " +
+                    waiter.getLoadPercentage() + "%)");
 
             addToWaiterQueue(selectedWaiter.getName(), order);
-            gui.updateStatistics();
+            publishState();
         } else {
-            gui.logMessage("Все официанты заняты! Заказ " + order.getId() + " ждет в общей очереди");
-            addToWaiterQueue("Общая очередь", order);
-            gui.updateStatistics();
+            log.warn(LogCategory.WAITER, () -> "Все официанты заняты! Заказ " + order.getId() + " ждет в общей очереди");
+            addToWaiterQueue(SHARED_QUEUE, order);
+            publishState();
         }
     }
 
     private void addToWaiterQueue(String waiterName, Order order) {
-        List<Order> queue = waiterQueues.get(waiterName);
-        if (queue == null) {
-            queue = Collections.synchronizedList(new ArrayList<>());
-            waiterQueues.put(waiterName, queue);
+        waiterQueues.computeIfAbsent(waiterName, name -> new WaiterQueue()).add(order);
+        publishState();
+    }
+
+    //свободный официант забирает прием у самого загруженного коллеги, а если таких нет - из общих очередей
+    Order stealAcceptanceWork(Waiter thief) {
+        Waiter victim = null;
+        int largestInbox = 0;
+        synchronized(waiters) {
+            for (Waiter waiter : waiters) {
+                int inbox = waiter.getInboxSize();
+                if (waiter != thief && inbox > largestInbox) {
+                    victim = waiter;
+                    largestInbox = inbox;
+                }
+            }
         }
-        synchronized(queue) {
-            if (queue.size() < 20) {
-                queue.add(order);
+
+        if (victim != null) {
+            Order order = victim.stealOrder();
+            if (order != null) {
+                String victimName = victim.getName();
+                removeFromWaiterQueue(victimName, order.getId());
+                addToWaiterQueue(thief.getName(), order);
+                log.debug(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + thief.getName() + " забрал заказ " + order.getId() +
+                        " у " + victimName);
+                return order;
             }
         }
-        gui.updateQueueVisualization();
+
+        for (String queueName : new String[]{SHARED_QUEUE, UNASSIGNED_QUEUE}) {
+            WaiterQueue queue = waiterQueues.get(queueName);
+            Order order = queue == null ? null : queue.poll();
+            if (order == null) continue;
+
+            order.markPhase(Order.Phase.ASSIGNED);
+            addToWaiterQueue(thief.getName(), order);
+            log.debug(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + thief.getName() + " забрал заказ " + order.getId() +
+                    " из очереди \"" + queueName + "\"");
+            return order;
+        }
+        return null;
     }
 
     private void removeFromWaiterQueue(String waiterName, String orderId) {
-        List<Order> queue = waiterQueues.get(waiterName);
-        if (queue != null) {
-            synchronized(queue) {
-                queue.removeIf(order -> order.getId().equals(orderId));
-            }
-            gui.updateQueueVisualization();
+        WaiterQueue queue = waiterQueues.get(waiterName);
+        if (queue != null && queue.remove(orderId)) {
+            publishState();
+        }
+    }
+
+    //false, если заказ не принят
+    public boolean addManualOrder(Order order) {
+        if (!admitManualOrder()) {
+            return false;
+        }
+
+        long currentTotal = counters.sum(OrderCounter.TOTAL) + 1;
+
+        log.info(LogCategory.CLIENT, () -> "Вручную добавлен заказ: " + order.getDishName() +
+                " для " + order.getClientName() +
+                " [Всего: " + currentTotal + "/" + maxTotalOrders + "]");
+
+        return submitOrder(order);
+    }
+
+    public boolean addManualTicket(Ticket ticket) {
+        if (!admitManualOrder()) {
+            return false;
         }
+
+        long currentTotal = counters.sum(OrderCounter.TOTAL) + ticket.size();
+
+        log.info(LogCategory.CLIENT, () -> "Вручную добавлен заказ на стол: " + ticket.size() + " блюд" +
+                " для " + ticket.getClientName() +
+                " [Всего: " + currentTotal + "/" + maxTotalOrders + "]");
+
+        return assignTicket(ticket);
     }
 
-    public void addManualOrder(Order order) {
+    private boolean admitManualOrder() {
         if (!isRunning) {
-            gui.logMessage("Ресторан не работает! Заказ не может быть принят.");
-            return;
+            log.warn(LogCategory.SYSTEM, "Ресторан не работает! Заказ не может быть принят.");
+            rejectOrder();
+            return false;
         }
 
         if (isPaused) {
-            gui.logMessage("Ресторан на паузе! Заказ не может быть принят.");
-            return;
+            log.warn(LogCategory.SYSTEM, "Ресторан на паузе! Заказ не может быть принят.");
+            rejectOrder();
+            return false;
         }
 
-        if (totalOrders.get() >= MAX_TOTAL_ORDERS) {
-            gui.logMessage("Достигнут лимит в " + MAX_TOTAL_ORDERS + " заказов!");
-            gui.logMessage("Новые заказы не принимаются.");
+        if (counters.sum(OrderCounter.TOTAL) >= maxTotalOrders) {
+            log.warn(LogCategory.SYSTEM, () -> "Достигнут лимит в " + maxTotalOrders + " заказов!");
+            log.info(LogCategory.SYSTEM, "Новые заказы не принимаются.");
+            rejectOrder();
+
+            if (GraphicsEnvironment.isHeadless()) return false;
 
             SwingUtilities.invokeLater(() -> {
                 JOptionPane optionPane = new JOptionPane(
-                        "Достигнут лимит в " + MAX_TOTAL_ORDERS + " заказов!\n" +
+                        "Достигнут лимит в " + maxTotalOrders + " заказов!\n" +
                                 "Новые заказы не принимаются.",
                         JOptionPane.WARNING_MESSAGE
                 );
@@ -478,20 +771,132 @@ public class Restaurant {
                 dialog.getContentPane().setBackground(MAIN_BG);
                 dialog.setVisible(true);
             });
+            return false;
+        }
+        return true;
+    }
+
+    //работа с очередью, сначала заказ в очередь
+    public boolean addToKitchenQueue(Order order, String waiterName) {
+        KitchenEnqueueEvent event = new KitchenEnqueueEvent();
+        event.begin();
+        boolean added = enqueueForKitchen(order, waiterName);
+        event.record(order, waiterName, added, kitchenQueue.size());
+        if (!added) {
+            //повторно заказ никто не подаст: снимаем его из очереди официанта и отклоняем
+            removeFromWaiterQueue(waiterName, order.getId());
+            orderToWaiter.remove(order.getId());
+            advanceOrder(order, Order.OrderStatus.WAITING_FOR_COOKING, Order.OrderStatus.REJECTED);
+            gui.updateOrderStatus(order);
+            publishState();
+        }
+        return added;
+    }
+
+    //перемены стола одна за другой: блюда перемены уходят на кухню параллельно, перемену несут,
+    //когда готово все, а следующая отправляется после подачи предыдущей. отправляет ее цикл официанта стола,
+    //а не поток того, кто подал прошлую перемену: постановка на кухню может ждать места
+    void startTicket(Ticket ticket, Waiter waiter) {
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (List<Order> course : ticket.getCourses()) {
+            chain = chain.thenComposeAsync(ignored -> serveCourse(ticket, course, waiter), waiter::execute);
+        }
+        chain.whenComplete((ignored, error) -> finishTicket(ticket, error));
+    }
+
+    private CompletableFuture<Void> serveCourse(Ticket ticket, List<Order> course, Waiter waiter) {
+        waiter.fireCourse(course);
+        ticket.courseReady(course).thenRun(() -> courseReady(ticket, course));
+        return ticket.courseDelivered(course);
+    }
+
+    //на раздачу идут только реально готовые блюда: отклоненные кухней перемена не ждет
+    private void courseReady(Ticket ticket, List<Order> course) {
+        List<Order> dishes = new ArrayList<>();
+        for (Order order : course) {
+            if (order.getStatus() == Order.OrderStatus.READY) {
+                dishes.add(order);
+            }
+        }
+        if (dishes.isEmpty()) return;
+
+        readyCourses.offer(dishes);
+        log.info(LogCategory.KITCHEN, () -> "Перемена " + Ticket.Course.of(dishes.get(0).getDishCategory()).getDisplayName() +
+                " для " + ticket + " готова");
+        if (deliveryMode == DeliveryMode.POOLED) {
+            wakeAllWaiters();
+        } else {
+            Waiter waiter = findWaiter(ticket.getWaiter());
+            if (waiter != null) {
+                waiter.wake();
+            }
+        }
+    }
+
+    private void finishTicket(Ticket ticket, Throwable error) {
+        openTickets.decrementAndGet();
+        Waiter waiter = findWaiter(ticket.getWaiter());
+        if (waiter != null) {
+            waiter.releaseOrder();
+        }
+        if (error != null) {
+            log.error(LogCategory.DELIVERY, () -> "Не удалось обслужить " + ticket + ": " + error.getMessage());
             return;
         }
+        servedTickets.incrementAndGet();
+        long turnMicros = (System.nanoTime() - ticket.getCreatedNanos()) / 1000;
+        latencyStats.recordTableTurn(turnMicros);
+        log.info(LogCategory.DELIVERY, () -> "Стол " + ticket.getClientName() + " обслужен за " + turnMicros / 1000_000 + "сек");
+        publishState();
+    }
+
+    //единственное место смены статуса заказа: счетчики двигаются только при удачном переходе
+    boolean advanceOrder(Order order, Order.OrderStatus from, Order.OrderStatus to) {
+        if (!order.transition(from, to)) {
+            return false;
+        }
+        OrderCounter source = OrderCounter.of(from);
+        OrderCounter target = OrderCounter.of(to);
+        if (source != target) {
+            counters.move(source, target);
+        }
+        reindex(order);
+        return true;
+    }
 
-        int currentTotal = totalOrders.incrementAndGet();
+    //официант и повар тоже ключи индексов, поэтому назначаются только здесь
+    void assignWaiter(Order order, String waiterName) {
+        order.setAssignedWaiter(waiterName);
+        reindex(order);
+    }
 
-        gui.logMessage("Вручную добавлен заказ: " + order.getDishName() +
-                " для " + order.getClientName() +
-                " [Всего: " + currentTotal + "/" + MAX_TOTAL_ORDERS + "]");
+    void assignCook(Order order, String cookName) {
+        order.setAssignedCook(cookName);
+        reindex(order);
+    }
 
-        assignOrderToWaiter(order);
+    private void reindex(Order order) {
+        List<Order> expired = registry.refresh(order);
+        if (!expired.isEmpty()) {
+            gui.removeOrders(expired);
+        }
     }
 
-    //работа с очередью, сначала заказ в очередь
-    public boolean addToKitchenQueue(Order order, String waiterName) {
+    //раз в секунду: когда заказы перестают завершаться, просроченные сами не уйдут
+    private void evictExpiredOrders() {
+        List<Order> expired = registry.evictExpired();
+        if (!expired.isEmpty()) {
+            gui.removeOrders(expired);
+        }
+    }
+
+    //отказ тоже меняет состояние, иначе закэшированный срез его не увидит
+    private void rejectOrder() {
+        counters.increment(OrderCounter.REJECTED);
+        publishState();
+    }
+
+    private boolean enqueueForKitchen(Order order, String waiterName) {
         try {
             checkPause();
         } catch (InterruptedException e) {
@@ -500,25 +905,28 @@ public class Restaurant {
         }
 
         if (!isRunning || isPaused) {
-            gui.logMessage("Ресторан не работает или на паузе! Заказ " + order.getId() + " ждет...");
+            log.warn(LogCategory.KITCHEN, () -> "Ресторан не работает или на паузе! Заказ " + order.getId() + " ждет...");
             return false;
         }
 
         removeFromWaiterQueue(waiterName, order.getId());
 
-        if (kitchenQueue.size() >= maxQueueSize) {
+        //на конвейере место на кухне ждет сам издатель, пока повара не дадут спрос
+        OrderPipeline flow = pipeline;
+        if (flow == null && kitchenQueue.size() >= maxQueueSize) {
             int queueSize = kitchenQueue.size();
-            gui.logMessage("Очередь на кухне ПЕРЕПОЛНЕНА! (" + queueSize + "/" + maxQueueSize + ")");
+            log.warn(LogCategory.KITCHEN, () -> "Очередь на кухне ПЕРЕПОЛНЕНА! (" + queueSize + "/" + maxQueueSize + ")");
 
             int waitCount = 0;
             while (kitchenQueue.size() >= maxQueueSize && isRunning && !isPaused && waitCount < 5) {
                 try {
                     checkPause();
-                    Thread.sleep(1000);
+                    sleepScaled(1000);
                     waitCount++;
 
                     if (kitchenQueue.size() >= maxQueueSize) {
-                        gui.logMessage("Ожидание в очереди... (" + waitCount + " сек)");
+                        int waited = waitCount;
+                        log.debug(LogCategory.KITCHEN, () -> "Ожидание в очереди... (" + waited + " сек)");
                     }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
@@ -533,95 +941,208 @@ public class Restaurant {
 
         try {
             orderToWaiter.put(order.getId(), waiterName);
-            kitchenQueue.put(order);
-
-            synchronized(visibleKitchenQueue) {
-                if (visibleKitchenQueue.size() < 50) {
-                    visibleKitchenQueue.add(order);
-                }
+            order.markPhase(Order.Phase.ENQUEUED);
+            if (flow == null) {
+                kitchenQueue.put(order);
+            } else if (!flow.offerKitchen(order, scaled(5000))) {
+                log.warn(LogCategory.KITCHEN, () -> "Кухня не дала места заказу " + order.getId());
+                return false;
             }
 
-            order.setStatus(Order.OrderStatus.WAITING_FOR_COOKING);
-            order.setAssignedWaiter(waiterName);
-
-            waitingOrders.decrementAndGet();
-            cookingOrders.incrementAndGet();
+            assignWaiter(order, waiterName);
 
-            gui.updateQueueStatus(kitchenQueue.size(), maxQueueSize);
             gui.updateOrderStatus(order);
-            gui.updateStatistics();
-            gui.updateQueueVisualization();
+            publishState();
 
-            int queueSize = kitchenQueue.size();
-            int fillPercentage = queueSize * 100 / maxQueueSize;
-            String status;
-            if (queueSize >= maxQueueSize) {
-                status = "ПЕРЕПОЛНЕНА!";
-            } else if (queueSize > maxQueueSize * 0.7) {
-                status = "Высокая загрузка";
-            } else if (queueSize > maxQueueSize * 0.4) {
-                status = "Средняя загрузка";
-            } else {
-                status = "Низкая загрузка";
+            if (log.isEnabled(LogLevel.DEBUG, LogCategory.KITCHEN)) {
+                int queueSize = kitchenQueue.size();
+                log.debug(LogCategory.KITCHEN, () -> "Очередь на кухне: " + describeQueueLoad(queueSize) +
+                        " (" + queueSize + "/" + maxQueueSize + ", " + queueSize * 100 / maxQueueSize + "%)");
             }
 
-            gui.logMessage("Очередь на кухне: " + status + " (" + queueSize + "/" + maxQueueSize + ", " + fillPercentage + "%)");
-
-            gui.logMessage("Заказ " + order.getId() + " добавлен в очередь кухни");
+            log.info(LogCategory.KITCHEN, () -> "Заказ " + order.getId() + " добавлен в очередь кухни");
 
             return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            gui.logMessage("Добавление заказа в очередь прервано: " + order.getId());
-            waitingOrders.decrementAndGet();
+            log.warn(LogCategory.KITCHEN, () -> "Добавление заказа в очередь прервано: " + order.getId());
             return false;
         }
     }
 
+    //стадия кухни конвейера кладет заказ в очередь без ожидания: ее спрос не больше мест в очереди.
+    //если места все же нет, заказ отклоняется, а спрос возвращается стадии; ждать тут нельзя,
+    //на этом же потоке конвейер раздает заказы официантам
+    private void acceptFromPipeline(Order order) {
+        if (kitchenQueue.offer(order)) return;
+
+        OrderPipeline flow = pipeline;
+        if (flow != null) {
+            flow.kitchenTaken();
+        }
+        if (!advanceOrder(order, Order.OrderStatus.WAITING_FOR_COOKING, Order.OrderStatus.REJECTED)) return;
+        Waiter owner = findWaiter(orderToWaiter.remove(order.getId()));
+        if (order.getTicket() != null) {
+            order.getTicket().itemSkipped(order);
+        } else if (owner != null) {
+            owner.releaseOrder();
+        }
+
+        log.warn(LogCategory.KITCHEN, () -> "Очередь кухни не приняла заказ " + order.getId() + ", заказ отклонен");
+        gui.updateOrderStatus(order);
+        publishState();
+    }
+
+    //снимает заказ, который еще ждет повара: заказ отклоняется, официант освобождает место.
+    //сначала переход статуса: если повар успел взять заказ, он остается у повара. если же после перехода
+    //заказ не удалось вынуть (его только что взяли или очередь не снимает из середины), повар увидит
+    //REJECTED и пропустит его
+    public boolean cancelQueuedOrder(String orderId) {
+        Order order = KitchenQueues.findById(kitchenQueue, orderId);
+        if (order == null || !advanceOrder(order, Order.OrderStatus.WAITING_FOR_COOKING, Order.OrderStatus.REJECTED)) {
+            return false;
+        }
+        if (KitchenQueues.remove(kitchenQueue, order)) {
+            OrderPipeline flow = pipeline;
+            if (flow != null) {
+                flow.kitchenTaken();
+            }
+        }
+        orderToWaiter.remove(orderId);
+        Waiter owner = findWaiter(order.getAssignedWaiter());
+        if (order.getTicket() != null) {
+            order.getTicket().itemSkipped(order);
+        } else if (owner != null) {
+            owner.releaseOrder();
+        }
+
+        log.info(LogCategory.KITCHEN, () -> "Заказ " + order.getId() + " снят с очереди кухни");
+        gui.updateOrderStatus(order);
+        publishState();
+        return true;
+    }
+
     //забираем из очереди
     public Order takeFromKitchenQueue() throws InterruptedException {
         checkPause();
 
-        Order order = kitchenQueue.take();
-
-        synchronized(visibleKitchenQueue) {
-            visibleKitchenQueue.remove(order);
+        KitchenDequeueEvent event = new KitchenDequeueEvent();
+        event.begin();
+        Order order = kitchenWait.take(kitchenQueue);
+        event.record(order, kitchenQueue.size());
+        OrderPipeline flow = pipeline;
+        if (flow != null) {
+            flow.kitchenTaken();
         }
 
-        gui.updateQueueStatus(kitchenQueue.size(), maxQueueSize);
-        gui.updateQueueVisualization();
+        publishState();
 
-        int queueSize = kitchenQueue.size();
-        if (queueSize > 0) {
-            gui.logMessage("Повар взял заказ из очереди. Осталось: " + queueSize + "/" + maxQueueSize);
+        if (log.isEnabled(LogLevel.DEBUG, LogCategory.KITCHEN)) {
+            int queueSize = kitchenQueue.size();
+            if (queueSize > 0) {
+                log.debug(LogCategory.KITCHEN, () -> "Повар взял заказ из очереди. Осталось: " + queueSize + "/" + maxQueueSize);
+            }
         }
 
         return order;
     }
 
+    private String describeQueueLoad(int queueSize) {
+        if (queueSize >= maxQueueSize) {
+            return "ПЕРЕПОЛНЕНА!";
+        } else if (queueSize > maxQueueSize * 0.7) {
+            return "Высокая загрузка";
+        } else if (queueSize > maxQueueSize * 0.4) {
+            return "Средняя загрузка";
+        }
+        return "Низкая загрузка";
+    }
+
     //готовим
     public void completeOrder(Order order) {
         if (order == null || !isRunning) return;
 
-        order.setStatus(Order.OrderStatus.READY);
+        if (!advanceOrder(order, Order.OrderStatus.COOKING, Order.OrderStatus.READY)) return;
+        if (order.getTicket() != null) {
+            //блюдо стола ждет остальных блюд своей перемены
+            gui.updateOrderStatus(order);
+            publishState();
+            new OrderReadyEvent().record(order, order.getAssignedWaiter());
+            order.getTicket().itemReady(order);
+            return;
+        }
         readyOrders.put(order.getId(), order);
 
-        cookingOrders.decrementAndGet();
-
         gui.updateOrderStatus(order);
-        gui.updateStatistics();
-        gui.updateQueueVisualization();
+        publishState();
+
+        OrderReadyEvent event = new OrderReadyEvent();
+        event.record(order, order.getAssignedWaiter());
+
+        if (deliveryMode == DeliveryMode.POOLED) {
+            pickupQueue.offer(order);
+            wakeAllWaiters();
+            log.info(LogCategory.KITCHEN, () -> "Заказ " + order.getId() + " готов и ждет на раздаче");
+            return;
+        }
 
         String waiterName = orderToWaiter.get(order.getId());
         if (waiterName != null) {
-            gui.logMessage("Заказ " + order.getId() + " готов! " + waiterName + " может забрать");
+            Waiter waiter = findWaiter(waiterName);
+            if (waiter != null) {
+                waiter.wake();
+            }
+            log.info(LogCategory.KITCHEN, () -> "Заказ " + order.getId() + " готов! " + waiterName + " может забрать");
         }
     }
 
+    Waiter findWaiter(String waiterName) {
+        synchronized(waiters) {
+            for (Waiter waiter : waiters) {
+                if (waiter.getName().equals(waiterName)) {
+                    return waiter;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void wakeAllWaiters() {
+        synchronized(waiters) {
+            for (Waiter waiter : waiters) {
+                waiter.wake();
+            }
+        }
+    }
+
+    //готовая перемена стола целиком; на общей раздаче ее может унести любой официант
+    public List<Order> takeReadyCourse(String waiterName) {
+        if (!isRunning || isPaused) return null;
+
+        for (List<Order> course : readyCourses) {
+            Ticket ticket = course.get(0).getTicket();
+            if (deliveryMode != DeliveryMode.POOLED && !waiterName.equals(ticket.getWaiter())) continue;
+            if (!readyCourses.remove(course)) continue;
+
+            for (Order order : course) {
+                order.markPhase(Order.Phase.PICKED_UP);
+                advanceOrder(order, Order.OrderStatus.READY, Order.OrderStatus.DELIVERING);
+                gui.updateOrderStatus(order);
+            }
+            publishState();
+            return course;
+        }
+        return null;
+    }
+
     //официант забирает и доставляет
     public Order takeReadyOrder(String waiterName) {
         if (!isRunning || isPaused) return null;
 
+        if (deliveryMode == DeliveryMode.POOLED) {
+            return peekPickupQueue();
+        }
+
         for (Map.Entry<String, String> entry : orderToWaiter.entrySet()) {
             if (entry.getValue().equals(waiterName)) {
                 String orderId = entry.getKey();
@@ -634,34 +1155,94 @@ public class Restaurant {
         return null;
     }
 
+    //голова раздачи; заказы, которые уже унесли, снимаем по дороге
+    private Order peekPickupQueue() {
+        Order head;
+        while ((head = pickupQueue.peek()) != null) {
+            if (readyOrders.containsKey(head.getId())) {
+                return head;
+            }
+            pickupQueue.remove(head);
+        }
+        return null;
+    }
+
+    public int countReadyOrders(String waiterName) {
+        if (deliveryMode == DeliveryMode.POOLED) {
+            return readyOrders.size();
+        }
+        int count = 0;
+        for (Map.Entry<String, String> entry : orderToWaiter.entrySet()) {
+            if (entry.getValue().equals(waiterName) && readyOrders.containsKey(entry.getKey())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //собирает поднос: готовые заказы официанта, не больше limit, каждый уже отмечен как взятый
+    public List<Order> takeReadyOrders(String waiterName, int limit) {
+        List<Order> tray = new ArrayList<>();
+        if (!isRunning || isPaused) return tray;
+
+        if (deliveryMode == DeliveryMode.POOLED) {
+            while (tray.size() < limit) {
+                Order order = pickupQueue.poll();
+                if (order == null) break;
+                if (markOrderAsTaken(order.getId())) {
+                    tray.add(order);
+                }
+            }
+            return tray;
+        }
+
+        for (Map.Entry<String, String> entry : orderToWaiter.entrySet()) {
+            if (tray.size() >= limit) break;
+            if (!entry.getValue().equals(waiterName)) continue;
+
+            String orderId = entry.getKey();
+            Order order = readyOrders.get(orderId);
+            if (order != null && order.getStatus() == Order.OrderStatus.READY && markOrderAsTaken(orderId)) {
+                tray.add(order);
+            }
+        }
+        return tray;
+    }
+
     public boolean markOrderAsTaken(String orderId) {
         Order order = readyOrders.remove(orderId);
-        if (order != null) {
-            orderToWaiter.remove(orderId);
-            return true;
+        if (order == null) {
+            return false;
         }
-        return false;
+        order.markPhase(Order.Phase.PICKED_UP);
+        orderToWaiter.remove(orderId);
+        if (!advanceOrder(order, Order.OrderStatus.READY, Order.OrderStatus.DELIVERING)) {
+            return false;
+        }
+        gui.updateOrderStatus(order);
+        publishState();
+        return true;
     }
 
     public void deliverOrder(Order order) {
         if (order == null || !isRunning) return;
 
-        order.setStatus(Order.OrderStatus.DELIVERED);
-        completedOrders.incrementAndGet();
-        deliveredOrders.incrementAndGet();
+        order.markPhase(Order.Phase.DELIVERED);
+        if (!advanceOrder(order, Order.OrderStatus.DELIVERING, Order.OrderStatus.DELIVERED)) return;
+        latencyStats.recordDelivered(order, deliveryMode);
+        archive.append(order);
 
         orderToWaiter.remove(order.getId());
         readyOrders.remove(order.getId());
 
-        gui.logMessage(order.getAssignedWaiter() + " доставил " +
+        log.info(LogCategory.DELIVERY, () -> order.getAssignedWaiter() + " доставил " +
                 order.getDishName() + " клиенту " + order.getClientName() +
-                " [Доставлено: " + deliveredOrders.get() + "]");
+                " [Доставлено: " + counters.sum(OrderCounter.DELIVERED) + "]");
         gui.updateOrderStatus(order);
-        gui.updateStatistics();
-        gui.updateQueueVisualization();
+        publishState();
 
-        if (deliveredOrders.get() % 20 == 0) {
-            gui.removeOldOrders();
+        if (order.getTicket() != null) {
+            order.getTicket().itemDelivered(order);
         }
     }
 
@@ -676,26 +1257,41 @@ public class Restaurant {
             pauseLock.notifyAll();
         }
 
-        gui.logMessage("Завершение работы... Очистка ресурсов");
+        log.flushSuppressed();
+        log.info(LogCategory.SYSTEM, "Завершение работы... Очистка ресурсов");
 
         stopClientGeneration();
 
+        List<String> pipelineSummary = getPipelineSummary();
+        if (pipeline != null) {
+            pipeline.close();
+            pipeline = null;
+        }
+
         kitchenQueue.clear();
-        visibleKitchenQueue.clear();
         readyOrders.clear();
+        pickupQueue.clear();
+        readyCourses.clear();
         orderToWaiter.clear();
         waiterQueues.clear();
+        registry.clear();
         sessionHistory.clear();
 
+        StripedCounters.Snapshot<OrderCounter> totals = counters.snapshot();
         synchronized(persistentHistory) {
             persistentHistory.add("=== НАЧАЛО СМЕНЫ ===");
             persistentHistory.add("Итоги смены:");
-            persistentHistory.add("Всего заказов: " + totalOrders.get());
-            persistentHistory.add("Доставлено заказов: " + deliveredOrders.get());
-            persistentHistory.add("В ожидании: " + waitingOrders.get());
-            persistentHistory.add("Готовятся: " + cookingOrders.get());
-            persistentHistory.add("Готовы: " + readyOrders.size());
+            persistentHistory.add("Всего заказов: " + totals.get(OrderCounter.TOTAL));
+            persistentHistory.add("Доставлено заказов: " + totals.get(OrderCounter.DELIVERED));
+            persistentHistory.add("В ожидании: " + totals.get(OrderCounter.WAITING));
+            persistentHistory.add("Готовятся: " + totals.get(OrderCounter.COOKING));
+            persistentHistory.add("Готовы: " + totals.get(OrderCounter.READY));
             persistentHistory.add("Очередь кухни: " + kitchenQueue.size() + "/" + maxQueueSize);
+            persistentHistory.addAll(getLatencySummary());
+            persistentHistory.addAll(pipelineSummary);
+            persistentHistory.add("Архив доставленных: " + archive.size() + " заказов, " +
+                    archive.getOffHeapBytes() / 1024 + " КБ вне кучи" +
+                    (archive.getDropped() > 0 ? ", не поместилось: " + archive.getDropped() : ""));
             persistentHistory.add("=== КОНЕЦ СМЕНЫ ===");
             persistentHistory.add("");
         }
@@ -752,16 +1348,18 @@ public class Restaurant {
         }
 
         gui.clearActiveOrders();
-        gui.updateQueueVisualization();
+        publishState();
 
         showCompletionDialog();
         showHistory();
     }
 
     public void showCompletionDialog() {
+        if (GraphicsEnvironment.isHeadless()) return;
+
         SwingUtilities.invokeLater(() -> {
             JDialog dialog = new JDialog((java.awt.Frame) null, "Смена завершена", true);
-            dialog.setSize(400, 350);
+            dialog.setSize(560, 480);
             dialog.setLayout(new BorderLayout());
             dialog.getContentPane().setBackground(MAIN_BG);
             dialog.setLocationRelativeTo(null);
@@ -790,14 +1388,19 @@ public class Restaurant {
             statsArea.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
             StringBuilder stats = new StringBuilder();
+            StripedCounters.Snapshot<OrderCounter> totals = counters.snapshot();
             stats.append("ИТОГИ СМЕНЫ:\n\n");
-            stats.append("Всего заказов: ").append(totalOrders.get()).append("\n");
-            stats.append("Доставлено: ").append(deliveredOrders.get()).append("\n");
-            stats.append("В ожидании: ").append(waitingOrders.get()).append("\n");
-            stats.append("Готовятся: ").append(cookingOrders.get()).append("\n");
-            stats.append("Готовы: ").append(readyOrders.size()).append("\n");
+            stats.append("Всего заказов: ").append(totals.get(OrderCounter.TOTAL)).append("\n");
+            stats.append("Доставлено: ").append(totals.get(OrderCounter.DELIVERED)).append("\n");
+            stats.append("В ожидании: ").append(totals.get(OrderCounter.WAITING)).append("\n");
+            stats.append("Готовятся: ").append(totals.get(OrderCounter.COOKING)).append("\n");
+            stats.append("Готовы: ").append(totals.get(OrderCounter.READY)).append("\n");
             stats.append("\nОчередь кухни: ").append(kitchenQueue.size()).append("/").append(maxQueueSize);
-            stats.append("\n\nЛимит заказов: ").append(totalOrders.get()).append("/").append(MAX_TOTAL_ORDERS);
+            stats.append("\n\nЛимит заказов: ").append(totals.get(OrderCounter.TOTAL)).append("/").append(maxTotalOrders);
+            stats.append("\n");
+            for (String line : getLatencySummary()) {
+                stats.append("\n").append(line);
+            }
 
             statsArea.setText(stats.toString());
 
@@ -874,13 +1477,13 @@ public class Restaurant {
     }
 
     private void showHistory() {
-        gui.logMessage("=== ИСТОРИЯ РАБОТЫ ===");
+        log.info(LogCategory.SYSTEM, "=== ИСТОРИЯ РАБОТЫ ===");
         synchronized(persistentHistory) {
             for (String record : persistentHistory) {
-                gui.logMessage(record);
+                log.info(LogCategory.SYSTEM, record);
             }
         }
-        gui.logMessage("=== КОНЕЦ ИСТОРИИ ===");
+        log.info(LogCategory.SYSTEM, "=== КОНЕЦ ИСТОРИИ ===");
     }
 
     public List<String> getPersistentHistory() {
@@ -895,22 +1498,116 @@ public class Restaurant {
         }
     }
 
+    public OrderRegistry getOrderRegistry() { return registry; }
+    public DeliveredOrderArchive getDeliveredArchive() { return archive; }
+
+    //для экрана хватает головы очереди
     public List<Order> getVisibleKitchenQueue() {
-        synchronized(visibleKitchenQueue) {
-            return new ArrayList<>(visibleKitchenQueue);
-        }
+        return KitchenQueues.snapshot(kitchenQueue, 50);
     }
 
+    //списки неизменяемые и пересобираются только у изменившихся очередей
     public Map<String, List<Order>> getWaiterQueues() {
-        Map<String, List<Order>> copy = new HashMap<>();
-        for (Map.Entry<String, List<Order>> entry : waiterQueues.entrySet()) {
-            synchronized(entry.getValue()) {
-                if (entry.getValue().size() > 0) {
-                    copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-                }
+        Map<String, List<Order>> views = new HashMap<>();
+        for (Map.Entry<String, WaiterQueue> entry : waiterQueues.entrySet()) {
+            List<Order> orders = entry.getValue().view();
+            if (!orders.isEmpty()) {
+                views.put(entry.getKey(), orders);
             }
         }
-        return copy;
+        return views;
+    }
+
+    public void publishState() {
+        stateVersion.incrementAndGet();
+    }
+
+    public long getStateVersion() {
+        return stateVersion.get();
+    }
+
+    //согласованные счетчики заказов без сотрудников и очередей: для сборщиков метрик.
+    //писатели счетчиков срез не ждут
+    public StripedCounters.Snapshot<OrderCounter> getOrderCounters() {
+        return counters.snapshot();
+    }
+
+    public RestaurantSnapshot getSnapshot() {
+        long version = stateVersion.get();
+        RestaurantSnapshot current = latestSnapshot;
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+
+        List<RestaurantSnapshot.WaiterState> waiterStates = new ArrayList<>();
+        for (Waiter waiter : getWaiters()) {
+            waiterStates.add(new RestaurantSnapshot.WaiterState(waiter));
+        }
+        List<RestaurantSnapshot.CookState> cookStates = new ArrayList<>();
+        for (Cook cook : getCooks()) {
+            cookStates.add(new RestaurantSnapshot.CookState(cook));
+        }
+
+        StripedCounters.Snapshot<OrderCounter> totals = counters.snapshot();
+        current = new RestaurantSnapshot(version, totals.getInt(OrderCounter.TOTAL), totals.getInt(OrderCounter.WAITING),
+                totals.getInt(OrderCounter.COOKING), totals.getInt(OrderCounter.READY),
+                totals.getInt(OrderCounter.DELIVERING), totals.getInt(OrderCounter.DELIVERED),
+                totals.getInt(OrderCounter.REJECTED), kitchenQueue.size(), maxQueueSize,
+                isRunning, isPaused, waiterStates, cookStates, getVisibleKitchenQueue(), getWaiterQueues());
+        latestSnapshot = current;
+        return current;
+    }
+
+    public LatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
+    //время от заказа до доставки по категориям для итогов смены
+    private List<String> getLatencySummary() {
+        List<String> lines = new ArrayList<>();
+        for (Order.DishCategory category : Order.DishCategory.values()) {
+            HistogramSnapshot total = latencyStats.getCategorySnapshot(category, LatencyStats.Stage.TOTAL);
+            if (total.getCount() > 0) {
+                lines.add(category.getDisplayName() + " (" + total.getCount() + "): " +
+                        LatencyStats.formatPercentiles(total));
+            }
+        }
+        if (!lines.isEmpty()) {
+            lines.add(0, "Время от заказа до доставки:");
+        }
+        for (DeliveryMode mode : DeliveryMode.values()) {
+            HistogramSnapshot handoff = latencyStats.getDeliveryModeSnapshot(mode);
+            if (handoff.getCount() > 0) {
+                lines.add("От готовности до доставки, " + mode.getName().toLowerCase() + " (" + handoff.getCount() + "): " +
+                        LatencyStats.formatPercentiles(handoff));
+            }
+        }
+        HistogramSnapshot tableTurn = latencyStats.getTableTurnSnapshot();
+        if (tableTurn.getCount() > 0) {
+            lines.add("Обслуживание стола (" + tableTurn.getCount() + "): " + LatencyStats.formatPercentiles(tableTurn));
+        }
+        return lines;
+    }
+
+    private List<String> getPipelineSummary() {
+        List<String> lines = new ArrayList<>();
+        OrderPipeline flow = pipeline;
+        if (flow == null) return lines;
+
+        lines.add("Конвейер (пропущено тактов генератора: " + flow.getThrottled() + "):");
+        for (OrderPipeline.StageState stage : flow.getStages()) {
+            lines.add(stage.getName() + ": передано " + stage.getDelivered() + ", отклонено " + stage.getDropped() +
+                    ", в буфере " + stage.getBuffered() + "/" + stage.getBufferCapacity());
+        }
+        return lines;
+    }
+
+    public EventLogger getLogger() {
+        return log;
+    }
+
+    public EventJournal getJournal() {
+        return journal;
     }
 
     public boolean isPaused() {
@@ -919,11 +1616,11 @@ public class Restaurant {
 
     public int getQueueSize() { return kitchenQueue.size(); }
     public int getMaxQueueSize() { return maxQueueSize; }
-    public int getReadyOrdersCount() { return readyOrders.size(); }
-    public int getTotalOrders() { return totalOrders.get(); }
-    public int getWaitingOrders() { return waitingOrders.get(); }
-    public int getCookingOrders() { return cookingOrders.get(); }
-    public int getDeliveredOrders() { return deliveredOrders.get(); }
+    public int getReadyOrdersCount() { return (int) counters.sum(OrderCounter.READY); }
+    public int getTotalOrders() { return (int) counters.sum(OrderCounter.TOTAL); }
+    public int getWaitingOrders() { return (int) counters.sum(OrderCounter.WAITING); }
+    public int getCookingOrders() { return (int) counters.sum(OrderCounter.COOKING); }
+    public int getDeliveredOrders() { return (int) counters.sum(OrderCounter.DELIVERED); }
     public List<Waiter> getWaiters() {
         synchronized(waiters) {
             return new ArrayList<>(waiters);
@@ -935,4 +1632,82 @@ public class Restaurant {
         }
     }
     public boolean isRunning() { return isRunning; }
+    public int getRejectedOrders() { return (int) counters.sum(OrderCounter.REJECTED); }
+    public int getOpenTickets() { return openTickets.get(); }
+    public List<OrderPipeline.StageState> getPipelineStages() {
+        OrderPipeline flow = pipeline;
+        return flow == null ? Collections.emptyList() : flow.getStages();
+    }
+    public long getPipelineThrottled() {
+        OrderPipeline flow = pipeline;
+        return flow == null ? 0 : flow.getThrottled();
+    }
+    public int getServedTickets() { return servedTickets.get(); }
+    public long getShiftStartTime() { return shiftStartTime; }
+
+    public void setTimeScale(double timeScale) {
+        this.timeScale = Math.max(1.0, timeScale);
+    }
+
+    public double getTimeScale() { return timeScale; }
+
+    public void setClientGenerationEnabled(boolean enabled) {
+        this.clientGenerationEnabled = enabled;
+    }
+
+    public void setMaxTotalOrders(int maxTotalOrders) {
+        this.maxTotalOrders = maxTotalOrders;
+    }
+
+    public int getMaxTotalOrders() { return maxTotalOrders; }
+
+    public void setMaxOrdersPerWaiter(int maxOrdersPerWaiter) {
+        this.maxOrdersPerWaiter = maxOrdersPerWaiter;
+    }
+
+    public int getMaxOrdersPerWaiter() { return maxOrdersPerWaiter; }
+
+    public void setTrayCapacity(int trayCapacity) {
+        this.trayCapacity = Math.max(1, trayCapacity);
+    }
+
+    public int getTrayCapacity() { return trayCapacity; }
+
+    public void setTrayWindowMillis(int trayWindowMillis) {
+        this.trayWindowMillis = Math.max(0, trayWindowMillis);
+    }
+
+    public int getTrayWindowMillis() { return trayWindowMillis; }
+
+    public void setTicketShare(double ticketShare) {
+        this.ticketShare = Math.max(0, Math.min(1, ticketShare));
+    }
+
+    public double getTicketShare() { return ticketShare; }
+
+    public KitchenQueues.Backend getKitchenBackend() { return kitchenBackend; }
+
+    public void setKitchenWaitStrategy(KitchenQueues.WaitStrategy kitchenWait) {
+        this.kitchenWait = kitchenWait;
+    }
+
+    public KitchenQueues.WaitStrategy getKitchenWaitStrategy() { return kitchenWait; }
+
+    //вступает в силу со следующей смены
+    public void setPipelineMode(PipelineMode pipelineMode) {
+        this.pipelineMode = pipelineMode;
+    }
+
+    public PipelineMode getPipelineMode() { return pipelineMode; }
+
+    //длительность симулируемой работы с учетом ускорения времени
+    long scaled(long millis) {
+        return Math.max(1, Math.round(millis / timeScale));
+    }
+
+    void sleepScaled(long millis) throws InterruptedException {
+        Thread.sleep(scaled(millis));
+    }
+    public ExecutorService getCookPool() { return cookPool; }
+    public ExecutorService getWaiterPool() { return waiterPool; }
 }
\ No newline at end of file
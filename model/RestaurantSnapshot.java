@@ -0,0 +1,110 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+//неизменяемый срез состояния ресторана для отрисовки интерфейса
+public final class RestaurantSnapshot {
+    private final long version;
+    private final int totalOrders;
+    private final int waitingOrders;
+    private final int cookingOrders;
+    private final int readyOrders;
+    private final int deliveringOrders;
+    private final int deliveredOrders;
+    private final int rejectedOrders;
+    private final int queueSize;
+    private final int maxQueueSize;
+    private final boolean running;
+    private final boolean paused;
+    private final List<WaiterState> waiters;
+    private final List<CookState> cooks;
+    private final List<Order> kitchenQueue;
+    private final Map<String, List<Order>> waiterQueues;
+
+    RestaurantSnapshot(long version, int totalOrders, int waitingOrders, int cookingOrders,
+                       int readyOrders, int deliveringOrders, int deliveredOrders, int rejectedOrders,
+                       int queueSize, int maxQueueSize,
+                       boolean running, boolean paused, List<WaiterState> waiters, List<CookState> cooks,
+                       List<Order> kitchenQueue, Map<String, List<Order>> waiterQueues) {
+        this.version = version;
+        this.totalOrders = totalOrders;
+        this.waitingOrders = waitingOrders;
+        this.cookingOrders = cookingOrders;
+        this.readyOrders = readyOrders;
+        this.deliveringOrders = deliveringOrders;
+        this.deliveredOrders = deliveredOrders;
+        this.rejectedOrders = rejectedOrders;
+        this.queueSize = queueSize;
+        this.maxQueueSize = maxQueueSize;
+        this.running = running;
+        this.paused = paused;
+        this.waiters = Collections.unmodifiableList(waiters);
+        this.cooks = Collections.unmodifiableList(cooks);
+        this.kitchenQueue = Collections.unmodifiableList(kitchenQueue);
+        this.waiterQueues = Collections.unmodifiableMap(waiterQueues);
+    }
+
+    public long getVersion() { return version; }
+    public int getTotalOrders() { return totalOrders; }
+    public int getWaitingOrders() { return waitingOrders; }
+    public int getCookingOrders() { return cookingOrders; }
+    public int getReadyOrders() { return readyOrders; }
+    public int getDeliveringOrders() { return deliveringOrders; }
+    public int getDeliveredOrders() { return deliveredOrders; }
+    public int getRejectedOrders() { return rejectedOrders; }
+    public int getQueueSize() { return queueSize; }
+    public int getMaxQueueSize() { return maxQueueSize; }
+    public boolean isRunning() { return running; }
+    public boolean isPaused() { return paused; }
+    public List<WaiterState> getWaiters() { return waiters; }
+    public List<CookState> getCooks() { return cooks; }
+    public List<Order> getKitchenQueue() { return kitchenQueue; }
+    public Map<String, List<Order>> getWaiterQueues() { return waiterQueues; }
+
+    public static final class WaiterState {
+        private final String name;
+        private final boolean working;
+        private final int ordersServed;
+        private final int ordersAccepted;
+        private final int currentOrders;
+        private final int maxConcurrentOrders;
+
+        WaiterState(Waiter waiter) {
+            this.name = waiter.getName();
+            this.working = waiter.isWorking();
+            this.ordersServed = waiter.getOrdersServed();
+            this.ordersAccepted = waiter.getOrdersAccepted();
+            this.currentOrders = waiter.getCurrentOrders();
+            this.maxConcurrentOrders = waiter.getMaxConcurrentOrders();
+        }
+
+        public String getName() { return name; }
+        public boolean isWorking() { return working; }
+        public int getOrdersServed() { return ordersServed; }
+        public int getOrdersAccepted() { return ordersAccepted; }
+        public int getCurrentOrders() { return currentOrders; }
+        public int getMaxConcurrentOrders() { return maxConcurrentOrders; }
+
+        public int getLoadPercentage() {
+            return (currentOrders * 100) / maxConcurrentOrders;
+        }
+    }
+
+    public static final class CookState {
+        private final String name;
+        private final boolean cooking;
+        private final int ordersCooked;
+
+        CookState(Cook cook) {
+            this.name = cook.getName();
+            this.cooking = cook.isCooking();
+            this.ordersCooked = cook.getOrdersCooked();
+        }
+
+        public String getName() { return name; }
+        public boolean isCooking() { return cooking; }
+        public int getOrdersCooked() { return ordersCooked; }
+    }
+}
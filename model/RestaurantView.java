@@ -0,0 +1,13 @@
+package model;
+
+import java.util.List;
+
+//то, что движку ресторана нужно от интерфейса; позволяет запускать движок без окна
+public interface RestaurantView {
+    void logMessage(String message);
+    void updateOrderStatus(Order order);
+    void updateCookingProgress(Order order);
+    void clearActiveOrders();
+    //заказы, вычищенные из реестра по сроку хранения
+    void removeOrders(List<Order> orders);
+}
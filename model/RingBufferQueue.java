@@ -0,0 +1,244 @@
+package model;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+//ограниченная очередь на кольцевом буфере без блокировок (схема Вьюкова): ячейки выделены заранее,
+//у каждой свой номер хода, производители и потребители занимают позиции CAS-ом по своему счетчику.
+//на быстром пути ничего не выделяет; ждущие потоки паркуются и будятся встречной стороной
+public final class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    //8 long = 64 байта, счетчики головы и хвоста на разных кэш-линиях
+    private static final int PAD = 8;
+    private static final int TAIL = PAD;
+    private static final int HEAD = 2 * PAD;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    //номер хода ячейки: равен позиции - ячейка свободна для записи, позиции + 1 - в ней элемент для чтения
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray positions = new AtomicLongArray(3 * PAD);
+
+    private final Queue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    public RingBufferQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Емкость очереди должна быть больше нуля: " + capacity);
+        }
+        this.capacity = capacity;
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+
+        long pos = positions.get(TAIL);
+        for (;;) {
+            //голова только растет, поэтому проверка по прочитанной голове не пропустит лишний элемент
+            if (pos - positions.get(HEAD) >= capacity) {
+                return false;
+            }
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (positions.compareAndSet(TAIL, pos, pos + 1)) break;
+                pos = positions.get(TAIL);
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = positions.get(TAIL);
+            }
+        }
+        int index = (int) pos & mask;
+        slots.lazySet(index, e);
+        sequences.set(index, pos + 1);
+        signal(waitingConsumers);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long pos = positions.get(HEAD);
+        for (;;) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (positions.compareAndSet(HEAD, pos, pos + 1)) break;
+                pos = positions.get(HEAD);
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = positions.get(HEAD);
+            }
+        }
+        int index = (int) pos & mask;
+        E e = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.set(index, pos + mask + 1);
+        signal(waitingProducers);
+        return e;
+    }
+
+    //приблизительно: голову могут забрать сразу после чтения
+    @Override
+    public E peek() {
+        long pos = positions.get(HEAD);
+        int index = (int) pos & mask;
+        return sequences.get(index) == pos + 1 ? slots.get(index) : null;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            await(waitingProducers, this::isFull, false, 0);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return false;
+            await(waitingProducers, this::isFull, true, left);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            await(waitingConsumers, this::isEmpty, false, 0);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        while ((e = poll()) == null) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return null;
+            await(waitingConsumers, this::isEmpty, true, left);
+        }
+        return e;
+    }
+
+    //встаем в список ждущих, перепроверяем условие и только потом паркуемся: встречная сторона
+    //сначала публикует изменение, потом смотрит список, так что пробуждение не теряется
+    private void await(Queue<Thread> waiting, BooleanSupplier blocked, boolean timed, long nanos)
+            throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+
+        Thread current = Thread.currentThread();
+        waiting.offer(current);
+        try {
+            if (blocked.getAsBoolean()) {
+                if (timed) {
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            waiting.remove(current);
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    private void signal(Queue<Thread> waiting) {
+        if (waiting.isEmpty()) return;
+        Thread thread = waiting.poll();
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private boolean isFull() {
+        return size() >= capacity;
+    }
+
+    @Override
+    public int size() {
+        long size = positions.get(TAIL) - positions.get(HEAD);
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return positions.get(TAIL) == positions.get(HEAD);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) throw new IllegalArgumentException();
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = poll()) != null) {
+            c.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) { }
+    }
+
+    //слабосогласованный обход по копии занятых ячеек; удаление через итератор не поддерживается
+    @Override
+    public Iterator<E> iterator() {
+        List<E> copy = new ArrayList<>();
+        long tail = positions.get(TAIL);
+        for (long pos = positions.get(HEAD); pos < tail; pos++) {
+            int index = (int) pos & mask;
+            E e = slots.get(index);
+            if (e != null && sequences.get(index) == pos + 1) {
+                copy.add(e);
+            }
+        }
+        Iterator<E> iterator = copy.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() { return iterator.hasNext(); }
+
+            @Override
+            public E next() { return iterator.next(); }
+        };
+    }
+}
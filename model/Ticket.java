@@ -0,0 +1,136 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+//заказ стола: несколько блюд, которые подаются по переменам. блюда одной перемены готовятся параллельно
+//и выносятся вместе, следующая перемена уходит на кухню после подачи предыдущей
+public class Ticket {
+    public enum Course {
+        STARTERS("Закуски"),
+        MAINS("Основные"),
+        DESSERTS("Десерты");
+
+        private final String displayName;
+
+        Course(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() { return displayName; }
+
+        //напитки несут сразу, вместе с закусками
+        public static Course of(Order.DishCategory category) {
+            switch (category) {
+                case MAIN_COURSE:
+                case SIDE_DISH: return MAINS;
+                case DESSERT: return DESSERTS;
+                default: return STARTERS;
+            }
+        }
+    }
+
+    private final String id;
+    private final String clientName;
+    private final long createdNanos;
+    private final Map<Course, List<Order>> courses = new EnumMap<>(Course.class);
+    private final List<Order> items = new ArrayList<>();
+    private final Map<String, CompletableFuture<Order>> ready = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Order>> delivered = new ConcurrentHashMap<>();
+    private volatile String waiter;
+
+    public Ticket(String clientName, List<Order> dishes) {
+        if (dishes.isEmpty()) {
+            throw new IllegalArgumentException("В заказе стола должно быть хотя бы одно блюдо");
+        }
+        this.id = UUID.randomUUID().toString().substring(0, 8);
+        this.clientName = clientName;
+        this.createdNanos = System.nanoTime();
+
+        for (Order dish : dishes) {
+            courses.computeIfAbsent(Course.of(dish.getDishCategory()), course -> new ArrayList<>()).add(dish);
+        }
+        for (List<Order> course : courses.values()) {
+            for (Order dish : course) {
+                dish.setTicket(this);
+                items.add(dish);
+                ready.put(dish.getId(), new CompletableFuture<>());
+                delivered.put(dish.getId(), new CompletableFuture<>());
+            }
+        }
+    }
+
+    //суп или салат, основное с гарниром, напиток и иногда десерт
+    public static Ticket createRandomTicket(String clientName) {
+        List<Order> dishes = new ArrayList<>();
+        dishes.add(randomDish(clientName, Order.DishCategory.APPETIZER, Order.DishCategory.SALAD, Order.DishCategory.SOUP));
+        dishes.add(randomDish(clientName, Order.DishCategory.MAIN_COURSE));
+        if (Math.random() < 0.5) {
+            dishes.add(randomDish(clientName, Order.DishCategory.SIDE_DISH));
+        }
+        dishes.add(randomDish(clientName, Order.DishCategory.DRINK));
+        if (Math.random() < 0.4) {
+            dishes.add(randomDish(clientName, Order.DishCategory.DESSERT));
+        }
+        return new Ticket(clientName, dishes);
+    }
+
+    private static Order randomDish(String clientName, Order.DishCategory... categories) {
+        Order.DishCategory category = categories[(int) (Math.random() * categories.length)];
+        return new Order(clientName, category.getRandomDishName(), category);
+    }
+
+    //блюдо, с которого стол попадает к официанту: оно представляет весь заказ в очередях приема
+    public Order getLead() {
+        return items.get(0);
+    }
+
+    public List<List<Order>> getCourses() {
+        return new ArrayList<>(courses.values());
+    }
+
+    public List<Order> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    //готовность всей перемены: соединение готовности каждого ее блюда
+    CompletableFuture<Void> courseReady(List<Order> course) {
+        return CompletableFuture.allOf(course.stream().map(dish -> ready.get(dish.getId())).toArray(CompletableFuture[]::new));
+    }
+
+    CompletableFuture<Void> courseDelivered(List<Order> course) {
+        return CompletableFuture.allOf(course.stream().map(dish -> delivered.get(dish.getId())).toArray(CompletableFuture[]::new));
+    }
+
+    void itemReady(Order dish) {
+        ready.get(dish.getId()).complete(dish);
+    }
+
+    void itemDelivered(Order dish) {
+        delivered.get(dish.getId()).complete(dish);
+    }
+
+    //кухня отказала: перемена собирается без этого блюда
+    void itemSkipped(Order dish) {
+        ready.get(dish.getId()).complete(dish);
+        delivered.get(dish.getId()).complete(dish);
+    }
+
+    public String getId() { return id; }
+    public String getClientName() { return clientName; }
+    public long getCreatedNanos() { return createdNanos; }
+    public int size() { return items.size(); }
+    public String getWaiter() { return waiter; }
+    void setWaiter(String waiter) { this.waiter = waiter; }
+
+    @Override
+    public String toString() {
+        return "стол " + clientName + " (" + items.size() + " блюд)";
+    }
+}
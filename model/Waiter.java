@@ -1,226 +1,328 @@
 package model;
 
-import gui.RestaurantGUI;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import log.EventLogger;
+import log.LogCategory;
+import metrics.DeliverOrderEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 public class Waiter implements Runnable {
     private final String name;
     private final Restaurant restaurant;
-    private final RestaurantGUI gui;
+    private final RestaurantView gui;
+    private final EventLogger log;
     private volatile boolean isWorking = false;
     private volatile boolean isPaused = false;
-    private int ordersServed = 0;
-    private int ordersAccepted = 0;
+    //пишет только поток официанта, читают интерфейс и статистика
+    private volatile int ordersServed = 0;
+    private volatile int ordersAccepted = 0;
 
     private static final int MAX_CONCURRENT_ORDERS = 3;
     private final AtomicInteger currentOrders = new AtomicInteger(0);
 
-    private static final int MAX_TOTAL_ORDERS_PER_WAITER = 50;
-    private int totalOrdersHandled = 0;
+    private volatile int totalOrdersHandled = 0;
 
-    //обработка заказа
-    private final BlockingQueue<Order> orderAcceptanceQueue = new ArrayBlockingQueue<>(10);
-    private Thread orderAcceptanceThread;
+    //входящие заказы: хозяин берет с головы, свободные коллеги забирают с хвоста
+    private static final int INBOX_CAPACITY = 10;
+    private final ConcurrentLinkedDeque<Order> inbox = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger inboxSize = new AtomicInteger(0);
+    private volatile Thread loopThread;
+    //работа, которую другие потоки передают в цикл официанта, например отправка следующей перемены стола
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
 
     private static final int ORDER_ACCEPTANCE_TIME = 800;
+    private static final int IDLE_WAIT = 300;
+    //сколько добавляет к выходу каждый лишний заказ на подносе
+    private static final int TRAY_EXTRA_ITEM_TIME = 150;
 
-    public Waiter(String name, Restaurant restaurant, RestaurantGUI gui) {
+    public Waiter(String name, Restaurant restaurant, RestaurantView gui) {
         this.name = name;
         this.restaurant = restaurant;
         this.gui = gui;
+        this.log = restaurant.getLogger();
     }
 
+    //один цикл на официанта: сначала отнести готовую перемену стола и готовое, потом принять новый заказ, иначе ждать
     @Override
     public void run() {
-        gui.logMessage("[ОФИЦИАНТ]" + name + " начал смену (макс. заказов: " + MAX_CONCURRENT_ORDERS + ")");
-
-        //поток для принятия заказов
-        orderAcceptanceThread = new Thread(() -> {
-            while (isWorking || !orderAcceptanceQueue.isEmpty()) {
-                try {
-                    if (Thread.currentThread().isInterrupted()) {
-                        break;
-                    }
-
-                    restaurant.checkPause();
+        loopThread = Thread.currentThread();
+        log.info(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " начал смену (макс. заказов: " + MAX_CONCURRENT_ORDERS + ")");
 
-                    Order order = orderAcceptanceQueue.poll(100, TimeUnit.MILLISECONDS);
+        try {
+            while (isWorking && !Thread.currentThread().isInterrupted()) {
+                restaurant.checkPause();
 
-                    if (order != null) {
-                        processOrder(order);
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-            gui.logMessage("[ОФИЦИАНТ]" + name + ": поток приема заказов завершен");
-        });
-        orderAcceptanceThread.start();
-
-        while (isWorking) {
-            try {
-                if (Thread.currentThread().isInterrupted()) {
-                    break;
+                Runnable task = tasks.poll();
+                if (task != null) {
+                    task.run();
+                    continue;
                 }
 
-                restaurant.checkPause();
+                List<Order> course = restaurant.takeReadyCourse(name);
+                if (course != null) {
+                    deliverTray(course);
+                    continue;
+                }
 
-                Order readyOrder = restaurant.takeReadyOrder(name);
-                if (readyOrder != null) {
-                    if (restaurant.markOrderAsTaken(readyOrder.getId())) {
-                        deliverOrder(readyOrder);
+                if (restaurant.takeReadyOrder(name) != null) {
+                    waitForTray();
+                    List<Order> tray = restaurant.takeReadyOrders(name, restaurant.getTrayCapacity());
+                    if (!tray.isEmpty()) {
+                        deliverTray(tray);
+                        continue;
                     }
                 }
 
-                if (currentOrders.get() >= MAX_CONCURRENT_ORDERS) {
-                    Thread.sleep(1000);
-                    continue;
+                if (canAcceptMore()) {
+                    Order next = pollInbox();
+                    if (next == null) {
+                        next = restaurant.stealAcceptanceWork(this);
+                    }
+                    if (next != null) {
+                        restaurant.acceptanceTaken();
+                        processOrder(next);
+                        continue;
+                    }
                 }
 
-                Thread.sleep(300);
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                //будят новый заказ в ящике или готовое блюдо
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(restaurant.scaled(IDLE_WAIT)));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loopThread = null;
         }
 
-        if (orderAcceptanceThread != null && orderAcceptanceThread.isAlive()) {
-            orderAcceptanceThread.interrupt();
-            try {
-                orderAcceptanceThread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        log.info(LogCategory.WAITER, () -> name + " закончил смену. Принято: " + ordersAccepted + ", Обслужено: " + ordersServed);
+    }
+
+    //не блокирует: false, если ящик полон и заказ остается в общей очереди
+    public boolean acceptOrder(Order order) {
+        int size;
+        do {
+            size = inboxSize.get();
+            if (size >= INBOX_CAPACITY) {
+                log.warn(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " слишком занят! Очередь приема переполнена");
+                log.info(LogCategory.WAITER, () -> "Заказ " + order + " будет ждать в общей очереди");
+                return false;
             }
+        } while (!inboxSize.compareAndSet(size, size + 1));
+
+        inbox.offerLast(order);
+        log.info(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " принял заказ в очередь: " + order);
+        wake();
+        return true;
+    }
+
+    private Order pollInbox() {
+        Order order = inbox.pollFirst();
+        if (order != null) {
+            inboxSize.decrementAndGet();
         }
+        return order;
+    }
 
-        gui.logMessage(name + " закончил смену. Принято: " + ordersAccepted + ", Обслужено: " + ordersServed);
+    //вызывает свободный коллега: отдаем самый поздний заказ, свой ближайший оставляем себе
+    Order stealOrder() {
+        Order order = inbox.pollLast();
+        if (order != null) {
+            inboxSize.decrementAndGet();
+        }
+        return order;
     }
 
-    public void acceptOrder(Order order) {
-        try {
-            if (orderAcceptanceQueue.size() < 10) {
-                orderAcceptanceQueue.put(order);
-                gui.logMessage("[ОФИЦИАНТ]" + name + " принял заказ в очередь: " + order);
-            } else {
-                gui.logMessage("[ОФИЦИАНТ]" + name + " слишком занят! Очередь приема переполнена");
-                gui.logMessage("Заказ " + order + " будет ждать в общей очереди");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            gui.logMessage("Прием заказа прерван: " + order);
+    //выполнится в цикле официанта между заказами
+    void execute(Runnable task) {
+        tasks.offer(task);
+        wake();
+    }
+
+    void releaseOrder() {
+        currentOrders.decrementAndGet();
+        if (Thread.currentThread() != loopThread) {
+            wake();
         }
     }
 
-    //обработка заказа
-    private void processOrder(Order order) {
-        try {
-            restaurant.checkPause();
+    void wake() {
+        Thread thread = loopThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
 
-            if (totalOrdersHandled >= MAX_TOTAL_ORDERS_PER_WAITER) {
-                gui.logMessage("[ОФИЦИАНТ]" + name + " достиг лимита заказов (" + MAX_TOTAL_ORDERS_PER_WAITER + ")");
-                return;
-            }
+    private boolean canAcceptMore() {
+        return currentOrders.get() < MAX_CONCURRENT_ORDERS && totalOrdersHandled < restaurant.getMaxOrdersPerWaiter();
+    }
 
-            if (currentOrders.get() >= MAX_CONCURRENT_ORDERS) {
-                gui.logMessage("[ОФИЦИАНТ]" + name + " слишком занят! Клиент " + order.getClientName() + " ждет...");
+    //обработка заказа; сюда попадаем, только когда есть свободное место
+    private void processOrder(Order order) throws InterruptedException {
+        restaurant.sleepScaled(ORDER_ACCEPTANCE_TIME);
 
-                int waitTime = 0;
-                while (currentOrders.get() >= MAX_CONCURRENT_ORDERS && isWorking && waitTime < 3000) {
-                    restaurant.checkPause();
-                    Thread.sleep(500);
-                    waitTime += 500;
-                }
+        if (order.getTicket() != null) {
+            acceptTicket(order.getTicket());
+            return;
+        }
 
-                if (!isWorking || currentOrders.get() >= MAX_CONCURRENT_ORDERS) {
-                    gui.logMessage("[ОФИЦИАНТ] " + name + " все еще занят, заказ возвращен в общую очередь: " + order);
-                    return;
-                }
-            }
+        currentOrders.incrementAndGet();
+        ordersAccepted++;
+        totalOrdersHandled++;
 
-            Thread.sleep(ORDER_ACCEPTANCE_TIME);
+        log.info(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " обработал заказ: " + order +
+                " (активных: " + currentOrders.get() + "/" + MAX_CONCURRENT_ORDERS);
 
-            currentOrders.incrementAndGet();
-            ordersAccepted++;
-            totalOrdersHandled++;
+        int maxOrders = restaurant.getMaxOrdersPerWaiter();
+        if (totalOrdersHandled == maxOrders) {
+            log.warn(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " достиг лимита заказов (" + maxOrders + ")");
+        }
+
+        restaurant.assignWaiter(order, name);
+        order.markPhase(Order.Phase.ACCEPTED);
+        if (!restaurant.advanceOrder(order, Order.OrderStatus.CREATED, Order.OrderStatus.WAITING_FOR_COOKING)) {
+            currentOrders.decrementAndGet();
+            log.warn(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + ": заказ " + order + " уже обработан (" +
+                    order.getStatus().getDisplayName() + ")");
+            return;
+        }
+        gui.updateOrderStatus(order);
+
+        boolean added = restaurant.addToKitchenQueue(order, name);
+        if (!added) {
+            currentOrders.decrementAndGet();
+            log.warn(LogCategory.WAITER, () -> "Не удалось добавить заказ " + order + " в очередь кухни, заказ ждет...");
+        }
+    }
 
-            gui.logMessage("[ОФИЦИАНТ]" + name + " обработал заказ: " + order +
-                    " (активных: " + currentOrders.get() + "/" + MAX_CONCURRENT_ORDERS);
+    //стол принимается целиком за один подход и занимает одно место, пока не подана последняя перемена
+    //(место отдает Restaurant.finishTicket); блюда перемен своих мест не занимают
+    private void acceptTicket(Ticket ticket) {
+        currentOrders.incrementAndGet();
+        ordersAccepted++;
+        totalOrdersHandled++;
+        ticket.setWaiter(name);
+        for (Order order : ticket.getItems()) {
+            restaurant.assignWaiter(order, name);
+        }
+        log.info(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " принял " + ticket);
+        restaurant.startTicket(ticket, this);
+    }
 
-            order.setStatus(Order.OrderStatus.WAITING_FOR_COOKING);
-            order.setAssignedWaiter(name);
+    //отправляет блюда перемены на кухню разом; вызывается в цикле официанта (см. Restaurant.startTicket)
+    void fireCourse(List<Order> course) {
+        Ticket ticket = course.get(0).getTicket();
+        for (Order order : course) {
+            order.markPhase(Order.Phase.ACCEPTED);
+            if (!restaurant.advanceOrder(order, Order.OrderStatus.CREATED, Order.OrderStatus.WAITING_FOR_COOKING)) {
+                ticket.itemSkipped(order);
+                continue;
+            }
             gui.updateOrderStatus(order);
 
-            boolean added = restaurant.addToKitchenQueue(order, name);
-            if (!added) {
-                currentOrders.decrementAndGet();
-                gui.logMessage("Не удалось добавить заказ " + order + " в очередь кухни, заказ ждет...");
+            if (!restaurant.addToKitchenQueue(order, name)) {
+                log.warn(LogCategory.WAITER, () -> "Блюдо " + order + " для " + ticket + " не попало на кухню");
+                ticket.itemSkipped(order);
             }
+        }
+    }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            currentOrders.decrementAndGet();
-            gui.logMessage("Обработка заказа прервана: " + order);
+    //если часть своих заказов еще готовится, ждем их не дольше окна подноса
+    private void waitForTray() {
+        int window = restaurant.getTrayWindowMillis();
+        if (window <= 0) return;
+
+        int wanted = Math.min(restaurant.getTrayCapacity(), currentOrders.get());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(restaurant.scaled(window));
+        while (restaurant.countReadyOrders(name) < wanted && isWorking) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0 || Thread.currentThread().isInterrupted()) break;
+            //completeOrder будит официанта, когда готов его заказ
+            LockSupport.parkNanos(this, left);
         }
     }
 
-    private void deliverOrder(Order order) throws InterruptedException {
-        order.setStatus(Order.OrderStatus.DELIVERED);
+    //один выход в зал: время самой долгой доставки плюс надбавка за каждый лишний заказ на подносе
+    private void deliverTray(List<Order> tray) throws InterruptedException {
+        List<DeliverOrderEvent> events = new ArrayList<>(tray.size());
+        int deliveryTime = 0;
+        for (Order order : tray) {
+            DeliverOrderEvent event = new DeliverOrderEvent();
+            event.begin();
+            events.add(event);
+            deliveryTime = Math.max(deliveryTime, 500 + order.getDishCategory().getPreparationTime() / 10);
+        }
+        deliveryTime += (tray.size() - 1) * TRAY_EXTRA_ITEM_TIME;
 
-        int deliveryTime = 500 + order.getDishCategory().getPreparationTime() / 10;
-        gui.logMessage("[ОФИЦИАНТ]" + name + " несет заказ: " + order);
+        if (tray.size() == 1) {
+            log.debug(LogCategory.DELIVERY, () -> "[ОФИЦИАНТ]" + name + " несет заказ: " + tray.get(0));
+        } else {
+            log.debug(LogCategory.DELIVERY, () -> "[ОФИЦИАНТ]" + name + " несет " + tray.size() + " заказа на подносе: " + tray);
+        }
 
         int steps = 5;
         int stepTime = deliveryTime / steps;
 
         for (int i = 0; i < steps; i++) {
             restaurant.checkPause();
-            Thread.sleep(stepTime);
+            restaurant.sleepScaled(stepTime);
         }
 
-        restaurant.deliverOrder(order);
-        currentOrders.decrementAndGet();
-        ordersServed++;
-        gui.updateWaiterStatus();
-
-        long totalTime = order.getTotalTime() / 1000;
-        long waitingTime = order.getWaitingTime() / 1000;
-        long cookingTime = order.getCookingTime() / 1000;
+        for (int i = 0; i < tray.size(); i++) {
+            Order order = tray.get(i);
+            restaurant.deliverOrder(order);
+            events.get(i).record(order, name);
+            //место освобождается у принявшего заказ, даже если на общей раздаче его унес другой;
+            //место стола отдается после последней перемены
+            Waiter owner = order.getTicket() != null ? null
+                    : name.equals(order.getAssignedWaiter()) ? this : restaurant.findWaiter(order.getAssignedWaiter());
+            if (owner != null) {
+                owner.releaseOrder();
+            }
+            ordersServed++;
 
-        gui.logMessage(String.format("[ОФИЦИАНТ]" + name + " доставил заказ за %dсек (ожидание: %dсек, готовка: %dсек)",
-                totalTime, waitingTime, cookingTime));
+            log.debug(LogCategory.DELIVERY, () -> "[ОФИЦИАНТ]" + name + " доставил заказ за " + order.getTotalTime() / 1000 +
+                    "сек (ожидание: " + order.getWaitingTime() / 1000 + "сек, готовка: " + order.getCookingTime() / 1000 +
+                    "сек, доставка: " + order.getDeliveryTime() / 1000 + "сек)");
+        }
+        restaurant.publishState();
     }
 
     public void setWorking(boolean working) {
         if (working && !isWorking) {
-            gui.logMessage("[ОФИЦИАНТ]" + name + " начал смену");
+            //перемены столов прошлой смены не отправляются
+            tasks.clear();
+            log.info(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " начал смену");
         } else if (!working && isWorking) {
-            gui.logMessage("[ОФИЦИАНТ]" + name + " закончил смену. Принято: " + ordersAccepted + ", Обслужено: " + ordersServed);
+            log.info(LogCategory.WAITER, () -> "[ОФИЦИАНТ]" + name + " закончил смену. Принято: " + ordersAccepted + ", Обслужено: " + ordersServed);
         }
         this.isWorking = working;
 
-        if (!working && orderAcceptanceThread != null) {
-            orderAcceptanceThread.interrupt();
+        if (!working) {
+            wake();
         }
     }
 
     public void setPaused(boolean paused) {
         this.isPaused = paused;
         if (paused) {
-            gui.logMessage(name + " приостановил работу");
+            log.info(LogCategory.WAITER, () -> name + " приостановил работу");
         } else {
-            gui.logMessage(name + " возобновил работу");
+            log.info(LogCategory.WAITER, () -> name + " возобновил работу");
         }
     }
 
+    public static int getOrderAcceptanceTime() { return ORDER_ACCEPTANCE_TIME; }
+
     public String getName() { return name; }
     public int getOrdersServed() { return ordersServed; }
     public int getOrdersAccepted() { return ordersAccepted; }
     public int getCurrentOrders() { return currentOrders.get(); }
+    public int getInboxSize() { return inboxSize.get(); }
     public int getMaxConcurrentOrders() { return MAX_CONCURRENT_ORDERS; }
     public boolean isWorking() { return isWorking; }
 
@@ -0,0 +1,67 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//очередь заказов одного официанта (или общая): связный список с индексом по id, добавление и снятие - O(1).
+//для экрана отдается неизменяемый срез, который пересобирается только после изменения очереди
+final class WaiterQueue {
+    private final Map<String, Order> orders = new LinkedHashMap<>();
+    private long version;
+    private List<Order> view = Collections.emptyList();
+    private long viewVersion;
+
+    synchronized void add(Order order) {
+        if (orders.putIfAbsent(order.getId(), order) == null) {
+            version++;
+        }
+    }
+
+    synchronized boolean remove(String orderId) {
+        if (orders.remove(orderId) == null) {
+            return false;
+        }
+        version++;
+        return true;
+    }
+
+    //самый давний заказ; null - очередь пуста
+    synchronized Order poll() {
+        Iterator<Order> it = orders.values().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        Order order = it.next();
+        it.remove();
+        version++;
+        return order;
+    }
+
+    synchronized void clear() {
+        if (!orders.isEmpty()) {
+            orders.clear();
+            version++;
+        }
+    }
+
+    synchronized int size() {
+        return orders.size();
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    //заказы в порядке поступления; пока очередь не менялась, возвращается тот же список
+    synchronized List<Order> view() {
+        if (viewVersion != version) {
+            view = Collections.unmodifiableList(new ArrayList<>(orders.values()));
+            viewVersion = version;
+        }
+        return view;
+    }
+}
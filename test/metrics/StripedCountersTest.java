@@ -0,0 +1,107 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//официанты двигают заказы по состояниям, экран в это время снимает срезы: в каждом срезе заказы
+//по состояниям складываются ровно в TOTAL, а TOTAL от среза к срезу не убывает
+class StripedCountersTest {
+    private static final int WRITERS = 4;
+    private static final int ORDERS_PER_WRITER = 100_000;
+    //каждый такой заказ отклоняется из ожидания, остальные доходят до доставки
+    private static final int REJECT_EVERY = 5;
+
+    //те же счетчики, что у ресторана
+    private enum State { TOTAL, WAITING, COOKING, READY, DELIVERING, DELIVERED, REJECTED }
+
+    private static final State[] STATES = {State.WAITING, State.COOKING, State.READY, State.DELIVERING, State.DELIVERED, State.REJECTED};
+
+    @Test
+    void snapshotsAreConsistentUnderConcurrentMoves() throws Exception {
+        StripedCounters<State> counters = new StripedCounters<>(State.class);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                int snapshots = 0;
+                long lastTotal = 0;
+                long lastEpoch = 0;
+                while (running.get()) {
+                    StripedCounters.Snapshot<State> snapshot = counters.snapshot();
+                    long total = snapshot.get(State.TOTAL);
+                    assertEquals(total, inStates(snapshot), "заказы по состояниям не сходятся с TOTAL");
+                    assertTrue(total >= lastTotal, "TOTAL убыл: " + lastTotal + " -> " + total);
+                    assertTrue(snapshot.getEpoch() > lastEpoch);
+                    for (State state : STATES) {
+                        assertTrue(snapshot.get(state) >= 0, state + " ушел в минус");
+                    }
+                    lastTotal = total;
+                    lastEpoch = snapshot.getEpoch();
+                    snapshots++;
+                }
+                return snapshots;
+            });
+
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < ORDERS_PER_WRITER; i++) {
+                        counters.add(State.TOTAL, 1, State.WAITING, 1);
+                        if (i % REJECT_EVERY == 0) {
+                            counters.move(State.WAITING, State.REJECTED);
+                            continue;
+                        }
+                        counters.move(State.WAITING, State.COOKING);
+                        counters.move(State.COOKING, State.READY);
+                        counters.move(State.READY, State.DELIVERING);
+                        counters.move(State.DELIVERING, State.DELIVERED);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = (long) WRITERS * ORDERS_PER_WRITER;
+        long rejected = (long) WRITERS * ((ORDERS_PER_WRITER + REJECT_EVERY - 1) / REJECT_EVERY);
+        StripedCounters.Snapshot<State> last = counters.snapshot();
+        assertEquals(total, last.get(State.TOTAL));
+        assertEquals(rejected, last.get(State.REJECTED));
+        assertEquals(total - rejected, last.get(State.DELIVERED));
+        for (State state : new State[]{State.WAITING, State.COOKING, State.READY, State.DELIVERING}) {
+            assertEquals(0, last.get(state), state.toString());
+        }
+        //писателей нет: быстрое чтение совпадает со срезом
+        for (State state : State.values()) {
+            assertEquals(last.get(state), counters.sum(state), state.toString());
+        }
+
+        counters.reset();
+        assertEquals(0, counters.snapshot().get(State.TOTAL));
+    }
+
+    private static long inStates(StripedCounters.Snapshot<State> snapshot) {
+        long sum = 0;
+        for (State state : STATES) {
+            sum += snapshot.get(state);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,216 @@
+package model;
+
+import metrics.HistogramSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//выборки по битовым картам сверяются с перебором записанных заказов: состав, id и длительности между фазами.
+//у каждого заказа свои заранее известные отметки фаз, так что чтение не того столбца сразу видно по сумме
+class DeliveredOrderArchiveTest {
+    //больше двух кусков по 65536 строк, последний неполный
+    private static final int ROWS = 150_000;
+    private static final String[] WAITERS = {"Официант-1", "Официант-2", "Официант-3", null};
+    private static final Order.DishCategory[] CATEGORIES = {null, Order.DishCategory.SOUP, Order.DishCategory.DESSERT};
+    private static final Order.Phase[][] SPANS = {
+            {Order.Phase.CREATED, Order.Phase.DELIVERED},
+            {Order.Phase.CREATED, Order.Phase.ASSIGNED},
+            {Order.Phase.ENQUEUED, Order.Phase.COOK_START},
+            {Order.Phase.COOK_START, Order.Phase.READY},
+            {Order.Phase.READY, Order.Phase.PICKED_UP},
+            {Order.Phase.PICKED_UP, Order.Phase.DELIVERED}
+    };
+    private static final double[] PERCENTILES = {1, 50, 90, 99, 100};
+    //до выдачи доходит не каждый такой заказ: у него нет отметки PICKED_UP
+    private static final int NOT_PICKED_UP_EVERY = 13;
+
+    @Test
+    void selectionsMatchBruteForce() {
+        Order[] orders = orders(ROWS, WAITERS, new Random(50));
+        DeliveredOrderArchive archive = new DeliveredOrderArchive(1 << 20);
+        for (Order order : orders) {
+            assertTrue(archive.append(order));
+        }
+        check(archive, orders, ROWS);
+    }
+
+    //интервал без отметки у одной из фаз в распределение не попадает
+    @Test
+    void unreachedPhaseIsSkipped() {
+        Order[] orders = orders(1_000, WAITERS, new Random(4));
+        DeliveredOrderArchive archive = new DeliveredOrderArchive(1 << 20);
+        for (Order order : orders) {
+            archive.append(order);
+        }
+        long picked = 0;
+        for (Order order : orders) {
+            if (order.hasReached(Order.Phase.PICKED_UP)) picked++;
+        }
+        assertTrue(picked < orders.length);
+        assertEquals(picked, archive.durations(null, null, Order.Phase.READY, Order.Phase.PICKED_UP).getCount());
+        assertEquals(orders.length, archive.durations(null, null, Order.Phase.READY, Order.Phase.DELIVERED).getCount());
+    }
+
+    //куски прошлой смены переиспользуются: старые биты не должны попасть в выборку новой,
+    //а вне кучи ничего не выделяется, пока новая смена не больше старой и официанты те же
+    @Test
+    void nextShiftOverwritesPrevious() {
+        DeliveredOrderArchive archive = new DeliveredOrderArchive(1 << 20);
+        for (Order order : orders(ROWS, WAITERS, new Random(1))) {
+            archive.append(order);
+        }
+        long offHeap = archive.getOffHeapBytes();
+
+        archive.clear();
+        Order[] sameStaff = orders(ROWS, WAITERS, new Random(5));
+        for (Order order : sameStaff) {
+            assertTrue(archive.append(order));
+        }
+        assertEquals(offHeap, archive.getOffHeapBytes());
+        check(archive, sameStaff, ROWS);
+
+        archive.clear();
+        String[] nextShift = {"Официант-2", "Официант-4"};
+        Order[] orders = orders(ROWS / 2, nextShift, new Random(2));
+        for (Order order : orders) {
+            assertTrue(archive.append(order));
+        }
+        assertEquals(ROWS / 2, archive.size());
+        check(archive, orders, orders.length);
+        assertEquals(0, archive.count(null, "Официант-1"));
+        assertEquals(0, archive.durations(null, "Официант-1", Order.Phase.CREATED, Order.Phase.DELIVERED).getCount());
+        //новых кусков не выделялось, добавились только карты нового официанта в двух кусках
+        assertTrue(archive.getOffHeapBytes() - offHeap <= 2 * 65536 / 8);
+    }
+
+    //запись строки в уже выделенный кусок не выделяет памяти в куче
+    @Test
+    void appendDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Order[] orders = orders(60_000, WAITERS, new Random(6));
+        DeliveredOrderArchive archive = new DeliveredOrderArchive(1 << 20);
+        for (Order order : orders) {
+            archive.append(order);
+        }
+        archive.clear();
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (Order order : orders) {
+            archive.append(order);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        //запас на служебные объекты самого замера; одна аллокация на строку дала бы мегабайты
+        assertTrue(allocated < 64 * 1024, "на " + orders.length + " строк выделено " + allocated + " байт");
+    }
+
+    @Test
+    void fullArchiveDropsRows() {
+        DeliveredOrderArchive archive = new DeliveredOrderArchive(100);
+        Order[] orders = orders(130, WAITERS, new Random(3));
+        for (int i = 0; i < orders.length; i++) {
+            assertEquals(i < 100, archive.append(orders[i]));
+        }
+        assertEquals(100, archive.size());
+        assertEquals(30, archive.getDropped());
+        check(archive, orders, 100);
+
+        archive.clear();
+        assertEquals(0, archive.getDropped());
+        assertEquals(0, archive.count(null, null));
+        assertEquals(0, archive.durations(null, null, Order.Phase.CREATED, Order.Phase.DELIVERED).getCount());
+        assertTrue(archive.ids(null, null, 5).isEmpty());
+        assertTrue(archive.append(orders[0]));
+        assertEquals(List.of(orders[0].getId()), archive.ids(null, null, 5));
+    }
+
+    private static void check(DeliveredOrderArchive archive, Order[] orders, int rows) {
+        List<String> wanted = new ArrayList<>(List.of(WAITERS[0], WAITERS[2], "Официант-4", "Никто"));
+        wanted.add(null);
+        for (Order.DishCategory category : CATEGORIES) {
+            for (String waiter : wanted) {
+                List<String> ids = new ArrayList<>();
+                List<Order> selected = new ArrayList<>();
+                for (int i = 0; i < rows; i++) {
+                    if (matches(orders[i], category, waiter)) {
+                        selected.add(orders[i]);
+                        if (ids.size() < 5) ids.add(orders[i].getId());
+                    }
+                }
+                String selection = category + ", " + waiter;
+                assertEquals(selected.size(), archive.count(category, waiter), selection);
+                assertEquals(ids, archive.ids(category, waiter, 5), selection);
+                for (Order.Phase[] span : SPANS) {
+                    checkDurations(archive.durations(category, waiter, span[0], span[1]), selected,
+                            span[0], span[1], selection + ", " + span[0] + "-" + span[1]);
+                }
+            }
+        }
+    }
+
+    //количество, сумма и максимум сходятся точно, процентили - с точностью интервала гистограммы (1/32)
+    private static void checkDurations(HistogramSnapshot histogram, List<Order> selected,
+                                       Order.Phase from, Order.Phase to, String selection) {
+        long[] values = new long[selected.size()];
+        int count = 0;
+        for (Order order : selected) {
+            if (order.hasReached(from) && order.hasReached(to)) {
+                values[count++] = micros(order, to) - micros(order, from);
+            }
+        }
+        values = Arrays.copyOf(values, count);
+        Arrays.sort(values);
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+
+        assertEquals(count, histogram.getCount(), selection);
+        assertEquals(sum, histogram.getSum(), selection);
+        if (count == 0) return;
+        assertEquals(values[count - 1], histogram.getMax(), selection);
+        for (double percentile : PERCENTILES) {
+            long exact = values[Math.max(1, (int) Math.ceil(percentile / 100.0 * count)) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact + exact / 32,
+                    selection + ", p" + percentile + ": " + reported + " вместо " + exact);
+        }
+    }
+
+    //так же, как архив хранит отметку: микросекунды от создания
+    private static long micros(Order order, Order.Phase phase) {
+        return (order.getPhaseNanos(phase) - order.getPhaseNanos(Order.Phase.CREATED)) / 1000;
+    }
+
+    private static boolean matches(Order order, Order.DishCategory category, String waiter) {
+        return (category == null || order.getDishCategory() == category) &&
+                (waiter == null || waiter.equals(order.getAssignedWaiter()));
+    }
+
+    //фаза i наступает через i секунд после создания плюс свой для строки и фазы сдвиг, так что у каждого
+    //интервала между фазами свое распределение
+    private static Order[] orders(int count, String[] waiters, Random random) {
+        Order.Phase[] phases = Order.Phase.values();
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            Order order = Order.createRandomOrder("Клиент");
+            order.setAssignedWaiter(waiters[random.nextInt(waiters.length)]);
+            order.setAssignedCook("Повар-" + (1 + random.nextInt(2)));
+            long created = order.getPhaseNanos(Order.Phase.CREATED);
+            for (int p = 1; p < phases.length; p++) {
+                if (phases[p] == Order.Phase.PICKED_UP && i % NOT_PICKED_UP_EVERY == 0) continue;
+                long micros = p * 1_000_000L + (long) (i % 1000) * p * p * 37;
+                order.markPhase(phases[p], created + micros * 1000);
+            }
+            orders[i] = order;
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,204 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//одна очередь кухни вместо очереди и списка для экрана: срез всегда совпадает с каким-то состоянием очереди
+//и не длиннее limit, снятие по id убирает заказ из середины, совпавшие id не ломают ни очередь, ни движок
+class IndexedOrderQueueTest {
+    private static final int CAPACITY = 20;
+
+    //официант кладет заказы по порядку, повар забирает с головы, экран в это время читает срезы.
+    //согласованный срез такой очереди - подряд идущие заказы в порядке постановки
+    @Test
+    void snapshotIsConsistentUnderLoad() throws Exception {
+        IndexedOrderQueue queue = new IndexedOrderQueue(CAPACITY);
+        int total = 200_000;
+        Order[] orders = new Order[total];
+        Map<Order, Integer> numbers = new IdentityHashMap<>();
+        for (int i = 0; i < total; i++) {
+            orders[i] = Order.createRandomOrder("Клиент");
+            numbers.put(orders[i], i);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> producer = executor.submit(() -> {
+                for (Order order : orders) {
+                    queue.put(order);
+                }
+                return null;
+            });
+            Future<?> consumer = executor.submit(() -> {
+                for (int i = 0; i < total; i++) {
+                    assertSame(orders[i], queue.take());
+                }
+                return null;
+            });
+            Future<Integer> reader = executor.submit(() -> {
+                int snapshots = 0;
+                while (running.get()) {
+                    int limit = 1 + snapshots % (CAPACITY + 5);
+                    List<Order> snapshot = queue.snapshot(limit);
+                    assertTrue(snapshot.size() <= Math.min(limit, CAPACITY));
+                    for (int i = 1; i < snapshot.size(); i++) {
+                        assertEquals(numbers.get(snapshot.get(i - 1)) + 1, numbers.get(snapshot.get(i)),
+                                "срез не совпадает ни с одним состоянием очереди");
+                    }
+                    snapshots++;
+                }
+                return snapshots;
+            });
+            producer.get(60, TimeUnit.SECONDS);
+            consumer.get(60, TimeUnit.SECONDS);
+            running.set(false);
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    //пока очередь не менялась, срез не копируется заново
+    @Test
+    void unchangedQueueReturnsCachedSnapshot() {
+        IndexedOrderQueue queue = new IndexedOrderQueue(CAPACITY);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(Order.createRandomOrder("Клиент"));
+        }
+        List<Order> first = queue.snapshot(3);
+        assertSame(first, queue.snapshot(3));
+        assertEquals(3, first.size());
+
+        queue.poll();
+        List<Order> second = queue.snapshot(3);
+        assertNotSame(first, second);
+        assertEquals(3, second.size());
+        assertSame(first.get(1), second.get(0));
+    }
+
+    //снятие из середины: соседи смыкаются, порядок остальных не меняется
+    @Test
+    void removeByIdFromTheMiddle() {
+        IndexedOrderQueue queue = new IndexedOrderQueue(CAPACITY);
+        List<Order> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Order order = Order.createRandomOrder("Клиент");
+            assertTrue(queue.offer(order));
+            expected.add(order);
+        }
+        Order middle = expected.remove(4);
+        assertSame(middle, queue.get(middle.getId()));
+        assertSame(middle, queue.removeById(middle.getId()));
+        assertNull(queue.removeById(middle.getId()));
+        assertNull(queue.get(middle.getId()));
+        assertFalse(queue.contains(middle));
+
+        Order last = expected.remove(expected.size() - 1);
+        assertSame(last, queue.removeById(last.getId()));
+        Order head = expected.remove(0);
+        assertSame(head, queue.removeById(head.getId()));
+
+        assertEquals(expected, queue.snapshot(CAPACITY));
+        assertEquals(expected.size(), queue.size());
+        assertEquals(CAPACITY - expected.size(), queue.remainingCapacity());
+        for (Order order : expected) {
+            assertSame(order, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    //совпавший id - обычный заказ: put не бросает, по id находится самый давний, remove снимает именно свой
+    @Test
+    void duplicateIdsAreQueuedNormally() throws InterruptedException {
+        IndexedOrderQueue queue = new IndexedOrderQueue(CAPACITY);
+        Order order = Order.createRandomOrder("Клиент");
+        Order other = Order.createRandomOrder("Клиент");
+        queue.put(order);
+        queue.put(other);
+        queue.put(order);
+        assertTrue(queue.offer(order));
+        assertEquals(4, queue.size());
+
+        assertTrue(queue.remove(other));
+        assertFalse(queue.contains(other));
+        assertSame(order, queue.get(order.getId()));
+        assertSame(order, queue.removeById(order.getId()));
+        assertEquals(List.of(order, order), queue.snapshot(CAPACITY));
+        assertSame(order, queue.take());
+        assertSame(order, queue.take());
+        assertNull(queue.get(order.getId()));
+        assertTrue(queue.isEmpty());
+    }
+
+    //случайные операции, в том числе с повторяющимися id, сверяются со списком заказов в порядке очереди
+    @Test
+    void matchesReferenceList() {
+        long seed = System.nanoTime();
+        Random random = new Random(seed);
+        Order[] pool = new Order[CAPACITY / 2];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = Order.createRandomOrder("Клиент");
+        }
+        IndexedOrderQueue queue = new IndexedOrderQueue(CAPACITY);
+        List<Order> model = new ArrayList<>();
+
+        for (int step = 0; step < 100_000; step++) {
+            Order order = pool[random.nextInt(pool.length)];
+            String id = order.getId();
+            String at = " на шаге " + step + " (seed " + seed + ")";
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1: {
+                    boolean expected = model.size() < CAPACITY;
+                    assertEquals(expected, queue.offer(order), "offer" + at);
+                    if (expected) model.add(order);
+                    break;
+                }
+                case 2:
+                    assertSame(model.isEmpty() ? null : model.remove(0), queue.poll(), "poll" + at);
+                    break;
+                case 3: {
+                    Order expected = firstWithId(model, id);
+                    model.remove(expected);
+                    assertSame(expected, queue.removeById(id), "removeById" + at);
+                    break;
+                }
+                case 4:
+                    assertEquals(model.remove(order), queue.remove(order), "remove" + at);
+                    break;
+                default:
+                    assertSame(firstWithId(model, id), queue.get(id), "get" + at);
+                    assertEquals(model.contains(order), queue.contains(order), "contains" + at);
+                    break;
+            }
+            assertEquals(model, queue.snapshot(CAPACITY), "порядок" + at);
+            assertEquals(model.size(), queue.size(), "size" + at);
+        }
+    }
+
+    private static Order firstWithId(List<Order> orders, String id) {
+        for (Order order : orders) {
+            if (order.getId().equals(id)) return order;
+        }
+        return null;
+    }
+}
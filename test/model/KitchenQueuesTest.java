@@ -0,0 +1,114 @@
+package model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//несколько официантов кладут заказы в очередь кухни, несколько поваров забирают: каждый заказ
+//выходит из очереди ровно один раз - поваром или снятием, и очередь не растет выше емкости
+class KitchenQueuesTest {
+    private static final int PRODUCERS = 3;
+    private static final int CONSUMERS = 3;
+    private static final int ORDERS_PER_PRODUCER = 20_000;
+    private static final int CAPACITY = 16;
+    //каждый такой заказ официант пробует снять сразу после постановки
+    private static final int CANCEL_EVERY = 7;
+
+    @ParameterizedTest
+    @EnumSource(KitchenQueues.Backend.class)
+    void everyOrderLeavesOnce(KitchenQueues.Backend backend) throws Exception {
+        run(backend, false);
+    }
+
+    @ParameterizedTest
+    @EnumSource(KitchenQueues.Backend.class)
+    void everyOrderLeavesOnceWithCancellation(KitchenQueues.Backend backend) throws Exception {
+        run(backend, true);
+    }
+
+    private static void run(KitchenQueues.Backend backend, boolean cancel) throws Exception {
+        BlockingQueue<Order> queue = backend.create(CAPACITY);
+        Order[][] orders = orders();
+        Map<Order, Integer> numbers = new IdentityHashMap<>();
+        for (Order[] producerOrders : orders) {
+            for (Order order : producerOrders) {
+                numbers.put(order, numbers.size());
+            }
+        }
+        int total = numbers.size();
+        AtomicIntegerArray left = new AtomicIntegerArray(total);
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger overflow = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS + CONSUMERS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Order[] producerOrders : orders) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < producerOrders.length; i++) {
+                        Order order = producerOrders[i];
+                        queue.put(order);
+                        if (cancel && i % CANCEL_EVERY == 0 && KitchenQueues.remove(queue, order)) {
+                            left.incrementAndGet(numbers.get(order));
+                            done.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < CONSUMERS; c++) {
+                KitchenQueues.WaitStrategy wait = KitchenQueues.WaitStrategy.values()[c % KitchenQueues.WaitStrategy.values().length];
+                futures.add(executor.submit(() -> {
+                    while (done.get() < total) {
+                        Order order = wait.poll(queue, 10, TimeUnit.MILLISECONDS);
+                        if (order == null) continue;
+                        //неограниченная очередь держит предел снаружи, у нее проверять нечего
+                        if (backend != KitchenQueues.Backend.TRANSFER && queue.size() > CAPACITY) {
+                            overflow.incrementAndGet();
+                        }
+                        left.incrementAndGet(numbers.get(order));
+                        done.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, left.get(i), backend + ": заказ №" + i + " вышел из очереди не один раз");
+        }
+        assertEquals(total, done.get());
+        assertEquals(0, overflow.get(), backend + ": очередь выросла выше емкости");
+        assertTrue(queue.isEmpty(), backend + ": в очереди остались заказы");
+    }
+
+    //id у заказов случайные и на десятках тысяч могут совпасть: очередь обязана пропустить и такие
+    private static Order[][] orders() {
+        Order[][] orders = new Order[PRODUCERS][ORDERS_PER_PRODUCER];
+        for (Order[] producerOrders : orders) {
+            for (int i = 0; i < producerOrders.length; i++) {
+                producerOrders[i] = Order.createRandomOrder("Клиент");
+            }
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,301 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//индексы реестра сверяются с перебором всех заказов: состав выборок, порядок по времени в статусе и oldest
+class OrderRegistryTest {
+    private static final String[] WAITERS = {"Официант-1", "Официант-2", "Официант-3"};
+    private static final String[] COOKS = {"Повар-1", "Повар-2"};
+    private static final long NO_RETENTION_LIMIT = TimeUnit.HOURS.toMillis(1);
+
+    //что о заказе знает перебор: порядок поступления и шаг, на котором он попал в текущий статус
+    private static final class Known {
+        final Order order;
+        final int arrival;
+        int statusStep;
+
+        Known(Order order, int arrival, int statusStep) {
+            this.order = order;
+            this.arrival = arrival;
+            this.statusStep = statusStep;
+        }
+    }
+
+    @Test
+    void indexesMatchBruteForce() {
+        Random random = new Random(49);
+        OrderRegistry registry = new OrderRegistry(NO_RETENTION_LIMIT);
+        List<Known> known = new ArrayList<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (known.isEmpty() || action < 2) {
+                Order order = Order.createRandomOrder("Клиент");
+                registry.add(order);
+                known.add(new Known(order, known.size(), step));
+            } else {
+                Known k = known.get(random.nextInt(known.size()));
+                Order order = k.order;
+                if (action < 6) {
+                    Order.OrderStatus from = order.getStatus();
+                    Order.OrderStatus to = next(from, random);
+                    if (to == null) continue;
+                    assertTrue(order.transition(from, to));
+                    k.statusStep = step;
+                } else if (action < 8) {
+                    order.setAssignedWaiter(WAITERS[random.nextInt(WAITERS.length)]);
+                } else {
+                    order.setAssignedCook(COOKS[random.nextInt(COOKS.length)]);
+                }
+                assertTrue(registry.refresh(order).isEmpty());
+            }
+            if (step % 500 == 0) {
+                check(registry, known);
+            }
+        }
+        check(registry, known);
+    }
+
+    //повар и официант назначаются, пока заказ стоит в статусе: место в статусе он не теряет
+    @Test
+    void assignmentKeepsPlaceInStatus() {
+        OrderRegistry registry = new OrderRegistry(NO_RETENTION_LIMIT);
+        Order first = Order.createRandomOrder("Клиент");
+        Order second = Order.createRandomOrder("Клиент");
+        registry.add(first);
+        registry.add(second);
+        assertTrue(first.transition(Order.OrderStatus.CREATED, Order.OrderStatus.WAITING_FOR_COOKING));
+        registry.refresh(first);
+        assertTrue(second.transition(Order.OrderStatus.CREATED, Order.OrderStatus.WAITING_FOR_COOKING));
+        registry.refresh(second);
+
+        first.setAssignedWaiter(WAITERS[0]);
+        registry.refresh(first);
+        assertEquals(first, registry.oldest(Order.OrderStatus.WAITING_FOR_COOKING));
+        assertEquals(List.of(first, second), registry.byStatus(Order.OrderStatus.WAITING_FOR_COOKING));
+    }
+
+    @Test
+    void finishedOrdersExpire() {
+        OrderRegistry registry = new OrderRegistry(0);
+        Set<Order> active = newIdentitySet();
+        Set<Order> expired = newIdentitySet();
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            Order order = Order.createRandomOrder("Клиент");
+            registry.add(order);
+            active.add(order);
+            if (random.nextBoolean()) {
+                assertTrue(order.transition(Order.OrderStatus.CREATED, Order.OrderStatus.REJECTED));
+                List<Order> evicted = registry.refresh(order);
+                //срок хранения нулевой: завершившийся уходит сразу
+                assertTrue(evicted.contains(order));
+                for (Order e : evicted) {
+                    assertTrue(e.getStatus().isFinal());
+                    assertTrue(expired.add(e), "заказ вычищен дважды");
+                    active.remove(e);
+                }
+            }
+        }
+        assertEquals(active.size(), registry.size());
+        assertEquals(0, registry.count(Order.OrderStatus.REJECTED));
+        for (Order order : registry.all()) {
+            assertFalse(expired.contains(order));
+        }
+    }
+
+    //завершенные заказы разных полос истекают по общей очереди завершений: их вычищает следующее
+    //завершение в любой полосе, а без завершений - evictExpired по таймеру ресторана
+    @Test
+    void finishedOrdersExpireAcrossStripes() throws InterruptedException {
+        OrderRegistry registry = new OrderRegistry(500);
+        Set<Order> first = newIdentitySet();
+        for (int i = 0; i < 200; i++) {
+            Order order = Order.createRandomOrder("Клиент");
+            assertTrue(reject(registry, order).isEmpty());
+            first.add(order);
+        }
+        assertEquals(first.size(), registry.count(Order.OrderStatus.REJECTED));
+        Thread.sleep(600);
+
+        Order next = Order.createRandomOrder("Клиент");
+        assertEquals(first, identitySet(reject(registry, next)));
+        assertEquals(List.of(next), registry.all());
+
+        Thread.sleep(600);
+        assertEquals(List.of(next), registry.evictExpired());
+        assertEquals(0, registry.size());
+        assertTrue(registry.evictExpired().isEmpty());
+    }
+
+    //срок хранения считается от завершения: незавершенный заказ из реестра не уходит, сколько бы ни ждал
+    @Test
+    void unfinishedOrdersStay() throws InterruptedException {
+        OrderRegistry registry = new OrderRegistry(10);
+        Order cooking = Order.createRandomOrder("Клиент");
+        registry.add(cooking);
+        assertTrue(cooking.transition(Order.OrderStatus.CREATED, Order.OrderStatus.WAITING_FOR_COOKING));
+        registry.refresh(cooking);
+        assertTrue(cooking.transition(Order.OrderStatus.WAITING_FOR_COOKING, Order.OrderStatus.COOKING));
+        registry.refresh(cooking);
+        Thread.sleep(50);
+
+        assertTrue(registry.evictExpired().isEmpty());
+        assertEquals(cooking, registry.oldest(Order.OrderStatus.COOKING));
+
+        registry.clear();
+        assertTrue(registry.evictExpired().isEmpty());
+    }
+
+    //официанты и повара двигают свои заказы одновременно; после них индексы совпадают с заказами
+    @Test
+    void concurrentTransitionsKeepIndexesConsistent() throws Exception {
+        OrderRegistry registry = new OrderRegistry(NO_RETENTION_LIMIT);
+        int threads = 4;
+        int ordersPerThread = 5_000;
+        List<Order> orders = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Order>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> drive(registry, ordersPerThread, new Random(seed))));
+            }
+            for (Future<List<Order>> future : futures) {
+                orders.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(orders.size(), registry.size());
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            Set<Order> expected = newIdentitySet();
+            for (Order order : orders) {
+                if (order.getStatus() == status) expected.add(order);
+            }
+            assertEquals(expected, identitySet(registry.byStatus(status)), "статус " + status);
+            assertEquals(expected.size(), registry.count(status));
+            for (String waiter : WAITERS) {
+                Set<Order> byWaiter = newIdentitySet();
+                for (Order order : expected) {
+                    if (waiter.equals(order.getAssignedWaiter())) byWaiter.add(order);
+                }
+                assertEquals(byWaiter, identitySet(registry.byWaiter(waiter, status)), waiter + ", " + status);
+            }
+        }
+    }
+
+    //добавляет и сразу отклоняет; возвращает то, что вычистило это завершение
+    private static List<Order> reject(OrderRegistry registry, Order order) {
+        registry.add(order);
+        assertTrue(order.transition(Order.OrderStatus.CREATED, Order.OrderStatus.REJECTED));
+        return registry.refresh(order);
+    }
+
+    private static List<Order> drive(OrderRegistry registry, int count, Random random) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = Order.createRandomOrder("Клиент");
+            registry.add(order);
+            orders.add(order);
+            Order.OrderStatus status = order.getStatus();
+            int moves = random.nextInt(6);
+            for (int m = 0; m < moves; m++) {
+                Order.OrderStatus to = next(status, random);
+                if (to == null) break;
+                order.transition(status, to);
+                registry.refresh(order);
+                status = to;
+                order.setAssignedWaiter(WAITERS[random.nextInt(WAITERS.length)]);
+                registry.refresh(order);
+            }
+        }
+        return orders;
+    }
+
+    private static void check(OrderRegistry registry, List<Known> known) {
+        Comparator<Known> inStatus = Comparator.<Known>comparingInt(k -> k.order.getStatus().ordinal())
+                .thenComparingInt(k -> k.statusStep);
+
+        assertEquals(known.size(), registry.size());
+        assertEquals(orders(known, k -> true, Comparator.comparingInt(k -> k.arrival)), registry.all());
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            List<Order> expected = orders(known, k -> k.order.getStatus() == status, inStatus);
+            assertEquals(expected, registry.byStatus(status), "статус " + status);
+            assertEquals(expected.size(), registry.count(status));
+            assertEquals(expected.isEmpty() ? null : expected.get(0), registry.oldest(status), "oldest " + status);
+            for (Order.DishCategory category : Order.DishCategory.values()) {
+                assertEquals(orders(known, k -> k.order.getStatus() == status && k.order.getDishCategory() == category, inStatus),
+                        registry.byCategory(category, status), category + ", " + status);
+            }
+        }
+        for (String waiter : WAITERS) {
+            assertEquals(orders(known, k -> waiter.equals(k.order.getAssignedWaiter()), inStatus),
+                    registry.byWaiter(waiter, null), waiter);
+            assertEquals(orders(known, k -> waiter.equals(k.order.getAssignedWaiter()) &&
+                            k.order.getStatus() == Order.OrderStatus.WAITING_FOR_COOKING, inStatus),
+                    registry.byWaiter(waiter, Order.OrderStatus.WAITING_FOR_COOKING), waiter);
+        }
+        for (String cook : COOKS) {
+            assertEquals(orders(known, k -> cook.equals(k.order.getAssignedCook()), inStatus),
+                    registry.byCook(cook, null), cook);
+        }
+    }
+
+    private static List<Order> orders(List<Known> known, Predicate<Known> filter, Comparator<Known> order) {
+        List<Known> matched = new ArrayList<>();
+        for (Known k : known) {
+            if (filter.test(k)) matched.add(k);
+        }
+        matched.sort(order);
+        List<Order> orders = new ArrayList<>();
+        for (Known k : matched) {
+            orders.add(k.order);
+        }
+        return orders;
+    }
+
+    //случайный допустимый следующий статус; null - заказ уже завершен
+    private static Order.OrderStatus next(Order.OrderStatus from, Random random) {
+        List<Order.OrderStatus> next = new ArrayList<>();
+        for (Order.OrderStatus to : Order.OrderStatus.values()) {
+            if (from.canMoveTo(to)) next.add(to);
+        }
+        if (next.isEmpty()) return null;
+        //отказ реже продвижения, иначе до поздних статусов почти никто не доходит
+        Order.OrderStatus to = next.get(random.nextInt(next.size()));
+        if (to == Order.OrderStatus.REJECTED && next.size() > 1 && random.nextInt(4) != 0) {
+            to = next.get(0);
+        }
+        return to;
+    }
+
+    private static Set<Order> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private static Set<Order> identitySet(List<Order> orders) {
+        Set<Order> set = newIdentitySet();
+        set.addAll(orders);
+        assertEquals(orders.size(), set.size(), "заказ в выборке дважды");
+        return set;
+    }
+}